@@ -0,0 +1,79 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.service.LibraryService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point lookups and substring search over books and members. {@code size} is
+ * both the number of books and the number of members; the 10M case needs a
+ * large heap (run with {@code -jvmArgs -Xmx24g} or similar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "Concurrent Java" })
+    public String bookQuery;
+
+    @Param({ "reader12" })
+    public String memberQuery;
+
+    private LibraryService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new LibraryService();
+        LibraryFixture.addBooks(service, size, 1);
+        LibraryFixture.addMembers(service, size, MemberType.STUDENT);
+    }
+
+    @Benchmark
+    public SimpleBook findBook() {
+        return service.findBook(LibraryFixture.isbn(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    public SimpleBook findMissingBook() {
+        return service.findBook("979-" + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public SimpleMember findMember() {
+        return service.findMember(LibraryFixture.memberId(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    public List<SimpleBook> searchBooks() {
+        return service.searchBooks(bookQuery);
+    }
+
+    @Benchmark
+    public List<SimpleMember> searchMembers() {
+        return service.searchMembers(memberQuery);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.service.LibraryService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Borrow/return and the overdue report against a library that already holds
+ * {@code openLoans} open loans. Each fixture member has {@link #LOANS_PER_MEMBER}
+ * books out and each fixture book two copies out, so the loan index is as
+ * large as the parameter says. Round trips use a separate pool of idle members
+ * and books so they never hit a borrowing limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CirculationBenchmark {
+
+    private static final int LOANS_PER_MEMBER = 5;
+    private static final int COPIES_OUT_PER_BOOK = 2;
+    private static final int ROUND_TRIP_POOL = 1024;
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int openLoans;
+
+    private LibraryService service;
+    private int fixtureMembers;
+    private int fixtureBooks;
+    private int next;
+    private LocalDate allLoansOverdue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new LibraryService();
+        fixtureMembers = openLoans / LOANS_PER_MEMBER;
+        fixtureBooks = openLoans / COPIES_OUT_PER_BOOK;
+        LibraryFixture.addBooks(service, fixtureBooks + ROUND_TRIP_POOL, COPIES_OUT_PER_BOOK);
+        LibraryFixture.addMembers(service, fixtureMembers + ROUND_TRIP_POOL, MemberType.FACULTY);
+        for (int i = 0; i < fixtureMembers * LOANS_PER_MEMBER; i++) {
+            service.borrowBook(LibraryFixture.memberId(i / LOANS_PER_MEMBER), LibraryFixture.isbn(i % fixtureBooks));
+        }
+        // every loan is due two weeks out, so three weeks from now all of them are overdue
+        allLoansOverdue = LocalDate.now().plusWeeks(3);
+    }
+
+    @Benchmark
+    public SimpleTransaction borrowReturnRoundTrip() {
+        int slot = next++ & (ROUND_TRIP_POOL - 1);
+        String memberId = LibraryFixture.memberId(fixtureMembers + slot);
+        String isbn = LibraryFixture.isbn(fixtureBooks + slot);
+        service.borrowBook(memberId, isbn);
+        return service.returnBook(memberId, isbn);
+    }
+
+    @Benchmark
+    public List<SimpleTransaction> overdueScanNone() {
+        return service.overdueAsOf(LocalDate.now());
+    }
+
+    @Benchmark
+    public List<SimpleTransaction> overdueScanAll() {
+        return service.overdueAsOf(allLoansOverdue);
+    }
+
+}
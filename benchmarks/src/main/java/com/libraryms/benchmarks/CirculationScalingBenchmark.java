@@ -0,0 +1,99 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.service.LibraryService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Borrow/return throughput on one shared library as threads are added. Each
+ * thread works on members and books of its own, so any loss of scaling comes
+ * from locks and shared structures inside the service rather than from
+ * threads competing for the same copy. Compare the per-thread-count results
+ * on a machine with at least as many cores as threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CirculationScalingBenchmark {
+
+    private static final int MAX_THREADS = 64;
+    private static final int POOL_PER_THREAD = 256;
+
+    @State(Scope.Benchmark)
+    public static class Library {
+
+        @Param({ "100000" })
+        public int books;
+
+        LibraryService service;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = new LibraryService();
+            LibraryFixture.addBooks(service, books + MAX_THREADS * POOL_PER_THREAD, 1);
+            LibraryFixture.addMembers(service, MAX_THREADS * POOL_PER_THREAD, MemberType.FACULTY);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        int first;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Library library) {
+            first = library.threads.getAndIncrement() * POOL_PER_THREAD;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SimpleTransaction oneThread(Library library, Worker worker) {
+        return roundTrip(library, worker);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public SimpleTransaction twoThreads(Library library, Worker worker) {
+        return roundTrip(library, worker);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SimpleTransaction fourThreads(Library library, Worker worker) {
+        return roundTrip(library, worker);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SimpleTransaction eightThreads(Library library, Worker worker) {
+        return roundTrip(library, worker);
+    }
+
+    private static SimpleTransaction roundTrip(Library library, Worker worker) {
+        int slot = worker.first + (worker.next++ & (POOL_PER_THREAD - 1));
+        String memberId = LibraryFixture.memberId(slot);
+        String isbn = LibraryFixture.isbn(library.books + slot);
+        library.service.borrowBook(memberId, isbn);
+        return library.service.returnBook(memberId, isbn);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.ids.IdFormat;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load against a running {@code --http} server. Each connection is
+ * one keep-alive socket on a virtual thread that sends its next request as
+ * soon as the last response has been read: 60% book lookups, 20% member
+ * lookups and 20% borrows and returns, on random ISBNs and member IDs. Prints
+ * throughput, p50 and p99 latency, and the connection and 5xx error counts.
+ *
+ * <p>{@code fixtures <dir> <books> <members>} writes {@code books.csv} and
+ * {@code members.csv} for {@code --import-books}/{@code --import-members}
+ * with the keys the load run expects; import them into an empty data
+ * directory so members get the IDs {@code MEM000001} onwards.
+ */
+public final class HttpLoadClient {
+
+    private static final int BOOK_LOOKUP_PERCENT = 60;
+    private static final int MEMBER_LOOKUP_PERCENT = 20;
+
+    private final String host;
+    private final int port;
+    private final int books;
+    private final int members;
+
+    private HttpLoadClient(String host, int port, int books, int members) {
+        this.host = host;
+        this.port = port;
+        this.books = books;
+        this.members = members;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("fixtures")) {
+            writeFixtures(Path.of(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if (args.length != 5) {
+            System.err.println("Usage: HttpLoadClient <host:port> <connections> <requests-per-connection> <books> <members>");
+            System.err.println("       HttpLoadClient fixtures <dir> <books> <members>");
+            System.exit(2);
+        }
+        int colon = args[0].lastIndexOf(':');
+        HttpLoadClient client = new HttpLoadClient(args[0].substring(0, colon),
+                Integer.parseInt(args[0].substring(colon + 1)), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        client.run(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+    }
+
+    static String isbn(int index) {
+        return String.format(Locale.ROOT, "978-%09d", index);
+    }
+
+    private void run(int connections, int requestsPerConnection) throws InterruptedException {
+        long[] latencies = new long[connections * requestsPerConnection];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger connectionErrors = new AtomicInteger();
+        AtomicInteger serverErrors = new AtomicInteger();
+        CountDownLatch connected = new CountDownLatch(connections);
+        long started;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                executor.submit(() -> {
+                    boolean counted = false;
+                    try (Socket socket = new Socket(host, port)) {
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                        connected.countDown();
+                        counted = true;
+                        connected.await();
+                        for (int i = 0; i < requestsPerConnection; i++) {
+                            byte[] request = nextRequest().getBytes(StandardCharsets.US_ASCII);
+                            long start = System.nanoTime();
+                            out.write(request);
+                            out.flush();
+                            if (readResponse(in) >= 500) {
+                                serverErrors.incrementAndGet();
+                            }
+                            latencies[completed.getAndIncrement()] = System.nanoTime() - start;
+                        }
+                    } catch (IOException e) {
+                        if (connectionErrors.incrementAndGet() == 1) {
+                            e.printStackTrace();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (!counted) {
+                            connected.countDown();
+                        }
+                    }
+                });
+            }
+            connected.await();
+            started = System.nanoTime();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        int count = completed.get();
+        if (count == 0) {
+            System.out.printf("connections=%d requests=0 connErrors=%d%n", connections, connectionErrors.get());
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "connections=%d requests=%d connErrors=%d 5xx=%d %.0f req/s p50=%.2fms p99=%.2fms%n",
+                connections, count, connectionErrors.get(), serverErrors.get(), count / seconds,
+                sorted[count / 2] / 1e6, sorted[(int) (count * 0.99)] / 1e6);
+    }
+
+    private String nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int kind = random.nextInt(100);
+        String isbn = isbn(random.nextInt(books));
+        String memberId = IdFormat.MEMBER.format(1 + random.nextInt(members));
+        String line;
+        if (kind < BOOK_LOOKUP_PERCENT) {
+            line = "GET /api/books/" + isbn;
+        } else if (kind < BOOK_LOOKUP_PERCENT + MEMBER_LOOKUP_PERCENT) {
+            line = "GET /api/members/" + memberId;
+        } else {
+            String action = random.nextBoolean() ? "borrow" : "return";
+            line = "POST /api/" + action + "?memberId=" + memberId + "&isbn=" + isbn;
+        }
+        return line + " HTTP/1.1\r\nHost: " + host + "\r\nContent-Length: 0\r\n\r\n";
+    }
+
+    /** Reads one response, discarding its body, and returns the status code. */
+    private static int readResponse(DataInputStream in) throws IOException {
+        String status = readLine(in);
+        int length = 0;
+        String header;
+        while (!(header = readLine(in)).isEmpty()) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        in.skipNBytes(length);
+        int space = status.indexOf(' ');
+        if (space < 0 || status.length() < space + 4) {
+            throw new IOException("Malformed status line: " + status);
+        }
+        return Integer.parseInt(status.substring(space + 1, space + 4));
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new IOException("Connection closed by server");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void writeFixtures(Path directory, int books, int members) throws IOException {
+        Files.createDirectories(directory);
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("books.csv"))) {
+            out.write("isbn,title,author,copies\n");
+            for (int i = 0; i < books; i++) {
+                out.write(isbn(i) + ",Load Test Book " + i + ",Author " + (i % 1000) + ",3\n");
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("members.csv"))) {
+            out.write("firstName,lastName,email,memberType\n");
+            for (int i = 0; i < members; i++) {
+                out.write("Reader" + i + ",Load,reader" + i + "@library.test,Faculty\n");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.ids.IdFormat;
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.service.LibraryService;
+
+/**
+ * Builds in-memory libraries of a given size with predictable keys, so the
+ * benchmarks can pick existing ISBNs and member IDs without lookups of their
+ * own. Titles and names cycle through a small vocabulary so that search
+ * queries hit a realistic share of the catalog.
+ */
+final class LibraryFixture {
+
+    private static final String[] TITLE_WORDS = {
+        "Effective", "Clean", "Modern", "Practical", "Concurrent", "Functional",
+        "Java", "Systems", "Design", "Patterns", "Algorithms", "Networks"
+    };
+    private static final String[] SURNAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis"
+    };
+    private static final BookCategory[] CATEGORIES = BookCategory.values();
+
+    private LibraryFixture() {
+    }
+
+    static String isbn(int index) {
+        return "978-" + index;
+    }
+
+    static String memberId(int index) {
+        return IdFormat.MEMBER.format(index + 1);
+    }
+
+    static void addBooks(LibraryService service, int count, int copies) {
+        for (int i = 0; i < count; i++) {
+            String title = TITLE_WORDS[i % TITLE_WORDS.length] + " " + TITLE_WORDS[(i / 7) % TITLE_WORDS.length] + " " + i;
+            SimpleBook book = new SimpleBook(isbn(i), title, SURNAMES[i % SURNAMES.length] + " " + (i % 1000),
+                    CATEGORIES[i % CATEGORIES.length]);
+            book.setTotalCopies(copies);
+            book.setAvailableCopies(copies);
+            service.addBook(book);
+        }
+    }
+
+    /** Registers members whose IDs are {@code memberId(0)} to {@code memberId(count - 1)}. */
+    static void addMembers(LibraryService service, int count, MemberType type) {
+        for (int i = 0; i < count; i++) {
+            service.registerMember("Reader" + i, SURNAMES[i % SURNAMES.length],
+                    "reader" + i + "@library.test", type, null);
+        }
+    }
+
+}
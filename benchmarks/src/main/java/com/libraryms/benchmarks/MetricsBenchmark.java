@@ -0,0 +1,36 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.metrics.Operation;
+import com.libraryms.metrics.OperationMetrics;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost the service adds to each operation for latency recording: reading the
+ * clock twice and bumping a histogram bucket. Run with {@code -t 8} or more to
+ * see the striped counters under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final OperationMetrics metrics = new OperationMetrics();
+
+    @Benchmark
+    public void recordOperation() {
+        metrics.recordSuccess(Operation.BORROW, System.nanoTime());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.libraryms.benchmarks;
+
+import com.libraryms.model.MemberType;
+import com.libraryms.service.LibraryService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to open a data directory that has seen {@code events} borrows and
+ * returns. With {@code snapshotInterval} 0 no snapshot is ever written and the
+ * whole journal is replayed; otherwise startup maps the newest catalog, reads
+ * the history columns from the snapshot and replays fewer than
+ * {@code snapshotInterval} records after it. Building the 10M directory
+ * without snapshots takes several minutes and a few GB of disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecoveryBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int MEMBERS = 10_000;
+
+    @Param({ "1000000", "10000000" })
+    public int events;
+
+    @Param({ "0", "100000" })
+    public int snapshotInterval;
+
+    private Path dataDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("recovery-benchmark");
+        try (LibraryService service = new LibraryService(dataDirectory, snapshotInterval)) {
+            LibraryFixture.addBooks(service, BOOKS, 1);
+            LibraryFixture.addMembers(service, MEMBERS, MemberType.FACULTY);
+            // one flush per thousand records, as an import would; replay sees the same journal
+            for (int start = 0; start < events; start += 1_000) {
+                int end = Math.min(events, start + 1_000);
+                int first = start;
+                service.runBatch(() -> {
+                    for (int i = first; i < end; i++) {
+                        String memberId = LibraryFixture.memberId((i / 2) % MEMBERS);
+                        String isbn = LibraryFixture.isbn((i / 2) % BOOKS);
+                        if ((i & 1) == 0) {
+                            service.borrowBook(memberId, isbn);
+                        } else {
+                            service.returnBook(memberId, isbn);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        try (LibraryService service = new LibraryService(dataDirectory, snapshotInterval)) {
+            return service.getAllBooks().size();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+}
@@ -1,58 +1,334 @@
 package com.libraryms;
 
+import com.libraryms.batch.BatchCommandRunner;
+import com.libraryms.cluster.PartitionMap;
+import com.libraryms.cluster.PartitionNode;
+import com.libraryms.cluster.PartitionRouter;
+import com.libraryms.console.TableRenderer;
+import com.libraryms.http.LibraryHttpServer;
+import com.libraryms.importer.BulkImporter;
+import com.libraryms.importer.ImportReport;
+import com.libraryms.metrics.LibraryMetrics;
 import com.libraryms.model.*;
+import com.libraryms.service.HoldExpirySweeper;
+import com.libraryms.service.LibraryEventListener.BookField;
+import com.libraryms.service.LibraryEventListener.MemberField;
+import com.libraryms.service.LibraryService;
+import com.libraryms.store.HistoryPage;
+import com.libraryms.store.TransactionHistory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
-import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.JMException;
 
 public class LibraryManagementApplication {
 
+    private static final int HISTORY_PAGE_SIZE = 20;
+    private static final String DEFAULT_DATA_DIRECTORY = "data";
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 20;
+    private static final int[] BOOK_COLUMN_WIDTHS = { 14, 24, 18, 15, 12 };
+    private static final int[] MEMBER_COLUMN_WIDTHS = { 10, 23, 23, 12, 8 };
+    private static final int[] TRANSACTION_COLUMN_WIDTHS = { 11, 10, 14, 8, 11, 11, 11 };
+
     private final Scanner scanner;
-    private final List<SimpleBook> books;
-    private final List<SimpleMember> members;
-    private final List<SimpleTransaction> transactions;
-    private int nextMemberId = 1;
-    private int nextTransactionId = 1;
+    private final LibraryService service;
 
     public LibraryManagementApplication() {
+        this(new LibraryService());
+    }
+
+    public LibraryManagementApplication(LibraryService service) {
         this.scanner = new Scanner(System.in);
-        this.books = new ArrayList<>();
-        this.members = new ArrayList<>();
-        this.transactions = new ArrayList<>();
-        initializeWithSampleData();
+        this.service = service;
+        if (service.isEmpty()) {
+            initializeWithSampleData();
+        }
     }
 
     private void initializeWithSampleData() {
         SimpleBook book1 = new SimpleBook("978-0134685991", "Effective Java", "Joshua Bloch", BookCategory.COMPUTER_PROGRAMMING);
         book1.setPublisher("Addison-Wesley");
         book1.setYearPublished(2017);
-        books.add(book1);
+        service.addBook(book1);
 
         SimpleBook book2 = new SimpleBook("978-0321356680", "Clean Code", "Robert Martin", BookCategory.COMPUTER_PROGRAMMING);
         book2.setPublisher("Prentice Hall");
         book2.setYearPublished(2008);
-        books.add(book2);
+        service.addBook(book2);
 
-        SimpleMember member1 = new SimpleMember("MEM" + String.format("%06d", nextMemberId++), 
-                                               "John", "Doe", "john.doe@email.com", MemberType.STUDENT);
-        member1.setPhoneNumber("+1-555-0101");
-        members.add(member1);
-
-        SimpleMember member2 = new SimpleMember("MEM" + String.format("%06d", nextMemberId++), 
-                                               "Jane", "Smith", "jane.smith@email.com", MemberType.FACULTY);
-        member2.setPhoneNumber("+1-555-0102");
-        members.add(member2);
+        service.registerMember("John", "Doe", "john.doe@email.com", MemberType.STUDENT, "+1-555-0101");
+        service.registerMember("Jane", "Smith", "jane.smith@email.com", MemberType.FACULTY, "+1-555-0102");
     }
 
     public static void main(String[] args) {
+        Path dataDirectory = Paths.get(DEFAULT_DATA_DIRECTORY);
+        Path bookImport = null;
+        Path memberImport = null;
+        String batchInput = null;
+        Integer httpPort = null;
+        Integer nodePort = null;
+        String partitionSpec = null;
+        String clusterNodes = null;
+        int clients = 1;
+        LocalDate fineAccrualDate = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("--data-dir".equals(args[i])) {
+                dataDirectory = Paths.get(args[i + 1]);
+            } else if ("--import-books".equals(args[i])) {
+                bookImport = Paths.get(args[i + 1]);
+            } else if ("--import-members".equals(args[i])) {
+                memberImport = Paths.get(args[i + 1]);
+            } else if ("--batch".equals(args[i])) {
+                batchInput = args[i + 1];
+            } else if ("--http".equals(args[i])) {
+                httpPort = Integer.valueOf(args[i + 1]);
+            } else if ("--node".equals(args[i])) {
+                nodePort = Integer.valueOf(args[i + 1]);
+            } else if ("--partition".equals(args[i])) {
+                partitionSpec = args[i + 1];
+            } else if ("--cluster".equals(args[i])) {
+                clusterNodes = args[i + 1];
+            } else if ("--clients".equals(args[i])) {
+                clients = Math.max(1, Integer.parseInt(args[i + 1]));
+            } else if ("--accrue-fines".equals(args[i])) {
+                fineAccrualDate = "today".equals(args[i + 1]) ? LocalDate.now() : LocalDate.parse(args[i + 1]);
+            }
+        }
+        
+        int partition = 0;
+        PartitionMap partitions = PartitionMap.SINGLE;
+        if (partitionSpec != null) {
+            // <index>/<count>, e.g. 0/4 for the first of four partitions
+            int slash = partitionSpec.indexOf('/');
+            partition = Integer.parseInt(partitionSpec.substring(0, slash));
+            partitions = new PartitionMap(Integer.parseInt(partitionSpec.substring(slash + 1)));
+        }
+        if (fineAccrualDate != null && partitions.size() > 1) {
+            // one partition cannot charge members registered on the others
+            System.err.println("Accrue fines on a partitioned library with ACCRUE_FINES through --cluster");
+            System.exit(1);
+        }
+
+        if (clusterNodes != null && batchInput != null) {
+            try (PartitionRouter router = new PartitionRouter(parseAddresses(clusterNodes))) {
+                runClusterBatch(router, batchInput, clients);
+            } catch (IOException e) {
+                System.err.println("Batch failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (batchInput != null) {
+            // stdout carries only command results in batch mode
+            try (LibraryService service = openService(dataDirectory, partitions, partition)) {
+                publishMetrics(service);
+                runBatch(service, batchInput);
+            } catch (IOException e) {
+                System.err.println("Batch failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        
         System.out.println("Starting Digital Library Management System...");
         
-        LibraryManagementApplication app = new LibraryManagementApplication();
-        app.run();
+        try (LibraryService service = openService(dataDirectory, partitions, partition)) {
+            publishMetrics(service);
+            if (bookImport != null || memberImport != null) {
+                BulkImporter importer = new BulkImporter(service);
+                if (bookImport != null) {
+                    printImportReport(importer.importBooks(bookImport));
+                }
+                if (memberImport != null) {
+                    printImportReport(importer.importMembers(memberImport));
+                }
+            } else if (fineAccrualDate != null) {
+                System.out.println(service.accrueFines(fineAccrualDate));
+            } else {
+                try (HoldExpirySweeper sweeper = new HoldExpirySweeper(service)) {
+                    sweeper.start();
+                    if (nodePort != null) {
+                        servePartition(service, nodePort);
+                    } else if (httpPort != null) {
+                        serveHttp(service, httpPort);
+                    } else {
+                        LibraryManagementApplication app = new LibraryManagementApplication(service);
+                        app.run();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not open library data in " + dataDirectory + ": " + e.getMessage());
+        }
         
         System.out.println("Digital Library Management System shutting down.");
     }
 
+    private static LibraryService openService(Path dataDirectory, PartitionMap partitions, int partition)
+            throws IOException {
+        return new LibraryService(dataDirectory, LibraryService.DEFAULT_SNAPSHOT_INTERVAL, partitions, partition);
+    }
+
+    /** Comma-separated {@code host:port} or bare loopback ports, partition 0 first. */
+    private static List<InetSocketAddress> parseAddresses(String nodes) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            int colon = node.lastIndexOf(':');
+            addresses.add(colon < 0
+                    ? new InetSocketAddress("127.0.0.1", Integer.parseInt(node.trim()))
+                    : new InetSocketAddress(node.substring(0, colon).trim(), Integer.parseInt(node.substring(colon + 1).trim())));
+        }
+        return addresses;
+    }
+
+    private static void publishMetrics(LibraryService service) {
+        try {
+            LibraryMetrics.register(service.getMetrics());
+        } catch (JMException e) {
+            System.err.println("Operation metrics are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    private static void serveHttp(LibraryService service, int port) throws IOException {
+        LibraryHttpServer server = new LibraryHttpServer(service, port);
+        CountDownLatch stopped = new CountDownLatch(1);
+        // the JVM exits once hooks finish, so drain requests and close the journal here
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                service.close();
+            } catch (IOException e) {
+                System.err.println("Could not close library data: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Serving the library API on http://localhost:" + server.getPort() + "/api/");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void servePartition(LibraryService service, int port) throws IOException {
+        PartitionNode node = new PartitionNode(service, port);
+        CountDownLatch stopped = new CountDownLatch(1);
+        // as for HTTP: stop taking commands, then close the journal, before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            node.close();
+            try {
+                service.close();
+            } catch (IOException e) {
+                System.err.println("Could not close library data: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        node.start();
+        System.out.println("Serving partition " + service.getPartition() + " of " + service.getPartitionMap().size()
+                + " on 127.0.0.1:" + node.getPort());
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Batch mode through a router. With more than one client, up to that many
+     * commands of a chunk run at once, so commands that depend on each other
+     * belong in different chunks; results are still printed in input order.
+     */
+    private static void runClusterBatch(PartitionRouter router, String input, int clients) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        long commands = 0;
+        long errors = 0;
+        long started = System.nanoTime();
+        try (BufferedReader in = "-".equals(input)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+             ExecutorService pool = Executors.newFixedThreadPool(clients, Thread.ofVirtual().factory())) {
+            List<Long> lineNumbers = new ArrayList<>(BatchCommandRunner.DEFAULT_CHUNK_SIZE);
+            List<Future<String>> results = new ArrayList<>(BatchCommandRunner.DEFAULT_CHUNK_SIZE);
+            long lineNumber = 0;
+            String line;
+            do {
+                lineNumbers.clear();
+                results.clear();
+                while (results.size() < BatchCommandRunner.DEFAULT_CHUNK_SIZE && (line = in.readLine()) != null) {
+                    lineNumber++;
+                    String command = line.trim();
+                    if (!command.isEmpty() && command.charAt(0) != '#') {
+                        lineNumbers.add(lineNumber);
+                        results.add(pool.submit(() -> router.execute(command)));
+                    }
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    String result = results.get(i).get();
+                    commands++;
+                    if (result.startsWith("ERR")) {
+                        errors++;
+                    }
+                    out.append(String.valueOf(lineNumbers.get(i))).append('\t').append(result).append('\n');
+                }
+                out.flush();
+            } while (results.size() == BatchCommandRunner.DEFAULT_CHUNK_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Command failed: " + e.getCause(), e.getCause());
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        System.err.println("Batch: " + commands + " commands, " + errors + " errors, " + elapsedMillis
+                + " ms (" + commands * 1000 / elapsedMillis + " ops/s)");
+    }
+
+    private static void runBatch(LibraryService service, String input) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        BatchCommandRunner runner = new BatchCommandRunner(service);
+        long started = System.nanoTime();
+        try (BufferedReader in = "-".equals(input)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8)) {
+            runner.run(in, out);
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        System.err.println("Batch: " + runner.getCommandCount() + " commands, " + runner.getErrorCount()
+                + " errors, " + elapsedMillis + " ms (" + runner.getCommandCount() * 1000 / elapsedMillis + " ops/s)");
+    }
+
+    private static void printImportReport(ImportReport report) {
+        System.out.println(report);
+        int shown = 0;
+        for (ImportReport.RowError error : report.getErrors()) {
+            if (shown++ == MAX_REPORTED_IMPORT_ERRORS) {
+                System.out.println("  ... " + (report.getRowsRejected() - MAX_REPORTED_IMPORT_ERRORS) + " more");
+                break;
+            }
+            System.out.println("  line " + error.getLineNumber() + ": " + error.getMessage());
+        }
+    }
+
     public void run() {
         printWelcomeBanner();
         
@@ -159,7 +435,7 @@ public class LibraryManagementApplication {
         try {
             String isbn = readStringInput("Enter ISBN: ");
             
-            if (findBookByIsbn(isbn) != null) {
+            if (service.containsBook(isbn)) {
                 System.out.println("A book with this ISBN already exists!");
                 return;
             }
@@ -192,7 +468,17 @@ public class LibraryManagementApplication {
                 book.setYearPublished(year);
             }
             
-            books.add(book);
+            Integer copies = readOptionalIntegerInput("Enter Number of Copies (default 1): ");
+            if (copies != null) {
+                if (copies < 1) {
+                    System.out.println("Number of copies must be at least 1");
+                    return;
+                }
+                book.setTotalCopies(copies);
+                book.setAvailableCopies(copies);
+            }
+            
+            service.addBook(book);
             System.out.println("✓ Book added successfully!");
             System.out.println("Book Details: " + book);
             
@@ -205,16 +491,7 @@ public class LibraryManagementApplication {
         System.out.println("=== Search Books ===");
         String query = readStringInput("Enter search term (title, author, or ISBN): ");
         
-        List<SimpleBook> results = new ArrayList<>();
-        String searchTerm = query.toLowerCase();
-        
-        for (SimpleBook book : books) {
-            if (book.getTitle().toLowerCase().contains(searchTerm) ||
-                book.getAuthor().toLowerCase().contains(searchTerm) ||
-                book.getIsbn().toLowerCase().contains(searchTerm)) {
-                results.add(book);
-            }
-        }
+        List<SimpleBook> results = service.searchBooks(query);
         
         if (results.isEmpty()) {
             System.out.println("No books found matching your search.");
@@ -226,6 +503,7 @@ public class LibraryManagementApplication {
 
     private void viewAllBooks() {
         System.out.println("=== All Books ===");
+        Collection<SimpleBook> books = service.getAllBooks();
         if (books.isEmpty()) {
             System.out.println("No books in the library.");
         } else {
@@ -234,21 +512,19 @@ public class LibraryManagementApplication {
         }
     }
 
-    private void displayBooks(List<SimpleBook> bookList) {
-        System.out.println("┌────────────────┬──────────────────────────┬────────────────────┬─────────────────┬──────────────┐");
-        System.out.println("│ ISBN           │ Title                    │ Author             │ Category        │ Status       │");
-        System.out.println("├────────────────┼──────────────────────────┼────────────────────┼─────────────────┼──────────────┤");
-        
+    private void displayBooks(Collection<SimpleBook> bookList) {
+        TableRenderer table = new TableRenderer(System.out, BOOK_COLUMN_WIDTHS,
+                "ISBN", "Title", "Author", "Category", "Status");
+        table.begin();
         for (SimpleBook book : bookList) {
-            System.out.printf("│ %-14s │ %-24s │ %-18s │ %-15s │ %-12s │%n",
-                truncate(book.getIsbn(), 14),
-                truncate(book.getTitle(), 24),
-                truncate(book.getAuthor(), 18),
-                truncate(book.getCategory().getDisplayName(), 15),
-                book.getStatus().getDisplayName()
-            );
+            table.cell(book.getIsbn())
+                 .cell(book.getTitle())
+                 .cell(book.getAuthor())
+                 .cell(book.getCategory().getDisplayName())
+                 .cell(book.getStatus().getDisplayName())
+                 .endRow();
         }
-        System.out.println("└────────────────┴──────────────────────────┴────────────────────┴─────────────────┴──────────────┘");
+        table.end();
     }
 
     private void updateBookInfo() {
@@ -274,17 +550,17 @@ public class LibraryManagementApplication {
         switch (choice) {
             case 1:
                 String newTitle = readStringInput("Enter new title: ");
-                book.setTitle(newTitle);
+                service.updateBook(isbn, BookField.TITLE, newTitle);
                 System.out.println("✓ Title updated successfully!");
                 break;
             case 2:
                 String newAuthor = readStringInput("Enter new author: ");
-                book.setAuthor(newAuthor);
+                service.updateBook(isbn, BookField.AUTHOR, newAuthor);
                 System.out.println("✓ Author updated successfully!");
                 break;
             case 3:
                 String newPublisher = readStringInput("Enter new publisher: ");
-                book.setPublisher(newPublisher);
+                service.updateBook(isbn, BookField.PUBLISHER, newPublisher);
                 System.out.println("✓ Publisher updated successfully!");
                 break;
             case 0:
@@ -309,7 +585,7 @@ public class LibraryManagementApplication {
         
         String confirmation = readStringInput("Are you sure you want to delete this book? (yes/no): ");
         if ("yes".equalsIgnoreCase(confirmation)) {
-            books.remove(book);
+            service.deleteBook(isbn);
             System.out.println("✓ Book deleted successfully!");
         } else {
             System.out.println("Deletion cancelled.");
@@ -317,12 +593,7 @@ public class LibraryManagementApplication {
     }
 
     private SimpleBook findBookByIsbn(String isbn) {
-        for (SimpleBook book : books) {
-            if (book.getIsbn().equals(isbn)) {
-                return book;
-            }
-        }
-        return null;
+        return service.findBook(isbn);
     }
 
 
@@ -383,11 +654,9 @@ public class LibraryManagementApplication {
             String lastName = readStringInput("Enter Last Name: ");
             String email = readStringInput("Enter Email: ");
             
-            for (SimpleMember existingMember : members) {
-                if (existingMember.getEmail().equalsIgnoreCase(email)) {
-                    System.out.println("A member with this email already exists!");
-                    return;
-                }
+            if (service.containsEmail(email)) {
+                System.out.println("A member with this email already exists!");
+                return;
             }
             
             System.out.println("Available member types:");
@@ -405,15 +674,8 @@ public class LibraryManagementApplication {
             }
             MemberType memberType = types[typeChoice - 1];
             
-            String memberId = "MEM" + String.format("%06d", nextMemberId++);
-            SimpleMember member = new SimpleMember(memberId, firstName, lastName, email, memberType);
-            
             String phone = readStringInput("Enter Phone Number (optional): ");
-            if (!phone.trim().isEmpty()) {
-                member.setPhoneNumber(phone);
-            }
-            
-            members.add(member);
+            SimpleMember member = service.registerMember(firstName, lastName, email, memberType, phone);
             System.out.println("✓ Member registered successfully!");
             System.out.println("Member Details: " + member);
             
@@ -426,17 +688,7 @@ public class LibraryManagementApplication {
         System.out.println("\\n=== Search Members ===");
         String query = readStringInput("Enter search term (name, member ID, or email): ");
         
-        List<SimpleMember> results = new ArrayList<>();
-        String searchTerm = query.toLowerCase();
-        
-        for (SimpleMember member : members) {
-            if (member.getFirstName().toLowerCase().contains(searchTerm) ||
-                member.getLastName().toLowerCase().contains(searchTerm) ||
-                member.getMemberId().toLowerCase().contains(searchTerm) ||
-                (member.getEmail() != null && member.getEmail().toLowerCase().contains(searchTerm))) {
-                results.add(member);
-            }
-        }
+        List<SimpleMember> results = service.searchMembers(query);
         
         if (results.isEmpty()) {
             System.out.println("No members found matching your search.");
@@ -448,6 +700,7 @@ public class LibraryManagementApplication {
 
     private void viewAllMembers() {
         System.out.println("\\n=== All Members ===");
+        Collection<SimpleMember> members = service.getAllMembers();
         if (members.isEmpty()) {
             System.out.println("No members registered.");
         } else {
@@ -456,21 +709,19 @@ public class LibraryManagementApplication {
         }
     }
 
-    private void displayMembers(List<SimpleMember> memberList) {
-        System.out.println("┌────────────┬─────────────────────────┬─────────────────────────┬──────────────┬──────────┐");
-        System.out.println("│ Member ID  │ Name                    │ Email                   │ Type         │ Status   │");
-        System.out.println("├────────────┼─────────────────────────┼─────────────────────────┼──────────────┼──────────┤");
-        
+    private void displayMembers(Collection<SimpleMember> memberList) {
+        TableRenderer table = new TableRenderer(System.out, MEMBER_COLUMN_WIDTHS,
+                "Member ID", "Name", "Email", "Type", "Status");
+        table.begin();
         for (SimpleMember member : memberList) {
-            System.out.printf("│ %-10s │ %-23s │ %-23s │ %-12s │ %-8s │%n",
-                member.getMemberId(),
-                truncate(member.getFullName(), 23),
-                truncate(member.getEmail() != null ? member.getEmail() : "", 23),
-                truncate(member.getMemberType().getDisplayName(), 12),
-                member.getStatus().getDisplayName()
-            );
+            table.cell(member.getMemberId())
+                 .cell(member.getFullName())
+                 .cell(member.getEmail())
+                 .cell(member.getMemberType().getDisplayName())
+                 .cell(member.getStatus().getDisplayName())
+                 .endRow();
         }
-        System.out.println("└────────────┴─────────────────────────┴─────────────────────────┴──────────────┴──────────┘");
+        table.end();
     }
 
     private void updateMemberInfo() {
@@ -495,12 +746,12 @@ public class LibraryManagementApplication {
         switch (choice) {
             case 1:
                 String newPhone = readStringInput("Enter new phone number: ");
-                member.setPhoneNumber(newPhone);
+                service.updateMember(memberId, MemberField.PHONE_NUMBER, newPhone);
                 System.out.println("✓ Phone number updated successfully!");
                 break;
             case 2:
                 String newAddress = readStringInput("Enter new address: ");
-                member.setAddress(newAddress);
+                service.updateMember(memberId, MemberField.ADDRESS, newAddress);
                 System.out.println("✓ Address updated successfully!");
                 break;
             case 0:
@@ -533,15 +784,18 @@ public class LibraryManagementApplication {
         System.out.println("Current Borrowed Books: " + member.getCurrentBorrowedBooks() + "/" + member.getMemberType().getMaxBooksAllowed());
         System.out.println("Total Fines Owed: $" + String.format("%.2f", member.getTotalFinesOwed()));
         System.out.println("Can Borrow Books: " + (member.canBorrowBooks() ? "Yes" : "No"));
-    }
 
-    private SimpleMember findMemberById(String memberId) {
-        for (SimpleMember member : members) {
-            if (member.getMemberId().equals(memberId)) {
-                return member;
+        List<SimpleTransaction> memberLoans = service.openLoansFor(member.getMemberId());
+        if (!memberLoans.isEmpty()) {
+            System.out.println("Open Loans:");
+            for (SimpleTransaction loan : memberLoans) {
+                System.out.println("  " + loan.getBookIsbn() + " (due " + loan.getDueDate() + ")");
             }
         }
-        return null;
+    }
+
+    private SimpleMember findMemberById(String memberId) {
+        return service.findMember(memberId);
     }
 
 
@@ -623,17 +877,12 @@ public class LibraryManagementApplication {
         }
         
 
-        String transactionId = "TXN" + String.format("%06d", nextTransactionId++);
-        SimpleTransaction transaction = new SimpleTransaction(transactionId, memberId, isbn, TransactionType.BORROW);
-        
-        book.borrowCopy();
-        member.borrowBook();
-        
-        transactions.add(transaction);
+        SimpleTransaction transaction = service.borrowBook(memberId, isbn);
         
         System.out.println("✓ Book borrowed successfully!");
-        System.out.println("Transaction ID: " + transactionId);
+        System.out.println("Transaction ID: " + transaction.getTransactionId());
         System.out.println("Due Date: " + transaction.getDueDate());
+        System.out.println("Copy: " + transaction.getCopyBarcode());
         System.out.println("Member: " + member.getFullName() + " (" + member.getCurrentBorrowedBooks() + "/" + member.getMemberType().getMaxBooksAllowed() + " books)");
     }
 
@@ -654,33 +903,16 @@ public class LibraryManagementApplication {
             return;
         }
         
-        // Find active borrowing transaction
-        SimpleTransaction borrowTransaction = null;
-        for (SimpleTransaction transaction : transactions) {
-            if (transaction.getMemberId().equals(memberId) &&
-                transaction.getBookIsbn().equals(isbn) &&
-                transaction.getType() == TransactionType.BORROW &&
-                transaction.getStatus() == TransactionStatus.ACTIVE) {
-                borrowTransaction = transaction;
-                break;
-            }
-        }
-        
-        if (borrowTransaction == null) {
+        if (service.findOpenLoan(memberId, isbn) == null) {
             System.out.println("No active borrowing transaction found for this member and book.");
             return;
         }
         
-
-        
-        borrowTransaction.completeReturn();
-        book.returnCopy();
-        member.returnBook();
+        SimpleTransaction borrowTransaction = service.returnBook(memberId, isbn);
         
         System.out.println("✓ Book returned successfully!");
         
         if (borrowTransaction.getFineAmount() > 0) {
-            member.addFine(borrowTransaction.getFineAmount());
             System.out.println("⚠ Late return fine applied: $" + String.format("%.2f", borrowTransaction.getFineAmount()));
             System.out.println("Days overdue: " + borrowTransaction.getDaysOverdue());
             System.out.println("Total member fines: $" + String.format("%.2f", member.getTotalFinesOwed()));
@@ -692,38 +924,45 @@ public class LibraryManagementApplication {
     private void viewTransactionHistory() {
         System.out.println("\\n=== Transaction History ===");
         
-        if (transactions.isEmpty()) {
+        if (!service.hasTransactions()) {
             System.out.println("No transactions found.");
             return;
         }
         
         String memberId = readStringInput("Enter Member ID (or press Enter for all): ");
+        boolean allMembers = memberId.trim().isEmpty();
         
-        List<SimpleTransaction> filteredTransactions = new ArrayList<>();
-        for (SimpleTransaction transaction : transactions) {
-            if (memberId.trim().isEmpty() || transaction.getMemberId().equals(memberId)) {
-                filteredTransactions.add(transaction);
+        int cursor = TransactionHistory.FIRST_PAGE;
+        while (true) {
+            HistoryPage<TransactionView> page = allMembers ?
+                    service.transactionHistory(cursor, HISTORY_PAGE_SIZE) :
+                    service.transactionHistory(memberId, cursor, HISTORY_PAGE_SIZE);
+            
+            if (page.getTotalCount() == 0) {
+                System.out.println("No transactions found for the specified criteria.");
+                return;
             }
+            
+            if (cursor == TransactionHistory.FIRST_PAGE) {
+                System.out.println("Found " + page.getTotalCount() + " transaction(s), newest first:");
+            }
+            displayTransactions(page.getItems());
+            
+            if (!page.hasMore()) {
+                return;
+            }
+            String more = readStringInput("Show older transactions? (yes/no): ");
+            if (!"yes".equalsIgnoreCase(more)) {
+                return;
+            }
+            cursor = page.getNextCursor();
         }
-        
-        if (filteredTransactions.isEmpty()) {
-            System.out.println("No transactions found for the specified criteria.");
-            return;
-        }
-        
-        System.out.println("Found " + filteredTransactions.size() + " transaction(s):");
-        displayTransactions(filteredTransactions);
     }
 
     private void viewOverdueBooks() {
         System.out.println("\\n=== Overdue Books ===");
         
-        List<SimpleTransaction> overdueTransactions = new ArrayList<>();
-        for (SimpleTransaction transaction : transactions) {
-            if (transaction.isOverdue()) {
-                overdueTransactions.add(transaction);
-            }
-        }
+        List<SimpleTransaction> overdueTransactions = service.overdueAsOf(LocalDate.now());
         
         if (overdueTransactions.isEmpty()) {
             System.out.println("No overdue books found. ✓");
@@ -734,27 +973,21 @@ public class LibraryManagementApplication {
         displayTransactions(overdueTransactions);
     }
 
-    private void displayTransactions(List<SimpleTransaction> transactionList) {
-        System.out.println("┌─────────────┬────────────┬────────────────┬──────────┬─────────────┬─────────────┬─────────────┐");
-        System.out.println("│ Transaction │ Member ID  │ Book ISBN      │ Type     │ Date        │ Due/Return  │ Status      │");
-        System.out.println("├─────────────┼────────────┼────────────────┼──────────┼─────────────┼─────────────┼─────────────┤");
-        
-        for (SimpleTransaction transaction : transactionList) {
-            String dateInfo = transaction.getReturnDate() != null ? 
-                            transaction.getReturnDate().toString() : 
-                            (transaction.getDueDate() != null ? transaction.getDueDate().toString() : "N/A");
-            
-            System.out.printf("│ %-11s │ %-10s │ %-14s │ %-8s │ %-11s │ %-11s │ %-11s │%n",
-                truncate(transaction.getTransactionId(), 11),
-                transaction.getMemberId(),
-                truncate(transaction.getBookIsbn(), 14),
-                truncate(transaction.getType().getDisplayName(), 8),
-                transaction.getTransactionDate().toLocalDate().toString(),
-                dateInfo,
-                truncate(transaction.getStatus().getDisplayName(), 11)
-            );
+    private void displayTransactions(List<? extends TransactionView> transactionList) {
+        TableRenderer table = new TableRenderer(System.out, TRANSACTION_COLUMN_WIDTHS,
+                "Transaction", "Member ID", "Book ISBN", "Type", "Date", "Due/Return", "Status");
+        table.begin();
+        for (TransactionView transaction : transactionList) {
+            table.cell(transaction.getTransactionId())
+                 .cell(transaction.getMemberId())
+                 .cell(transaction.getBookIsbn())
+                 .cell(transaction.getType().getDisplayName())
+                 .cell(transaction.getTransactionDate().toLocalDate())
+                 .cell(transaction.getReturnDate() != null ? transaction.getReturnDate() : transaction.getDueDate())
+                 .cell(transaction.getStatus().getDisplayName())
+                 .endRow();
         }
-        System.out.println("└─────────────┴────────────┴────────────────┴──────────┴─────────────┴─────────────┴─────────────┘");
+        table.end();
     }
 
 
@@ -792,9 +1025,4 @@ public class LibraryManagementApplication {
         }
     }
 
-    private String truncate(String str, int length) {
-        if (str == null) return "";
-        return str.length() <= length ? str : str.substring(0, length - 3) + "...";
-    }
-
 }
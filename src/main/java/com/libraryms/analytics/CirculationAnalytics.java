@@ -0,0 +1,210 @@
+package com.libraryms.analytics;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.TransactionType;
+import com.libraryms.store.TransactionHistory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Circulation questions answered by scanning the transaction history in
+ * parallel on the common fork/join pool. A query reads the history's
+ * primitive columns and counts into arrays indexed by ISBN code or by enum
+ * ordinal, one set per fork/join leaf, so its memory does not grow with the
+ * number of rows.
+ *
+ * <p>Only loans are counted. The date range applies to the day a loan was
+ * made, includes both ends, and is open on a side given as null. Durations
+ * and late returns cover loans that have been returned, grouped by the
+ * member's type and the book's category as they are now; loans of members or
+ * books since deleted are left out of those.
+ */
+public class CirculationAnalytics {
+
+    private static final int NOT_FOUND = -1;
+
+    private final TransactionHistory history;
+    private final Function<String, MemberType> memberTypes;
+    private final Function<String, BookCategory> categories;
+
+    public CirculationAnalytics(TransactionHistory history, Function<String, MemberType> memberTypes,
+                                Function<String, BookCategory> categories) {
+        this.history = history;
+        this.memberTypes = memberTypes;
+        this.categories = categories;
+    }
+
+    /** The ISBNs lent most often, most loans first; ties in ISBN order. */
+    public List<IsbnLoanCount> topBorrowedIsbns(LocalDate from, LocalDate to, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        TransactionHistory.Columns columns = history.columns();
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        int[] loans = HistoryScanTask.scan(new HistoryScanTask.Aggregator<int[]>() {
+            @Override
+            public int[] newAccumulator() {
+                return new int[columns.isbnCount()];
+            }
+
+            @Override
+            public void accumulate(int[] loansByIsbn, int fromRow, int toRow) {
+                for (int row = fromRow; row < toRow; row++) {
+                    if (isLoanMadeBetween(columns, row, fromDay, toDay)) {
+                        loansByIsbn[columns.isbnCode(row)]++;
+                    }
+                }
+            }
+
+            @Override
+            public int[] merge(int[] left, int[] right) {
+                for (int code = 0; code < left.length; code++) {
+                    left[code] += right[code];
+                }
+                return left;
+            }
+        }, columns.size());
+
+        // the least borrowed of the top ISBNs so far sits at the head
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                Comparator.<Integer>comparingInt(code -> loans[code])
+                        .thenComparing(columns::isbn, Comparator.reverseOrder()));
+        for (int code = 0; code < loans.length; code++) {
+            if (loans[code] > 0) {
+                top.add(code);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        List<IsbnLoanCount> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int code = top.poll();
+            result.add(new IsbnLoanCount(columns.isbn(code), loans[code]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /** Returned loans by the borrower's membership type, totalling the days each loan was out. */
+    public Map<MemberType, LoanSummary> loanDaysByMemberType(LocalDate from, LocalDate to) {
+        TransactionHistory.Columns columns = history.columns();
+        int[] typeOfMember = groupsOf(columns.memberCount(), columns::memberId, memberTypes);
+        int types = MemberType.values().length;
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        long[] totals = HistoryScanTask.scan(new SummaryAggregator(types) {
+            @Override
+            public void accumulate(long[] summary, int fromRow, int toRow) {
+                for (int row = fromRow; row < toRow; row++) {
+                    int returnDay = columns.returnDay(row);
+                    if (returnDay == TransactionHistory.NO_DAY || !isLoanMadeBetween(columns, row, fromDay, toDay)) {
+                        continue;
+                    }
+                    int type = typeOfMember[columns.memberCode(row)];
+                    if (type != NOT_FOUND) {
+                        summary[type]++;
+                        summary[types + type] += returnDay - columns.createdDay(row);
+                    }
+                }
+            }
+        }, columns.size());
+        return summaries(MemberType.class, totals);
+    }
+
+    /** Returned loans by the book's category, totalling those returned after their due date. */
+    public Map<BookCategory, LoanSummary> lateReturnsByCategory(LocalDate from, LocalDate to) {
+        TransactionHistory.Columns columns = history.columns();
+        int[] categoryOfIsbn = groupsOf(columns.isbnCount(), columns::isbn, categories);
+        int categoryCount = BookCategory.values().length;
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        long[] totals = HistoryScanTask.scan(new SummaryAggregator(categoryCount) {
+            @Override
+            public void accumulate(long[] summary, int fromRow, int toRow) {
+                for (int row = fromRow; row < toRow; row++) {
+                    int returnDay = columns.returnDay(row);
+                    if (returnDay == TransactionHistory.NO_DAY || !isLoanMadeBetween(columns, row, fromDay, toDay)) {
+                        continue;
+                    }
+                    int category = categoryOfIsbn[columns.isbnCode(row)];
+                    if (category != NOT_FOUND) {
+                        summary[category]++;
+                        if (returnDay > columns.dueDay(row)) {
+                            summary[categoryCount + category]++;
+                        }
+                    }
+                }
+            }
+        }, columns.size());
+        return summaries(BookCategory.class, totals);
+    }
+
+    private static boolean isLoanMadeBetween(TransactionHistory.Columns columns, int row, int fromDay, int toDay) {
+        if (columns.type(row) != TransactionType.BORROW) {
+            return false;
+        }
+        int day = columns.createdDay(row);
+        return day >= fromDay && day <= toDay;
+    }
+
+    private static int fromDay(LocalDate from) {
+        return from != null ? Math.toIntExact(from.toEpochDay()) : Integer.MIN_VALUE;
+    }
+
+    private static int toDay(LocalDate to) {
+        return to != null ? Math.toIntExact(to.toEpochDay()) : Integer.MAX_VALUE;
+    }
+
+    // the group ordinal for each member or ISBN code, looked up once rather than per row
+    private static <E extends Enum<E>> int[] groupsOf(int codes, IntFunction<String> keyOf, Function<String, E> lookup) {
+        int[] groups = new int[codes];
+        for (int code = 0; code < codes; code++) {
+            E group = lookup.apply(keyOf.apply(code));
+            groups[code] = group != null ? group.ordinal() : NOT_FOUND;
+        }
+        return groups;
+    }
+
+    private static <E extends Enum<E>> Map<E, LoanSummary> summaries(Class<E> type, long[] totals) {
+        E[] groups = type.getEnumConstants();
+        Map<E, LoanSummary> result = new EnumMap<>(type);
+        for (E group : groups) {
+            result.put(group, new LoanSummary(totals[group.ordinal()], totals[groups.length + group.ordinal()]));
+        }
+        return result;
+    }
+
+    /** Loans per group followed by the figure's total per group. */
+    private abstract static class SummaryAggregator implements HistoryScanTask.Aggregator<long[]> {
+        private final int groups;
+
+        SummaryAggregator(int groups) {
+            this.groups = groups;
+        }
+
+        @Override
+        public long[] newAccumulator() {
+            return new long[groups * 2];
+        }
+
+        @Override
+        public long[] merge(long[] left, long[] right) {
+            for (int i = 0; i < left.length; i++) {
+                left[i] += right[i];
+            }
+            return left;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.libraryms.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates a range of history rows, splitting it in half until it is small
+ * enough to run on one thread. Each leaf fills its own accumulator and the
+ * halves are merged on the way back up, so threads share nothing while they
+ * scan and nothing is collected per row.
+ */
+class HistoryScanTask<A> extends RecursiveTask<A> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_ROWS_PER_TASK = 1 << 16;
+    // leaves per pool thread: enough to even out uneven ranges, few enough that per-ISBN arrays stay small
+    private static final int TASKS_PER_THREAD = 2;
+
+    /** One query's accumulator: created per leaf, filled from a row range, merged pairwise. */
+    interface Aggregator<A> {
+        A newAccumulator();
+
+        void accumulate(A accumulator, int fromRow, int toRow);
+
+        /** Combines two accumulators, possibly reusing one of them. */
+        A merge(A left, A right);
+    }
+
+    private final transient Aggregator<A> aggregator;
+    private final int from;
+    private final int to;
+    private final int rowsPerTask;
+
+    private HistoryScanTask(Aggregator<A> aggregator, int from, int to, int rowsPerTask) {
+        this.aggregator = aggregator;
+        this.from = from;
+        this.to = to;
+        this.rowsPerTask = rowsPerTask;
+    }
+
+    static <A> A scan(Aggregator<A> aggregator, int rows) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, rows / (pool.getParallelism() * TASKS_PER_THREAD) + 1);
+        return pool.invoke(new HistoryScanTask<>(aggregator, 0, rows, rowsPerTask));
+    }
+
+    @Override
+    protected A compute() {
+        if (to - from <= rowsPerTask) {
+            A accumulator = aggregator.newAccumulator();
+            aggregator.accumulate(accumulator, from, to);
+            return accumulator;
+        }
+        int middle = (from + to) >>> 1;
+        HistoryScanTask<A> upper = new HistoryScanTask<>(aggregator, middle, to, rowsPerTask);
+        upper.fork();
+        A lower = new HistoryScanTask<>(aggregator, from, middle, rowsPerTask).compute();
+        return aggregator.merge(lower, upper.join());
+    }
+
+}
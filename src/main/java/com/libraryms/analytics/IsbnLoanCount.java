@@ -0,0 +1,22 @@
+package com.libraryms.analytics;
+
+public class IsbnLoanCount {
+
+    private final String isbn;
+    private final long loans;
+
+    IsbnLoanCount(String isbn, long loans) {
+        this.isbn = isbn;
+        this.loans = loans;
+    }
+
+    public String getIsbn() { return isbn; }
+
+    public long getLoans() { return loans; }
+
+    @Override
+    public String toString() {
+        return isbn + "=" + loans;
+    }
+
+}
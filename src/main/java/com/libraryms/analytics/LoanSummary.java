@@ -0,0 +1,31 @@
+package com.libraryms.analytics;
+
+/**
+ * A number of returned loans and the total of one figure over them: days on
+ * loan for loan durations, or loans returned late for late-return rates.
+ */
+public class LoanSummary {
+
+    private final long loans;
+    private final long total;
+
+    LoanSummary(long loans, long total) {
+        this.loans = loans;
+        this.total = total;
+    }
+
+    public long getLoans() { return loans; }
+
+    public long getTotal() { return total; }
+
+    /** Total per loan: the average days on loan, or the share of loans returned late. 0 with no loans. */
+    public double getAverage() {
+        return loans == 0 ? 0 : (double) total / loans;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoanSummary{loans=%d, total=%d, average=%.3f}", loans, total, getAverage());
+    }
+
+}
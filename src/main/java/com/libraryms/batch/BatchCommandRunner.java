@@ -0,0 +1,375 @@
+package com.libraryms.batch;
+
+import com.libraryms.importer.BulkImporter;
+import com.libraryms.model.CopyStatus;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.FineAccrualReport;
+import com.libraryms.service.LibraryException;
+import com.libraryms.service.LibraryService;
+import com.libraryms.service.LoanReturn;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs one command per input line against a {@link LibraryService} and writes
+ * one tab-separated result line per command:
+ *
+ * <pre>
+ * &lt;line&gt;  OK   &lt;fields...&gt;
+ * &lt;line&gt;  ERR  &lt;ErrorCode&gt;  &lt;message&gt;
+ * </pre>
+ *
+ * Text fields (titles, names, messages) have backslashes, tabs and line
+ * breaks escaped as {@code \\}, {@code \t}, {@code \n} and {@code \r}, so
+ * every result stays on one line with a fixed number of fields;
+ * {@link #unescapeField} reverses it.
+ *
+ * <p>Blank lines and lines starting with {@code #} are skipped. Commands are
+ * committed in chunks so the journal is flushed once per chunk; the output for
+ * a chunk is flushed only after its journal records are.
+ *
+ * <p>{@code CHARGE_LOAN}, {@code SETTLE_LOAN} and {@code CHARGE_FINE} move a
+ * member's loan count and balance for loans kept on another partition, so
+ * they are only accepted with {@code internalCommands}, which
+ * {@code PartitionNode} turns on for its routers. Those runs also add to
+ * {@code RETURN} the fine still to be settled with the member, and to
+ * {@code ACCRUE_FINES} a {@code <member>:<amount>} field per member of another
+ * partition whose fines changed.
+ */
+public class BatchCommandRunner {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private static final Set<String> INTERNAL_COMMANDS = Set.of("CHARGE_LOAN", "SETTLE_LOAN", "CHARGE_FINE");
+
+    private final LibraryService service;
+    private final int chunkSize;
+    private final boolean internalCommands;
+    private long commandCount;
+    private long errorCount;
+
+    public BatchCommandRunner(LibraryService service) {
+        this(service, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchCommandRunner(LibraryService service, int chunkSize) {
+        this(service, chunkSize, false);
+    }
+
+    public BatchCommandRunner(LibraryService service, int chunkSize, boolean internalCommands) {
+        this.service = service;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.internalCommands = internalCommands;
+    }
+
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void run(BufferedReader in, Writer out) throws IOException {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        StringBuilder results = new StringBuilder(chunkSize * 32);
+        long lineNumber = 0;
+        String line;
+        do {
+            chunk.clear();
+            while (chunk.size() < chunkSize && (line = in.readLine()) != null) {
+                chunk.add(line);
+            }
+            long firstLine = lineNumber + 1;
+            results.setLength(0);
+            service.runBatch(() -> executeAll(chunk, firstLine, results));
+            out.append(results);
+            out.flush();
+            lineNumber += chunk.size();
+        } while (chunk.size() == chunkSize);
+    }
+
+    private void executeAll(List<String> lines, long firstLine, StringBuilder results) {
+        long lineNumber = firstLine;
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                execute(lineNumber, trimmed, results);
+                results.append('\n');
+            }
+            lineNumber++;
+        }
+    }
+
+    private void execute(long lineNumber, String line, StringBuilder result) {
+        commandCount++;
+        result.append(lineNumber).append('\t');
+        int split = line.indexOf(' ');
+        String command = (split < 0 ? line : line.substring(0, split)).toUpperCase(Locale.ROOT);
+        String arguments = split < 0 ? "" : line.substring(split + 1).trim();
+        if (!internalCommands && INTERNAL_COMMANDS.contains(command)) {
+            error(result, ErrorCode.INVALID_INPUT, "Unknown command: " + command);
+            return;
+        }
+        try {
+            switch (command) {
+                case "BORROW": {
+                    String[] args = arguments(arguments, 2, command);
+                    SimpleTransaction loan = service.borrowBook(args[0], args[1]);
+                    ok(result).append(loan.getTransactionId()).append('\t').append(loan.getDueDate())
+                              .append('\t').append(loan.getCopyBarcode());
+                    break;
+                }
+                case "RETURN": {
+                    String[] args = arguments(arguments, 2, command);
+                    LoanReturn returned = service.returnLoan(args[0], args[1]);
+                    SimpleTransaction loan = returned.getLoan();
+                    ok(result).append(loan.getTransactionId()).append('\t').append(loan.getFineAmount());
+                    if (internalCommands) {
+                        result.append('\t').append(returned.getFineToSettle());
+                    }
+                    break;
+                }
+                case "CHARGE_LOAN": {
+                    String[] args = arguments(arguments, 1, command);
+                    SimpleMember member = service.chargeLoan(args[0]);
+                    ok(result).append(member.getMemberId()).append('\t').append(member.getCurrentBorrowedBooks());
+                    break;
+                }
+                case "SETTLE_LOAN": {
+                    String[] args = arguments(arguments, 2, command);
+                    SimpleMember member = service.settleLoan(args[0], Double.parseDouble(args[1]));
+                    ok(result).append(member.getMemberId()).append('\t').append(member.getCurrentBorrowedBooks());
+                    break;
+                }
+                case "CHARGE_FINE": {
+                    String[] args = arguments(arguments, 2, command);
+                    SimpleMember member = service.chargeFine(args[0], Double.parseDouble(args[1]));
+                    ok(result).append(member.getMemberId()).append('\t').append(member.getTotalFinesOwed());
+                    break;
+                }
+                case "BOOK": {
+                    String[] args = arguments(arguments, 1, command);
+                    SimpleBook book = service.findBook(args[0]);
+                    if (book == null) {
+                        error(result, ErrorCode.BOOK_NOT_FOUND, "Book not found with ISBN: " + args[0]);
+                    } else {
+                        appendBook(ok(result), book);
+                    }
+                    break;
+                }
+                case "MEMBER": {
+                    String[] args = arguments(arguments, 1, command);
+                    SimpleMember member = service.findMember(args[0]);
+                    if (member == null) {
+                        error(result, ErrorCode.MEMBER_NOT_FOUND, "Member not found with ID: " + args[0]);
+                    } else {
+                        appendMember(ok(result), member);
+                    }
+                    break;
+                }
+                case "SEARCH_BOOKS": {
+                    List<SimpleBook> books = service.searchBooks(arguments);
+                    ok(result).append(books.size());
+                    for (SimpleBook book : books) {
+                        result.append('\t').append(escapeField(book.getIsbn()));
+                    }
+                    break;
+                }
+                case "SEARCH_MEMBERS":
+                case "SEARCH_MEMBERS_PREFIX": {
+                    List<SimpleMember> members = "SEARCH_MEMBERS".equals(command)
+                            ? service.searchMembers(arguments)
+                            : service.searchMembersByPrefix(arguments);
+                    ok(result).append(members.size());
+                    for (SimpleMember member : members) {
+                        result.append('\t').append(member.getMemberId());
+                    }
+                    break;
+                }
+                case "REGISTER": {
+                    String[] args = arguments(arguments, 4, command);
+                    SimpleMember member = service.registerMember(args[0], args[1], args[2],
+                            BulkImporter.parseMemberType(args[3]), args.length > 4 ? args[4] : null);
+                    ok(result).append(member.getMemberId());
+                    break;
+                }
+                case "LOANS": {
+                    String[] args = arguments(arguments, 1, command);
+                    appendLoans(ok(result), service.openLoansFor(args[0]));
+                    break;
+                }
+                case "OVERDUE": {
+                    LocalDate date = arguments.isEmpty() ? LocalDate.now() : LocalDate.parse(arguments);
+                    appendLoans(ok(result), service.overdueAsOf(date));
+                    break;
+                }
+                case "HOLD": {
+                    String[] args = arguments(arguments, 2, command);
+                    SimpleTransaction hold = service.placeHold(args[0], args[1]);
+                    ok(result).append(hold.getTransactionId());
+                    break;
+                }
+                case "CANCEL_HOLD": {
+                    String[] args = arguments(arguments, 2, command);
+                    SimpleTransaction hold = service.cancelHold(args[0], args[1]);
+                    ok(result).append(hold.getTransactionId());
+                    break;
+                }
+                case "HOLDS": {
+                    String[] args = arguments(arguments, 1, command);
+                    List<SimpleTransaction> holds = service.holdsFor(args[0]);
+                    ok(result).append(holds.size());
+                    for (SimpleTransaction hold : holds) {
+                        result.append('\t').append(hold.getTransactionId())
+                              .append(':').append(escapeField(hold.getBookIsbn()))
+                              .append(':').append(hold.getDueDate() != null ? hold.getDueDate() : "WAITING");
+                    }
+                    break;
+                }
+                case "COPIES": {
+                    String[] args = arguments(arguments, 1, command);
+                    List<String> barcodes = service.barcodesOnShelf(args[0]);
+                    ok(result).append(barcodes.size());
+                    for (String barcode : barcodes) {
+                        result.append('\t').append(escapeField(barcode));
+                    }
+                    break;
+                }
+                case "COPY": {
+                    String[] args = arguments(arguments, 1, command);
+                    CopyStatus status = service.findCopy(args[0]);
+                    ok(result).append(status.name());
+                    break;
+                }
+                case "EXPIRE_HOLDS": {
+                    LocalDate date = arguments.isEmpty() ? LocalDate.now() : LocalDate.parse(arguments);
+                    int released = service.releaseExpiredHolds(date);
+                    ok(result).append(released);
+                    break;
+                }
+                case "ACCRUE_FINES": {
+                    LocalDate date = arguments.isEmpty() ? LocalDate.now() : LocalDate.parse(arguments);
+                    FineAccrualReport report = service.accrueFines(date);
+                    ok(result).append(report.getOverdueLoans()).append('\t')
+                              .append(report.getLoansUpdated()).append('\t')
+                              .append(report.getMembersUpdated()).append('\t')
+                              .append(report.getBalanceChange());
+                    if (internalCommands) {
+                        for (Map.Entry<String, Double> charge : report.getRemoteCharges().entrySet()) {
+                            result.append('\t').append(charge.getKey()).append(':').append(charge.getValue());
+                        }
+                    }
+                    break;
+                }
+                default:
+                    error(result, ErrorCode.INVALID_INPUT, "Unknown command: " + command);
+            }
+        } catch (LibraryException e) {
+            error(result, e.getCode(), e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            error(result, ErrorCode.INVALID_INPUT, e.getMessage());
+        }
+    }
+
+    private static String[] arguments(String arguments, int required, String command) {
+        String[] args = arguments.isEmpty() ? new String[0] : arguments.split("\\s+");
+        if (args.length < required) {
+            throw new IllegalArgumentException(command + " expects " + required + " argument(s)");
+        }
+        return args;
+    }
+
+    private static StringBuilder ok(StringBuilder result) {
+        return result.append("OK\t");
+    }
+
+    private void error(StringBuilder result, ErrorCode code, String message) {
+        errorCount++;
+        result.append("ERR\t").append(code.name()).append('\t').append(escapeField(message));
+    }
+
+    /** The value with backslashes, tabs and line breaks escaped, for one field of a result line. */
+    public static String escapeField(String value) {
+        if (value == null) {
+            return "null";
+        }
+        int start = 0;
+        while (start < value.length() && "\\\t\n\r".indexOf(value.charAt(start)) < 0) {
+            start++;
+        }
+        if (start == value.length()) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8).append(value, 0, start);
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': escaped.append("\\\\"); break;
+                case '\t': escaped.append("\\t"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /** Reverses {@link #escapeField}. */
+    public static String unescapeField(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder value = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                value.append(c);
+                continue;
+            }
+            char code = field.charAt(++i);
+            value.append(code == 't' ? '\t' : code == 'n' ? '\n' : code == 'r' ? '\r' : code);
+        }
+        return value.toString();
+    }
+
+    private static void appendBook(StringBuilder result, SimpleBook book) {
+        result.append(escapeField(book.getIsbn())).append('\t')
+              .append(escapeField(book.getTitle())).append('\t')
+              .append(escapeField(book.getAuthor())).append('\t')
+              .append(book.getStatus().name()).append('\t')
+              .append(book.getAvailableCopies()).append('/').append(book.getTotalCopies());
+    }
+
+    private static void appendMember(StringBuilder result, SimpleMember member) {
+        result.append(member.getMemberId()).append('\t')
+              .append(escapeField(member.getFullName())).append('\t')
+              .append(member.getMemberType().name()).append('\t')
+              .append(member.getStatus().name()).append('\t')
+              .append(member.getCurrentBorrowedBooks()).append('\t')
+              .append(member.getTotalFinesOwed());
+    }
+
+    private static void appendLoans(StringBuilder result, Collection<SimpleTransaction> loans) {
+        result.append(loans.size());
+        for (SimpleTransaction loan : loans) {
+            result.append('\t').append(loan.getTransactionId())
+                  .append(':').append(loan.getMemberId())
+                  .append(':').append(escapeField(loan.getBookIsbn()))
+                  .append(':').append(loan.getDueDate());
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.libraryms.changes;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One change read from a {@link ChangeFeed}: its sequence number, when it was
+ * recorded, the book, member and transaction it concerns (null where they do
+ * not apply) and the values that describe it, such as a new title, a due date
+ * or a fine, as strings in the order they were recorded.
+ */
+public class ChangeEvent {
+
+    private final long sequence;
+    private final Instant recordedAt;
+    private final ChangeType type;
+    private final String isbn;
+    private final String memberId;
+    private final String transactionId;
+    private final Map<String, String> data;
+
+    ChangeEvent(long sequence, Instant recordedAt, ChangeType type, String isbn, String memberId,
+                String transactionId, Map<String, String> data) {
+        this.sequence = sequence;
+        this.recordedAt = recordedAt;
+        this.type = type;
+        this.isbn = isbn;
+        this.memberId = memberId;
+        this.transactionId = transactionId;
+        this.data = Collections.unmodifiableMap(data);
+    }
+
+    public long getSequence() { return sequence; }
+
+    public Instant getRecordedAt() { return recordedAt; }
+
+    public ChangeType getType() { return type; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getMemberId() { return memberId; }
+
+    public String getTransactionId() { return transactionId; }
+
+    public Map<String, String> getData() { return data; }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{sequence=" + sequence + ", type=" + type + ", isbn='" + isbn + "', memberId='" + memberId
+                + "', transactionId='" + transactionId + "', data=" + data + "}";
+    }
+
+}
@@ -0,0 +1,673 @@
+package com.libraryms.changes;
+
+import com.libraryms.model.BookCopies;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryEventListener;
+import com.libraryms.service.LibraryException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Change-data-capture feed of every mutation made through a
+ * {@code LibraryService}, for consumers such as reporting, notifications and
+ * search indexing. Each change gets the next sequence number, starting at 1,
+ * and is appended to a segment file framed as
+ * {@code [length:int][payload][crc32:int]}.
+ *
+ * <p>Recording a change takes no lock: it encodes the change, takes the next
+ * sequence number and puts the record on a lock-free queue. A background
+ * thread drains the queue every {@value #FLUSH_INTERVAL_MILLIS} ms, writes the
+ * records out in sequence order and only then makes them visible, so readers
+ * see changes in batches and neither the disk nor a reader, however slow,
+ * holds up the operation that made a change. Readers pull:
+ * {@link #read} returns the changes from a sequence number on, and
+ * {@link #subscribe} hands batches to a consumer on its own thread, fetching
+ * the next batch only once the consumer has returned. A consumer resumes by
+ * reading from the sequence number after the last change it handled.
+ *
+ * <p>A segment holds a fixed number of changes; once there are more than the
+ * retained number of segments the oldest is deleted, and reading from a
+ * sequence number in it fails with {@link ErrorCode#CHANGE_NOT_RETAINED}.
+ * A flush forces what it wrote to disk before making it visible, so every
+ * change a reader has seen survives a crash. The feed can still lack the
+ * last few milliseconds of changes that the journal has, which no reader saw.
+ */
+public class ChangeFeed implements LibraryEventListener, Closeable {
+
+    public static final int DEFAULT_SEGMENT_CHANGES = 65_536;
+    public static final int DEFAULT_RETAINED_SEGMENTS = 16;
+    public static final long FLUSH_INTERVAL_MILLIS = 20;
+
+    private static final ChangeType[] TYPES = ChangeType.values();
+    private static final int INDEX_INTERVAL = 256;
+    private static final int HEADER_SIZE = 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int NULL_STRING = -1;
+
+    private final Path directory;
+    private final int segmentChanges;
+    private final int retainedSegments;
+    private final ConcurrentNavigableMap<Long, Segment> segments;
+    private final Set<ChangeSubscription> subscriptions;
+    private final AtomicLong sequences;
+    private final Queue<Frame> queued;
+    private final ReentrantLock visibilityLock;
+    private final Condition published;
+    private final ScheduledExecutorService flusher;
+    // records taken off the queue ahead of one still on its way; writer state, guarded by this
+    private final PriorityQueue<Frame> waiting;
+    private Segment active;
+    private FileOutputStream file;
+    private OutputStream out;
+    private long nextToWrite;
+    private volatile long visibleSequence;
+    private volatile boolean closed;
+
+    private ChangeFeed(Path directory, int segmentChanges, int retainedSegments) {
+        this.directory = directory;
+        this.segmentChanges = segmentChanges;
+        this.retainedSegments = retainedSegments;
+        this.segments = new ConcurrentSkipListMap<>();
+        this.subscriptions = ConcurrentHashMap.newKeySet();
+        this.sequences = new AtomicLong();
+        this.queued = new ConcurrentLinkedQueue<>();
+        this.waiting = new PriorityQueue<>(Comparator.comparingLong(frame -> frame.sequence));
+        this.visibilityLock = new ReentrantLock();
+        this.published = visibilityLock.newCondition();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "change-feed-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ChangeFeed open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_CHANGES, DEFAULT_RETAINED_SEGMENTS);
+    }
+
+    public static ChangeFeed open(Path directory, int segmentChanges, int retainedSegments) throws IOException {
+        if (segmentChanges <= 0 || retainedSegments <= 0) {
+            throw new IllegalArgumentException("Segment size and retained segments must be positive");
+        }
+        Files.createDirectories(directory);
+        ChangeFeed feed = new ChangeFeed(directory, segmentChanges, retainedSegments);
+        feed.recover();
+        feed.flusher.scheduleWithFixedDelay(feed::flushQuietly,
+                FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return feed;
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "changes-*.log")) {
+            for (Path path : files) {
+                long first = firstSequenceOf(path);
+                if (first > 0) {
+                    segments.put(first, new Segment(first, path, false));
+                }
+            }
+        }
+        long nextSequence = 1;
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            long validLength = last.index();
+            if (validLength < Files.size(last.path)) {
+                try (FileChannel channel = FileChannel.open(last.path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+            nextSequence = last.first + last.count;
+            if (last.count < segmentChanges) {
+                active = last;
+                file = new FileOutputStream(last.path.toFile(), true);
+                out = new BufferedOutputStream(file, WRITE_BUFFER_SIZE);
+            }
+        }
+        nextToWrite = nextSequence;
+        sequences.set(nextSequence);
+        visibleSequence = nextSequence - 1;
+    }
+
+    /** The oldest change still retained, or the next to be recorded if there is none. */
+    public long firstSequence() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        return first != null ? first.getKey() : visibleSequence + 1;
+    }
+
+    /** The newest change readers can see, or 0 before the first. */
+    public long lastSequence() {
+        return visibleSequence;
+    }
+
+    // ---- Reading ----
+
+    /**
+     * Up to {@code max} visible changes, in order, starting with sequence number
+     * {@code from}; empty if there are none yet.
+     */
+    public List<ChangeEvent> read(long from, int max) {
+        if (from < 1 || max <= 0) {
+            throw new LibraryException(ErrorCode.INVALID_INPUT, "Sequence and batch size must be positive");
+        }
+        long last = visibleSequence;
+        List<ChangeEvent> changes = new ArrayList<>((int) Math.min(max, Math.max(0, last - from + 1)));
+        if (from > last) {
+            return changes;
+        }
+        Map.Entry<Long, Segment> entry = segments.floorEntry(from);
+        if (entry == null) {
+            throw notRetained(from);
+        }
+        long wanted = from;
+        try {
+            while (entry != null && changes.size() < max && wanted <= last) {
+                Segment segment = entry.getValue();
+                try (SegmentReader reader = new SegmentReader(segment.path, segment.positionOf(wanted))) {
+                    ByteBuffer payload;
+                    while (changes.size() < max && (payload = reader.next()) != null) {
+                        long sequence = payload.getLong(payload.position());
+                        if (sequence > last) {
+                            return changes;
+                        }
+                        if (sequence >= wanted) {
+                            changes.add(decode(payload));
+                            wanted = sequence + 1;
+                        }
+                    }
+                }
+                entry = segments.higherEntry(entry.getKey());
+            }
+        } catch (NoSuchFileException e) {
+            // deleted by retention since the lookup
+            throw notRetained(wanted);
+        } catch (IOException e) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE, "Could not read the change feed: " + e.getMessage(), e);
+        }
+        return changes;
+    }
+
+    /**
+     * Waits until the change numbered {@code sequence} is visible, the feed is
+     * closed or the timeout passes. Returns whether the change is visible.
+     */
+    public boolean awaitChange(long sequence, long timeoutMillis) throws InterruptedException {
+        if (visibleSequence >= sequence) {
+            return true;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        visibilityLock.lock();
+        try {
+            while (visibleSequence < sequence && !closed) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = published.awaitNanos(remaining);
+            }
+            return visibleSequence >= sequence;
+        } finally {
+            visibilityLock.unlock();
+        }
+    }
+
+    /**
+     * Delivers the changes from sequence number {@code from} on to the
+     * consumer, at most {@code batchSize} per call, on a thread of its own.
+     */
+    public ChangeSubscription subscribe(long from, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+        if (closed) {
+            throw new IllegalStateException("Change feed is closed");
+        }
+        ChangeSubscription subscription = new ChangeSubscription(this, from, batchSize, consumer);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    void unsubscribed(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private LibraryException notRetained(long sequence) {
+        return new LibraryException(ErrorCode.CHANGE_NOT_RETAINED,
+                "Change " + sequence + " is no longer retained; the oldest is " + firstSequence());
+    }
+
+    private static ChangeEvent decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        Instant recordedAt = Instant.ofEpochMilli(payload.getLong());
+        ChangeType type = TYPES[payload.get()];
+        String isbn = readString(payload);
+        String memberId = readString(payload);
+        String transactionId = readString(payload);
+        int fields = payload.get() & 0xff;
+        Map<String, String> data = new LinkedHashMap<>(fields * 2);
+        for (int i = 0; i < fields; i++) {
+            data.put(readString(payload), readString(payload));
+        }
+        return new ChangeEvent(sequence, recordedAt, type, isbn, memberId, transactionId, data);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+                StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    // ---- Recording ----
+
+    @Override
+    public void bookAdded(SimpleBook book) {
+        append(ChangeType.BOOK_ADDED, book.getIsbn(), null, null,
+                "title", book.getTitle(), "author", book.getAuthor(),
+                "category", book.getCategory() != null ? book.getCategory().name() : null,
+                "copies", String.valueOf(book.getTotalCopies()));
+    }
+
+    @Override
+    public void bookUpdated(String isbn, BookField field, String value) {
+        append(ChangeType.BOOK_UPDATED, isbn, null, null, "field", field.name(), "value", value);
+    }
+
+    @Override
+    public void bookDeleted(String isbn) {
+        append(ChangeType.BOOK_DELETED, isbn, null, null);
+    }
+
+    @Override
+    public void memberRegistered(SimpleMember member) {
+        append(ChangeType.MEMBER_REGISTERED, null, member.getMemberId(), null,
+                "firstName", member.getFirstName(), "lastName", member.getLastName(),
+                "email", member.getEmail(), "memberType", member.getMemberType().name());
+    }
+
+    @Override
+    public void memberUpdated(String memberId, MemberField field, String value) {
+        append(ChangeType.MEMBER_UPDATED, null, memberId, null, "field", field.name(), "value", value);
+    }
+
+    @Override
+    public void bookBorrowed(SimpleTransaction transaction) {
+        append(ChangeType.BOOK_BORROWED, transaction.getBookIsbn(), transaction.getMemberId(),
+                transaction.getTransactionId(),
+                "dueDate", String.valueOf(transaction.getDueDate()),
+                "copyBarcode", barcodeOf(transaction.getBookIsbn(), transaction.getCopyNumber()));
+    }
+
+    @Override
+    public void bookReturned(String transactionId, String memberId, String isbn, LocalDate returnDate, double fineAmount) {
+        append(ChangeType.BOOK_RETURNED, isbn, memberId, transactionId,
+                "returnDate", String.valueOf(returnDate), "fineAmount", String.valueOf(fineAmount));
+    }
+
+    @Override
+    public void fineApplied(String memberId, double amount) {
+        append(ChangeType.FINE_APPLIED, null, memberId, null, "amount", String.valueOf(amount));
+    }
+
+    @Override
+    public void loanCharged(String memberId) {
+        append(ChangeType.LOAN_CHARGED, null, memberId, null);
+    }
+
+    @Override
+    public void loanSettled(String memberId, double fine) {
+        append(ChangeType.LOAN_SETTLED, null, memberId, null, "fineAmount", String.valueOf(fine));
+    }
+
+    @Override
+    public void fineAccrued(String transactionId, String memberId, String isbn, double accruedFine) {
+        append(ChangeType.FINE_ACCRUED, isbn, memberId, transactionId, "fineAmount", String.valueOf(accruedFine));
+    }
+
+    @Override
+    public void holdPlaced(SimpleTransaction hold) {
+        append(ChangeType.HOLD_PLACED, hold.getBookIsbn(), hold.getMemberId(), hold.getTransactionId());
+    }
+
+    @Override
+    public void holdReady(String transactionId, String memberId, String isbn, int copyNumber, LocalDate pickupBy) {
+        append(ChangeType.HOLD_READY, isbn, memberId, transactionId, "pickupBy", String.valueOf(pickupBy),
+                "copyBarcode", barcodeOf(isbn, copyNumber));
+    }
+
+    @Override
+    public void holdCollected(String transactionId, String memberId, String isbn, LocalDate collectedOn) {
+        append(ChangeType.HOLD_COLLECTED, isbn, memberId, transactionId, "collectedOn", String.valueOf(collectedOn));
+    }
+
+    @Override
+    public void holdCancelled(String transactionId, String memberId, String isbn, LocalDate cancelledOn) {
+        append(ChangeType.HOLD_CANCELLED, isbn, memberId, transactionId, "cancelledOn", String.valueOf(cancelledOn));
+    }
+
+    /** Records a change described by name/value pairs in {@code data}. */
+    private void append(ChangeType type, String isbn, String memberId, String transactionId, String... data) {
+        if (closed) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE, "Could not record change: Change feed is closed");
+        }
+        byte[][] strings = new byte[3 + data.length][];
+        strings[0] = utf8(isbn);
+        strings[1] = utf8(memberId);
+        strings[2] = utf8(transactionId);
+        for (int i = 0; i < data.length; i++) {
+            strings[3 + i] = utf8(data[i]);
+        }
+        int length = 8 + 8 + 1 + 1;
+        for (byte[] string : strings) {
+            length += 4 + (string != null ? string.length : 0);
+        }
+        if (HEADER_SIZE + length + TRAILER_SIZE > MAX_RECORD_SIZE) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE,
+                    "Could not record change: Change too large: " + length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length + TRAILER_SIZE);
+        record.putInt(length).putLong(0).putLong(System.currentTimeMillis()).put((byte) type.ordinal());
+        for (int i = 0; i < 3; i++) {
+            putString(record, strings[i]);
+        }
+        record.put((byte) (data.length / 2));
+        for (int i = 3; i < strings.length; i++) {
+            putString(record, strings[i]);
+        }
+        // nothing below can fail, so every sequence number taken reaches the queue
+        long sequence = sequences.getAndIncrement();
+        record.putLong(HEADER_SIZE, sequence);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt((int) crc.getValue());
+        queued.offer(new Frame(sequence, record.array()));
+    }
+
+    private static String barcodeOf(String isbn, int copyNumber) {
+        return copyNumber != BookCopies.NO_COPY ? BookCopies.barcode(isbn, copyNumber) : null;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        if (value == null) {
+            record.putInt(NULL_STRING);
+        } else {
+            record.putInt(value.length).put(value);
+        }
+    }
+
+    // starts a new segment with the given first change, dropping the oldest past retention
+    private void roll(long first) throws IOException {
+        if (out != null) {
+            out.flush();
+            file.getChannel().force(false);
+            out.close();
+        }
+        Path path = directory.resolve(String.format("changes-%020d.log", first));
+        file = new FileOutputStream(path.toFile());
+        out = new BufferedOutputStream(file, WRITE_BUFFER_SIZE);
+        active = new Segment(first, path, true);
+        segments.put(first, active);
+        while (segments.size() > retainedSegments) {
+            Files.deleteIfExists(segments.pollFirstEntry().getValue().path);
+        }
+    }
+
+    /**
+     * Writes out the changes recorded so far, in sequence order, forces them to
+     * disk and makes them visible to readers. A change whose sequence number
+     * was taken but which is not yet queued holds back the ones after it until
+     * the next flush.
+     */
+    public void flush() throws IOException {
+        long flushed;
+        synchronized (this) {
+            long first = nextToWrite;
+            Frame frame;
+            while ((frame = queued.poll()) != null) {
+                waiting.add(frame);
+            }
+            while (!waiting.isEmpty() && waiting.peek().sequence == nextToWrite) {
+                if (active == null || active.count == segmentChanges) {
+                    roll(nextToWrite);
+                }
+                byte[] bytes = waiting.peek().bytes;
+                out.write(bytes);
+                active.added(bytes.length);
+                waiting.poll();
+                nextToWrite++;
+            }
+            if (nextToWrite > first) {
+                out.flush();
+                file.getChannel().force(false);
+            }
+            flushed = nextToWrite - 1;
+        }
+        visibilityLock.lock();
+        try {
+            if (flushed > visibleSequence) {
+                visibleSequence = flushed;
+                published.signalAll();
+            }
+        } finally {
+            visibilityLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // an exception would cancel every later flush
+            System.err.println("Could not write the change feed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        closed = true;
+        flush();
+        synchronized (this) {
+            if (out != null) {
+                out.close();
+                out = null;
+                file = null;
+            }
+        }
+        visibilityLock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            visibilityLock.unlock();
+        }
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("changes-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** An encoded, framed change waiting to be written. */
+    private static final class Frame {
+        final long sequence;
+        final byte[] bytes;
+
+        Frame(long sequence, byte[] bytes) {
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+    }
+
+    /** One segment file and where every {@value #INDEX_INTERVAL}th change in it starts. */
+    private static final class Segment {
+        final long first;
+        final Path path;
+        private long[] positions;
+        private int positionCount;
+        private boolean indexed;
+        // changes and bytes in the file; only known once indexed
+        private int count;
+        private long length;
+
+        Segment(long first, Path path, boolean created) {
+            this.first = first;
+            this.path = path;
+            this.positions = new long[16];
+            this.indexed = created;
+        }
+
+        synchronized void added(int size) {
+            if (count % INDEX_INTERVAL == 0) {
+                if (positionCount == positions.length) {
+                    positions = Arrays.copyOf(positions, positionCount * 2);
+                }
+                positions[positionCount++] = length;
+            }
+            count++;
+            length += size;
+        }
+
+        /** Where to start reading to find {@code sequence}: at it, or up to an index interval before it. */
+        synchronized long positionOf(long sequence) throws IOException {
+            if (!indexed) {
+                index();
+            }
+            if (positionCount == 0) {
+                return 0;
+            }
+            long slot = (sequence - first) / INDEX_INTERVAL;
+            return positions[(int) Math.min(slot, positionCount - 1)];
+        }
+
+        /** Scans the file for its changes, stopping at a torn or corrupt tail; returns the valid length. */
+        synchronized long index() throws IOException {
+            positionCount = 0;
+            count = 0;
+            length = 0;
+            try (SegmentReader reader = new SegmentReader(path, 0)) {
+                while (reader.next() != null) {
+                    added((int) (reader.position - length));
+                }
+            }
+            indexed = true;
+            return length;
+        }
+    }
+
+    /** Reads whole, checksummed records from a position in a segment file onwards. */
+    private static final class SegmentReader implements Closeable {
+        private final FileChannel channel;
+        private final CRC32 check;
+        private ByteBuffer buffer;
+        // file offset just past the last record returned
+        long position;
+
+        SegmentReader(Path path, long position) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.check = new CRC32();
+            this.buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            this.buffer.flip();
+            this.position = position;
+            channel.position(position);
+        }
+
+        /** The payload of the next record, valid until the next call, or null at the end. */
+        ByteBuffer next() throws IOException {
+            if (!fill(HEADER_SIZE)) {
+                return null;
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > MAX_RECORD_SIZE || !fill(HEADER_SIZE + length + TRAILER_SIZE)) {
+                return null;
+            }
+            int start = buffer.position() + HEADER_SIZE;
+            check.reset();
+            check.update(buffer.array(), start, length);
+            if ((int) check.getValue() != buffer.getInt(start + length)) {
+                return null;
+            }
+            ByteBuffer payload = ByteBuffer.wrap(buffer.array(), start, length).slice();
+            buffer.position(start + length + TRAILER_SIZE);
+            position += HEADER_SIZE + length + TRAILER_SIZE;
+            return payload;
+        }
+
+        private boolean fill(int needed) throws IOException {
+            if (buffer.remaining() >= needed) {
+                return true;
+            }
+            buffer.compact();
+            if (buffer.capacity() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            while (buffer.position() < needed && channel.read(buffer) > 0) {
+                // keep reading until the record is in or the file ends
+            }
+            buffer.flip();
+            return buffer.remaining() >= needed;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.libraryms.changes;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Delivers a {@link ChangeFeed}'s changes to one consumer on a virtual thread
+ * of its own. The next batch is read only after the consumer has returned
+ * from the last one, so a slow consumer falls behind the feed instead of
+ * holding up the library. If the consumer throws, delivery stops with the
+ * failed batch undelivered; {@link #getNextSequence()} is where a new
+ * subscription should resume, and may repeat changes the consumer had
+ * partly handled.
+ */
+public class ChangeSubscription implements AutoCloseable {
+
+    private static final long IDLE_WAIT_MILLIS = 1_000;
+
+    private final ChangeFeed feed;
+    private final int batchSize;
+    private final Consumer<List<ChangeEvent>> consumer;
+    private volatile long nextSequence;
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+    private Thread worker;
+
+    ChangeSubscription(ChangeFeed feed, long from, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+        if (from < 1 || batchSize <= 0) {
+            throw new IllegalArgumentException("Sequence and batch size must be positive");
+        }
+        this.feed = feed;
+        this.nextSequence = from;
+        this.batchSize = batchSize;
+        this.consumer = consumer;
+    }
+
+    void start() {
+        worker = Thread.ofVirtual().name("change-subscription").start(this::deliver);
+    }
+
+    /** The sequence number of the first change not yet handed to the consumer. */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /** What stopped delivery, or null if it is running or was closed. */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public boolean isRunning() {
+        return worker != null && worker.isAlive();
+    }
+
+    private void deliver() {
+        try {
+            while (!closed && !feed.isClosed()) {
+                List<ChangeEvent> batch = feed.read(nextSequence, batchSize);
+                if (batch.isEmpty()) {
+                    feed.awaitChange(nextSequence, IDLE_WAIT_MILLIS);
+                    continue;
+                }
+                consumer.accept(batch);
+                nextSequence = batch.get(batch.size() - 1).getSequence() + 1;
+            }
+        } catch (InterruptedException e) {
+            // closed while waiting for changes
+        } catch (RuntimeException e) {
+            if (!closed) {
+                failure = e;
+            }
+        } finally {
+            feed.unsubscribed(this);
+        }
+    }
+
+    /** Stops delivery, waiting for a batch the consumer is handling to finish. */
+    @Override
+    public void close() {
+        closed = true;
+        Thread running = worker;
+        if (running == null || running == Thread.currentThread()) {
+            return;
+        }
+        running.interrupt();
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
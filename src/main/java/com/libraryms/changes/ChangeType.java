@@ -0,0 +1,20 @@
+package com.libraryms.changes;
+
+/** The kinds of change in a {@link ChangeFeed}, one per {@code LibraryEventListener} event. */
+public enum ChangeType {
+    BOOK_ADDED,
+    BOOK_UPDATED,
+    BOOK_DELETED,
+    MEMBER_REGISTERED,
+    MEMBER_UPDATED,
+    BOOK_BORROWED,
+    BOOK_RETURNED,
+    FINE_APPLIED,
+    FINE_ACCRUED,
+    HOLD_PLACED,
+    HOLD_READY,
+    HOLD_COLLECTED,
+    HOLD_CANCELLED,
+    LOAN_CHARGED,
+    LOAN_SETTLED
+}
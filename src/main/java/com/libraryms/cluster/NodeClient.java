@@ -0,0 +1,151 @@
+package com.libraryms.cluster;
+
+import com.libraryms.batch.BatchCommandRunner;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Connections to one {@link PartitionNode}, reused across calls. A call takes
+ * an idle connection or opens a new one, sends one command and reads its
+ * result line, so concurrent callers each get their own connection. A
+ * connection that fails is closed instead of going back to the pool.
+ */
+final class NodeClient implements AutoCloseable {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    // longer than any single command should take, ACCRUE_FINES on a large partition included
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final int partition;
+    private final InetSocketAddress address;
+    private final Queue<Connection> idle;
+    private volatile boolean closed;
+
+    NodeClient(int partition, InetSocketAddress address) {
+        this.partition = partition;
+        this.address = address;
+        this.idle = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Runs one batch command on the node and returns the fields of its
+     * {@code OK} result, unescaped. An {@code ERR} result is thrown as the
+     * {@link LibraryException} the node failed with. A node that cannot be
+     * reached, or does not answer within {@value #READ_TIMEOUT_MILLIS} ms, is
+     * reported as {@link ErrorCode#PARTITION_UNAVAILABLE}; if the command was
+     * already sent it is unknown whether it took effect.
+     */
+    String[] call(String command) {
+        String reply;
+        Connection connection = idle.poll();
+        try {
+            if (connection == null) {
+                connection = new Connection(address);
+            }
+            reply = connection.exchange(command);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new LibraryException(ErrorCode.PARTITION_UNAVAILABLE,
+                    "Partition " + partition + " at " + address + " failed: " + e.getMessage(), e);
+        }
+        release(connection);
+        return parse(reply);
+    }
+
+    private void release(Connection connection) {
+        idle.add(connection);
+        // a close racing the release must not leave the connection open
+        if (closed && idle.remove(connection)) {
+            connection.close();
+        }
+    }
+
+    private String[] parse(String reply) {
+        // <line number> OK <fields...> | <line number> ERR <code> <message>
+        String[] parts = reply.split("\t", -1);
+        if (parts.length >= 2 && "OK".equals(parts[1])) {
+            String[] fields = Arrays.copyOfRange(parts, 2, parts.length);
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = BatchCommandRunner.unescapeField(fields[i]);
+            }
+            return fields;
+        }
+        if (parts.length >= 4 && "ERR".equals(parts[1])) {
+            ErrorCode code;
+            try {
+                code = ErrorCode.valueOf(parts[2]);
+            } catch (IllegalArgumentException e) {
+                code = ErrorCode.INVALID_INPUT;
+            }
+            throw new LibraryException(code, BatchCommandRunner.unescapeField(parts[3]));
+        }
+        throw new LibraryException(ErrorCode.PARTITION_UNAVAILABLE,
+                "Partition " + partition + " sent an unreadable reply: " + reply);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                this.in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+                this.out = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        String exchange(String command) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null) {
+                throw new IOException("Connection closed by the node");
+            }
+            return reply;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already unusable
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.libraryms.cluster;
+
+import com.libraryms.ids.IdFormat;
+import com.libraryms.store.MemberRegistry;
+
+/**
+ * Which of {@code n} partitions owns a book, a member or a registration.
+ * Books go by a hash of the ISBN. A member is registered on the partition
+ * its email hashes to, so duplicate emails meet on one node, and that node
+ * only mints member numbers equal to its own index modulo {@code n}; the
+ * member's partition is then read straight off the ID. The mapping depends
+ * on nothing but the key and {@code n}, so every process computes the same
+ * answer, and a data directory stays tied to the partition count it was
+ * created with.
+ */
+public final class PartitionMap {
+
+    public static final PartitionMap SINGLE = new PartitionMap(1);
+
+    private final int partitions;
+
+    public PartitionMap(int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive: " + partitions);
+        }
+        this.partitions = partitions;
+    }
+
+    public int size() {
+        return partitions;
+    }
+
+    public int partitionOfBook(String isbn) {
+        return partitionOfKey(isbn);
+    }
+
+    public int partitionOfMember(String memberId) {
+        long sequence = IdFormat.MEMBER.parse(memberId);
+        return sequence >= 0 ? (int) (sequence % partitions) : partitionOfKey(memberId);
+    }
+
+    /** The partition a member with this email is registered on. */
+    public int partitionOfEmail(String email) {
+        String key = MemberRegistry.normalizeEmail(email);
+        return key != null ? partitionOfKey(key) : 0;
+    }
+
+    // String.hashCode is fixed by its spec, so the result is the same in every JVM
+    private int partitionOfKey(String key) {
+        int hash = key.hashCode();
+        hash = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 15), partitions);
+    }
+
+}
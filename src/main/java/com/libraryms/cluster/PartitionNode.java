@@ -0,0 +1,105 @@
+package com.libraryms.cluster;
+
+import com.libraryms.batch.BatchCommandRunner;
+import com.libraryms.service.LibraryService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves one partition's {@link LibraryService} to {@link PartitionRouter}s
+ * over TCP on the loopback interface. A connection speaks the batch command
+ * protocol of {@link BatchCommandRunner}: one command line in, one result
+ * line out, written once the command's journal record has been flushed. The
+ * internal commands routers use for loans across partitions are accepted
+ * here and nowhere else. Each connection runs on its own virtual thread, so a
+ * router gets as much concurrency on the node as it opens connections.
+ */
+public class PartitionNode implements AutoCloseable {
+
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final LibraryService service;
+    private final ServerSocket listener;
+    private final ExecutorService executor;
+    private final Set<Socket> connections;
+
+    public PartitionNode(LibraryService service, int port) throws IOException {
+        this.service = service;
+        this.listener = new ServerSocket(port, ACCEPT_BACKLOG, InetAddress.getLoopbackAddress());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.connections = ConcurrentHashMap.newKeySet();
+    }
+
+    public void start() {
+        executor.execute(this::acceptAll);
+    }
+
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        try {
+            listener.close();
+        } catch (IOException e) {
+            System.err.println("Could not close partition listener: " + e.getMessage());
+        }
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        executor.close();
+    }
+
+    private void acceptAll() {
+        while (!listener.isClosed()) {
+            try {
+                Socket connection = listener.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                executor.execute(() -> serve(connection));
+            } catch (IOException e) {
+                if (!listener.isClosed()) {
+                    System.err.println("Could not accept a router connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            // chunks of one: the router waits for each result before sending the next command
+            new BatchCommandRunner(service, 1, true).run(in, out);
+        } catch (IOException e) {
+            // the router hung up; every command it got a result for is already journaled
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // nothing more to send on it
+        }
+    }
+
+}
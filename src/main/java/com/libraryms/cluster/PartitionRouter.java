@@ -0,0 +1,329 @@
+package com.libraryms.cluster;
+
+import com.libraryms.batch.BatchCommandRunner;
+import com.libraryms.model.BookCopies;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs batch commands against a library split across {@link PartitionNode}s,
+ * one per partition of a {@link PartitionMap}. Commands about one book or
+ * member go to the partition that owns it; searches and listings go to every
+ * partition at once and their results are concatenated in partition order.
+ *
+ * <p>Loans are kept on the book's partition and count against the member on
+ * theirs. When the two differ, a borrow first charges the loan to the member
+ * and takes it back if the book's partition then refuses, and a return
+ * settles the loan with the member after the book is back. Fines accrued on
+ * such a loan are charged to the member as each accrual runs, and the return
+ * settles only what has not been charged yet. A partition that fails between
+ * two such steps leaves the member's count or balance out of step; the
+ * command fails with the cause and is not retried.
+ *
+ * <p>Holds are placed on the book's partition without checking the member.
+ * Nothing is cached here, so any number of routers can share the nodes.
+ */
+public class PartitionRouter implements AutoCloseable {
+
+    // overdue loans, loans updated, members updated, balance change; then <member>:<amount> charges
+    private static final int ACCRUAL_TOTALS = 4;
+
+    private final PartitionMap partitions;
+    private final List<NodeClient> nodes;
+    private final ExecutorService scatter;
+
+    /** A router over nodes listening at the given addresses, partition 0 first. */
+    public PartitionRouter(List<InetSocketAddress> addresses) {
+        this.partitions = new PartitionMap(addresses.size());
+        this.nodes = new ArrayList<>(addresses.size());
+        for (int partition = 0; partition < addresses.size(); partition++) {
+            nodes.add(new NodeClient(partition, addresses.get(partition)));
+        }
+        this.scatter = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    public PartitionMap getPartitionMap() {
+        return partitions;
+    }
+
+    /**
+     * Runs one line in the format {@code BatchCommandRunner} reads and returns
+     * its result without the line number: {@code OK} and the result fields, or
+     * {@code ERR}, the error code and the message, tab-separated and escaped
+     * as {@code BatchCommandRunner} escapes them.
+     */
+    public String execute(String line) {
+        StringBuilder result = new StringBuilder(64);
+        try {
+            result.append("OK");
+            for (String field : route(line.trim())) {
+                result.append('\t').append(BatchCommandRunner.escapeField(field));
+            }
+        } catch (LibraryException e) {
+            result.setLength(0);
+            result.append("ERR\t").append(e.getCode().name())
+                  .append('\t').append(BatchCommandRunner.escapeField(e.getMessage()));
+        }
+        return result.toString();
+    }
+
+    /** Transaction ID, due date and copy barcode of the new loan. */
+    public String[] borrowBook(String memberId, String isbn) {
+        NodeClient member = memberNode(memberId);
+        NodeClient book = bookNode(isbn);
+        String borrow = "BORROW " + memberId + " " + isbn;
+        if (member == book) {
+            return book.call(borrow);
+        }
+        member.call("CHARGE_LOAN " + memberId);
+        try {
+            return book.call(borrow);
+        } catch (LibraryException e) {
+            try {
+                member.call("SETTLE_LOAN " + memberId + " 0");
+            } catch (LibraryException undo) {
+                e.addSuppressed(undo);
+            }
+            throw e;
+        }
+    }
+
+    /** Transaction ID and fine of the returned loan. */
+    public String[] returnBook(String memberId, String isbn) {
+        NodeClient member = memberNode(memberId);
+        NodeClient book = bookNode(isbn);
+        // the node adds the part of the fine still to be settled with the member
+        String[] returned = book.call("RETURN " + memberId + " " + isbn);
+        if (member != book) {
+            try {
+                member.call("SETTLE_LOAN " + memberId + " " + returned[2]);
+            } catch (LibraryException e) {
+                throw new LibraryException(e.getCode(), "Returned as " + returned[0]
+                        + " but not settled with the member: " + e.getMessage(), e);
+            }
+        }
+        return Arrays.copyOf(returned, 2);
+    }
+
+    /**
+     * Accrues fines on every partition, then charges each member, on their
+     * own partition, what accrued on their loans kept on other partitions.
+     * Returns the overdue loans, loans updated, members updated and balance
+     * change of all partitions added up.
+     */
+    public String[] accrueFines(String command) {
+        List<String[]> results = gather(command);
+        List<String[]> totals = new ArrayList<>(results.size());
+        Map<String, Double> charges = new HashMap<>();
+        for (String[] result : results) {
+            totals.add(Arrays.copyOf(result, ACCRUAL_TOTALS));
+            for (int i = ACCRUAL_TOTALS; i < result.length; i++) {
+                int colon = result[i].lastIndexOf(':');
+                charges.merge(result[i].substring(0, colon), Double.parseDouble(result[i].substring(colon + 1)),
+                        Double::sum);
+            }
+        }
+        chargeFines(charges);
+        return sum(totals);
+    }
+
+    // one call at a time per node, all nodes at once; fails after trying every charge
+    private void chargeFines(Map<String, Double> charges) {
+        List<List<String>> commands = new ArrayList<>(nodes.size());
+        for (int partition = 0; partition < nodes.size(); partition++) {
+            commands.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Double> charge : charges.entrySet()) {
+            commands.get(partitions.partitionOfMember(charge.getKey()))
+                    .add("CHARGE_FINE " + charge.getKey() + " " + charge.getValue());
+        }
+        List<Future<List<LibraryException>>> replies = new ArrayList<>(nodes.size());
+        for (int partition = 0; partition < nodes.size(); partition++) {
+            NodeClient node = nodes.get(partition);
+            List<String> pending = commands.get(partition);
+            replies.add(scatter.submit(() -> {
+                List<LibraryException> failures = new ArrayList<>();
+                for (String charge : pending) {
+                    try {
+                        node.call(charge);
+                    } catch (LibraryException e) {
+                        failures.add(e);
+                    }
+                }
+                return failures;
+            }));
+        }
+        List<LibraryException> failures = new ArrayList<>();
+        for (Future<List<LibraryException>> reply : replies) {
+            failures.addAll(await(reply));
+        }
+        if (!failures.isEmpty()) {
+            LibraryException first = failures.get(0);
+            throw new LibraryException(first.getCode(), "Fines accrued but " + failures.size() + " of "
+                    + charges.size() + " member(s) on other partitions not charged: " + first.getMessage(), first);
+        }
+    }
+
+    /** ISBNs of the matching books on every partition. */
+    public List<String> searchBooks(String query) {
+        return listItems(gather("SEARCH_BOOKS " + query));
+    }
+
+    /** IDs of the matching members on every partition. */
+    public List<String> searchMembers(String query) {
+        return listItems(gather("SEARCH_MEMBERS " + query));
+    }
+
+    /** IDs of the members on every partition whose name, ID or email starts with {@code query}. */
+    public List<String> searchMembersByPrefix(String query) {
+        return listItems(gather("SEARCH_MEMBERS_PREFIX " + query));
+    }
+
+    @Override
+    public void close() {
+        scatter.close();
+        for (NodeClient node : nodes) {
+            node.close();
+        }
+    }
+
+    private String[] route(String line) {
+        int split = line.indexOf(' ');
+        String command = (split < 0 ? line : line.substring(0, split)).toUpperCase(Locale.ROOT);
+        String arguments = split < 0 ? "" : line.substring(split + 1).trim();
+        String[] args = arguments.isEmpty() ? new String[0] : arguments.split("\\s+");
+        String forward = arguments.isEmpty() ? command : command + " " + arguments;
+        switch (command) {
+            case "BORROW":
+                require(args, 2, command);
+                return borrowBook(args[0], args[1]);
+            case "RETURN":
+                require(args, 2, command);
+                return returnBook(args[0], args[1]);
+            case "BOOK":
+            case "COPIES":
+                require(args, 1, command);
+                return bookNode(args[0]).call(forward);
+            case "HOLD":
+            case "CANCEL_HOLD":
+                require(args, 2, command);
+                return bookNode(args[1]).call(forward);
+            case "COPY": {
+                require(args, 1, command);
+                String isbn = BookCopies.isbnOf(args[0]);
+                if (isbn == null) {
+                    throw new LibraryException(ErrorCode.BOOK_NOT_FOUND, "No copy with barcode: " + args[0]);
+                }
+                return bookNode(isbn).call(forward);
+            }
+            case "MEMBER":
+                require(args, 1, command);
+                return memberNode(args[0]).call(forward);
+            case "REGISTER":
+                require(args, 3, command);
+                return nodes.get(partitions.partitionOfEmail(args[2])).call(forward);
+            case "SEARCH_BOOKS":
+            case "SEARCH_MEMBERS":
+            case "SEARCH_MEMBERS_PREFIX":
+            case "LOANS":
+            case "HOLDS":
+            case "OVERDUE":
+                return concatenate(gather(forward));
+            case "EXPIRE_HOLDS":
+                return sum(gather(forward));
+            case "ACCRUE_FINES":
+                return accrueFines(forward);
+            default:
+                // including CHARGE_LOAN, SETTLE_LOAN and CHARGE_FINE, which only a router may send to a node
+                throw new LibraryException(ErrorCode.INVALID_INPUT, "Unknown command: " + command);
+        }
+    }
+
+    private static void require(String[] args, int required, String command) {
+        if (args.length < required) {
+            throw new LibraryException(ErrorCode.INVALID_INPUT, command + " expects " + required + " argument(s)");
+        }
+    }
+
+    private NodeClient bookNode(String isbn) {
+        return nodes.get(partitions.partitionOfBook(isbn));
+    }
+
+    private NodeClient memberNode(String memberId) {
+        return nodes.get(partitions.partitionOfMember(memberId));
+    }
+
+    /** Sends the command to every partition at once and waits for all of them. */
+    private List<String[]> gather(String command) {
+        List<Future<String[]>> replies = new ArrayList<>(nodes.size());
+        for (NodeClient node : nodes) {
+            replies.add(scatter.submit(() -> node.call(command)));
+        }
+        List<String[]> results = new ArrayList<>(nodes.size());
+        for (Future<String[]> reply : replies) {
+            results.add(await(reply));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> reply) {
+        try {
+            return reply.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LibraryException) {
+                throw (LibraryException) e.getCause();
+            }
+            throw new LibraryException(ErrorCode.PARTITION_UNAVAILABLE, "Partition call failed: " + e.getCause(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LibraryException(ErrorCode.PARTITION_UNAVAILABLE, "Interrupted waiting for a partition", e);
+        }
+    }
+
+    // listing results are a count followed by that many items
+    private static List<String> listItems(List<String[]> results) {
+        List<String> items = new ArrayList<>();
+        for (String[] result : results) {
+            for (int i = 1; i < result.length; i++) {
+                items.add(result[i]);
+            }
+        }
+        return items;
+    }
+
+    private static String[] concatenate(List<String[]> results) {
+        List<String> items = listItems(results);
+        String[] merged = new String[items.size() + 1];
+        merged[0] = String.valueOf(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            merged[i + 1] = items.get(i);
+        }
+        return merged;
+    }
+
+    // counts add up field by field; fields with a decimal point are amounts
+    private static String[] sum(List<String[]> results) {
+        String[] total = results.get(0).clone();
+        for (int i = 0; i < total.length; i++) {
+            boolean amount = total[i].indexOf('.') >= 0;
+            double value = 0;
+            for (String[] result : results) {
+                value += Double.parseDouble(result[i]);
+            }
+            total[i] = amount ? String.valueOf(value) : String.valueOf((long) value);
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.libraryms.console;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Streams a box-drawn text table. Border lines are built once per table, cells
+ * are padded or truncated straight into one reused buffer, and the buffer goes
+ * to the console in large chunks instead of one formatted write per row.
+ *
+ * <pre>
+ * TableRenderer table = new TableRenderer(System.out, new int[] { 14, 24 }, "ISBN", "Title");
+ * table.begin();
+ * table.cell(isbn).cell(title).endRow();
+ * table.end();
+ * </pre>
+ */
+public class TableRenderer {
+
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final String ELLIPSIS = "...";
+
+    private final Writer out;
+    private final int[] widths;
+    private final String[] headers;
+    private final StringBuilder buffer;
+    private final String topBorder;
+    private final String middleBorder;
+    private final String bottomBorder;
+    private int column;
+
+    public TableRenderer(PrintStream console, int[] widths, String... headers) {
+        if (widths.length != headers.length) {
+            throw new IllegalArgumentException("Need one width per header");
+        }
+        this.out = new OutputStreamWriter(console, console.charset());
+        this.widths = widths.clone();
+        this.headers = headers.clone();
+        this.buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+        this.topBorder = border('┌', '┬', '┐');
+        this.middleBorder = border('├', '┼', '┤');
+        this.bottomBorder = border('└', '┴', '┘');
+    }
+
+    public void begin() {
+        buffer.append(topBorder);
+        for (String header : headers) {
+            cell(header);
+        }
+        endRow();
+        buffer.append(middleBorder);
+    }
+
+    public TableRenderer cell(CharSequence value) {
+        int width = widths[column++];
+        buffer.append("│ ");
+        int length = value == null ? 0 : value.length();
+        if (length <= width) {
+            if (length > 0) {
+                buffer.append(value);
+            }
+            pad(width - length);
+        } else {
+            int kept = Math.max(0, width - ELLIPSIS.length());
+            buffer.append(value, 0, kept).append(ELLIPSIS, 0, width - kept);
+        }
+        buffer.append(' ');
+        return this;
+    }
+
+    /** Writes an ISO date without creating a string; {@code null} renders as "N/A". */
+    public TableRenderer cell(LocalDate date) {
+        if (date == null) {
+            return cell("N/A");
+        }
+        int width = widths[column++];
+        int start = buffer.length();
+        buffer.append("│ ");
+        appendPadded(date.getYear(), 4);
+        buffer.append('-');
+        appendPadded(date.getMonthValue(), 2);
+        buffer.append('-');
+        appendPadded(date.getDayOfMonth(), 2);
+        int written = buffer.length() - start - 2;
+        if (written > width) {
+            buffer.setLength(start + 2 + width);
+        } else {
+            pad(width - written);
+        }
+        buffer.append(' ');
+        return this;
+    }
+
+    public void endRow() {
+        buffer.append("│\n");
+        column = 0;
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            drain();
+        }
+    }
+
+    public void end() {
+        buffer.append(bottomBorder);
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+
+    private void pad(int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.append(' ');
+        }
+    }
+
+    private void appendPadded(int value, int digits) {
+        for (int limit = 10, i = 1; i < digits; i++, limit *= 10) {
+            if (value < limit) {
+                buffer.append('0');
+            }
+        }
+        buffer.append(value);
+    }
+
+    private String border(char left, char middle, char right) {
+        StringBuilder line = new StringBuilder();
+        line.append(left);
+        for (int i = 0; i < widths.length; i++) {
+            if (i > 0) {
+                line.append(middle);
+            }
+            for (int j = 0; j < widths[i] + 2; j++) {
+                line.append('─');
+            }
+        }
+        return line.append(right).append('\n').toString();
+    }
+
+}
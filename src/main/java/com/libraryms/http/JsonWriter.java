@@ -0,0 +1,156 @@
+package com.libraryms.http;
+
+/**
+ * Minimal streaming JSON builder. Callers are trusted to nest objects and
+ * arrays correctly; the writer only tracks where commas are needed.
+ */
+final class JsonWriter {
+
+    private final StringBuilder out;
+    private boolean needsComma;
+
+    JsonWriter() {
+        this.out = new StringBuilder(256);
+    }
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    /** A named object inside the current one. */
+    JsonWriter beginObject(String name) {
+        name(name);
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter beginArray(String name) {
+        name(name);
+        out.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, String value) {
+        name(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, Object value) {
+        return field(name, value == null ? null : value.toString());
+    }
+
+    JsonWriter field(String name, Enum<?> value) {
+        return field(name, value == null ? null : value.name());
+    }
+
+    JsonWriter field(String name, Number value) {
+        name(name);
+        out.append(value == null ? "null" : value.toString());
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, long value) {
+        name(name);
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, double value) {
+        name(name);
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, boolean value) {
+        name(name);
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    /** An array element. */
+    JsonWriter value(String value) {
+        separate();
+        string(value);
+        needsComma = true;
+        return this;
+    }
+
+    private void name(String name) {
+        separate();
+        if (name != null) {
+            string(name);
+            out.append(':');
+        }
+    }
+
+    private void separate() {
+        if (needsComma) {
+            out.append(',');
+        }
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,523 @@
+package com.libraryms.http;
+
+import com.libraryms.analytics.IsbnLoanCount;
+import com.libraryms.analytics.LoanSummary;
+import com.libraryms.changes.ChangeEvent;
+import com.libraryms.changes.ChangeFeed;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionView;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryException;
+import com.libraryms.service.LibraryService;
+import com.libraryms.store.HistoryPage;
+import com.libraryms.store.TransactionHistory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JSON API over {@link LibraryService}, served by the JDK HTTP server with one
+ * virtual thread per request.
+ *
+ * <pre>
+ * GET  /api/books?q=text                 search books
+ * GET  /api/books/{isbn}                 book details
+ * GET  /api/books/{isbn}/holds           holds waiting for a copy, first in line first
+ * GET  /api/books/{isbn}/copies          barcodes of the copies on the shelf
+ * GET  /api/copies/{barcode}             whether a copy is on the shelf, on the hold shelf or on loan
+ * GET  /api/members?q=text               search members; prefix=true matches starts of fields only
+ * GET  /api/members/{id}                 member details with open loans and holds
+ * GET  /api/members/{id}/history         member history, newest first
+ * GET  /api/history                      all transactions, newest first
+ * GET  /api/overdue?date=yyyy-mm-dd      open loans due before the date
+ * GET  /api/stats                        books by category and status, members by type and status
+ * GET  /api/analytics/top-borrowed?from=&to=&limit=   most borrowed ISBNs
+ * GET  /api/analytics/loan-days?from=&to=             returned loans and days out by member type
+ * GET  /api/analytics/late-returns?from=&to=          returned loans and late returns by category
+ * GET  /api/changes?from=&limit=&wait=  changes from a sequence number on, waiting up to wait ms for one
+ * POST /api/borrow   memberId, isbn      lend a copy
+ * POST /api/return   memberId, isbn      return a copy
+ * POST /api/hold     memberId, isbn      join the hold queue for a book
+ * POST /api/cancel-hold memberId, isbn   leave the hold queue
+ * </pre>
+ *
+ * History endpoints take {@code cursor} and {@code size} and answer with a
+ * {@code nextCursor} to pass back for the next page. POST parameters may be
+ * sent in the query string or as a form-encoded body. The change feed answers
+ * with a {@code nextSequence} to pass back as {@code from}, and with 410 once
+ * {@code from} is older than the changes it keeps.
+ */
+public class LibraryHttpServer implements AutoCloseable {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int DEFAULT_TOP_BORROWED = 100;
+    private static final int DEFAULT_CHANGES = 1_000;
+    private static final int MAX_CHANGES = 10_000;
+    private static final long MAX_CHANGE_WAIT_MILLIS = 30_000;
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int ACCEPT_BACKLOG = 8192;
+
+    static {
+        // The JDK server reads these once, when the first server is created. Its
+        // defaults drop keep-alive connections beyond 200 idle ones and leave
+        // Nagle's algorithm on, which stalls small responses on delayed ACKs.
+        setDefault("sun.net.httpserver.maxIdleConnections", "20000");
+        setDefault("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final LibraryService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public LibraryHttpServer(LibraryService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            Map<String, String> params = parameters(exchange);
+            boolean post = "POST".equalsIgnoreCase(exchange.getRequestMethod());
+            String resource = path[0];
+            if (post) {
+                switch (resource) {
+                    case "borrow":
+                        respond(exchange, 201, transaction(new JsonWriter(),
+                                service.borrowBook(require(params, "memberId"), require(params, "isbn"))));
+                        return;
+                    case "return":
+                        respond(exchange, 200, transaction(new JsonWriter(),
+                                service.returnBook(require(params, "memberId"), require(params, "isbn"))));
+                        return;
+                    case "hold":
+                        respond(exchange, 201, transaction(new JsonWriter(),
+                                service.placeHold(require(params, "memberId"), require(params, "isbn"))));
+                        return;
+                    case "cancel-hold":
+                        respond(exchange, 200, transaction(new JsonWriter(),
+                                service.cancelHold(require(params, "memberId"), require(params, "isbn"))));
+                        return;
+                    default:
+                        notFound(exchange);
+                        return;
+                }
+            }
+            switch (resource) {
+                case "books":
+                    if (path.length == 1) {
+                        respond(exchange, 200, books(service.searchBooks(params.getOrDefault("q", ""))));
+                    } else {
+                        SimpleBook book = service.findBook(path[1]);
+                        if (book == null) {
+                            throw new LibraryException(ErrorCode.BOOK_NOT_FOUND, "Book not found with ISBN: " + path[1]);
+                        }
+                        if (path.length == 2) {
+                            respond(exchange, 200, book(new JsonWriter(), book));
+                        } else if ("holds".equals(path[2])) {
+                            respond(exchange, 200, transactions(service.holdQueueFor(book.getIsbn())));
+                        } else if ("copies".equals(path[2])) {
+                            respond(exchange, 200, copies(book, service.barcodesOnShelf(book.getIsbn())));
+                        } else {
+                            notFound(exchange);
+                        }
+                    }
+                    return;
+                case "members":
+                    if (path.length == 1) {
+                        String query = params.getOrDefault("q", "");
+                        respond(exchange, 200, members("true".equals(params.get("prefix"))
+                                ? service.searchMembersByPrefix(query) : service.searchMembers(query)));
+                        return;
+                    }
+                    SimpleMember member = service.findMember(path[1]);
+                    if (member == null) {
+                        throw new LibraryException(ErrorCode.MEMBER_NOT_FOUND, "Member not found with ID: " + path[1]);
+                    }
+                    if (path.length == 2) {
+                        respond(exchange, 200, memberWithLoans(member));
+                    } else if ("history".equals(path[2])) {
+                        respond(exchange, 200, history(service.transactionHistory(member.getMemberId(),
+                                cursor(params), pageSize(params))));
+                    } else {
+                        notFound(exchange);
+                    }
+                    return;
+                case "copies":
+                    if (path.length != 2) {
+                        notFound(exchange);
+                        return;
+                    }
+                    respond(exchange, 200, new JsonWriter().beginObject()
+                            .field("barcode", path[1])
+                            .field("status", service.findCopy(path[1]))
+                            .endObject());
+                    return;
+                case "history":
+                    respond(exchange, 200, history(service.transactionHistory(cursor(params), pageSize(params))));
+                    return;
+                case "stats":
+                    respond(exchange, 200, stats());
+                    return;
+                case "analytics":
+                    analytics(exchange, path.length == 2 ? path[1] : "", params);
+                    return;
+                case "changes":
+                    // only a library with a data directory keeps a feed
+                    if (service.getChangeFeed() == null) {
+                        notFound(exchange);
+                        return;
+                    }
+                    respond(exchange, 200, changes(service.getChangeFeed(), params));
+                    return;
+                case "overdue": {
+                    String date = params.get("date");
+                    respond(exchange, 200, transactions(
+                            service.overdueAsOf(date == null ? LocalDate.now() : LocalDate.parse(date))));
+                    return;
+                }
+                default:
+                    notFound(exchange);
+            }
+        } catch (LibraryException e) {
+            respond(exchange, statusFor(e.getCode()), error(e.getCode().name(), e.getMessage()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            respond(exchange, 400, error(ErrorCode.INVALID_INPUT.name(), e.getMessage()));
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error("INTERNAL_ERROR", e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int statusFor(ErrorCode code) {
+        switch (code) {
+            case MEMBER_NOT_FOUND:
+            case BOOK_NOT_FOUND:
+                return 404;
+            case DUPLICATE_ISBN:
+            case DUPLICATE_EMAIL:
+            case MEMBER_CANNOT_BORROW:
+            case BOOK_NOT_AVAILABLE:
+            case NO_ACTIVE_LOAN:
+            case HOLD_NOT_ALLOWED:
+            case NO_ACTIVE_HOLD:
+            case WRONG_PARTITION:
+                return 409;
+            case INVALID_INPUT:
+                return 400;
+            case CHANGE_NOT_RETAINED:
+                return 410;
+            case PARTITION_UNAVAILABLE:
+                return 503;
+            default:
+                return 500;
+        }
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        respond(exchange, 404, error("NOT_FOUND", "No such endpoint: " + exchange.getRequestURI().getPath()));
+    }
+
+    private static void respond(HttpExchange exchange, int status, JsonWriter json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // ---- Request parameters ----
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] body = in.readNBytes(MAX_BODY_BYTES);
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                       URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new LibraryException(ErrorCode.INVALID_INPUT, "Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static int cursor(Map<String, String> params) {
+        String cursor = params.get("cursor");
+        return cursor == null ? TransactionHistory.FIRST_PAGE : Integer.parseInt(cursor);
+    }
+
+    private static int pageSize(Map<String, String> params) {
+        String size = params.get("size");
+        return size == null ? DEFAULT_PAGE_SIZE : Math.min(MAX_PAGE_SIZE, Integer.parseInt(size));
+    }
+
+    // ---- JSON bodies ----
+
+    private static JsonWriter error(String code, String message) {
+        return new JsonWriter().beginObject().field("error", code).field("message", message).endObject();
+    }
+
+    private static JsonWriter books(Collection<SimpleBook> books) {
+        JsonWriter json = new JsonWriter().beginObject().field("count", books.size()).beginArray("books");
+        for (SimpleBook book : books) {
+            book(json, book);
+        }
+        return json.endArray().endObject();
+    }
+
+    private static JsonWriter book(JsonWriter json, SimpleBook book) {
+        return json.beginObject()
+                .field("isbn", book.getIsbn())
+                .field("title", book.getTitle())
+                .field("author", book.getAuthor())
+                .field("category", book.getCategory())
+                .field("publisher", book.getPublisher())
+                .field("yearPublished", book.getYearPublished())
+                .field("status", book.getStatus())
+                .field("availableCopies", book.getAvailableCopies())
+                .field("heldCopies", book.getHeldCopies())
+                .field("totalCopies", book.getTotalCopies())
+                .endObject();
+    }
+
+    private static JsonWriter copies(SimpleBook book, List<String> barcodesOnShelf) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("isbn", book.getIsbn())
+                .field("totalCopies", book.getTotalCopies())
+                .beginArray("onShelf");
+        for (String barcode : barcodesOnShelf) {
+            json.value(barcode);
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter stats() {
+        JsonWriter json = new JsonWriter().beginObject();
+        counts(json.beginObject("books"), service.bookCounts()).endObject();
+        counts(json.beginObject("members"), service.memberCounts()).endObject();
+        json.beginObject("membersAtLimit");
+        for (MemberType memberType : MemberType.values()) {
+            json.field(memberType.name(), service.countMembersAtLimit(memberType));
+        }
+        return json.endObject().endObject();
+    }
+
+    private void analytics(HttpExchange exchange, String query, Map<String, String> params) throws IOException {
+        LocalDate from = date(params, "from");
+        LocalDate to = date(params, "to");
+        switch (query) {
+            case "top-borrowed": {
+                String limit = params.get("limit");
+                JsonWriter json = new JsonWriter().beginObject().beginArray("isbns");
+                for (IsbnLoanCount count : service.topBorrowedIsbns(from, to,
+                        limit == null ? DEFAULT_TOP_BORROWED : Integer.parseInt(limit))) {
+                    json.beginObject().field("isbn", count.getIsbn()).field("loans", count.getLoans()).endObject();
+                }
+                respond(exchange, 200, json.endArray().endObject());
+                return;
+            }
+            case "loan-days":
+                respond(exchange, 200, summaries(service.loanDaysByMemberType(from, to), "days", "averageDays"));
+                return;
+            case "late-returns":
+                respond(exchange, 200, summaries(service.lateReturnsByCategory(from, to), "late", "lateRate"));
+                return;
+            default:
+                notFound(exchange);
+        }
+    }
+
+    private static JsonWriter changes(ChangeFeed feed, Map<String, String> params) {
+        String from = params.get("from");
+        String limit = params.get("limit");
+        String wait = params.get("wait");
+        long first = from == null ? feed.firstSequence() : Long.parseLong(from);
+        int max = limit == null ? DEFAULT_CHANGES : Math.min(MAX_CHANGES, Integer.parseInt(limit));
+        List<ChangeEvent> changes = feed.read(first, max);
+        if (changes.isEmpty() && wait != null) {
+            try {
+                if (feed.awaitChange(first, Math.min(MAX_CHANGE_WAIT_MILLIS, Long.parseLong(wait)))) {
+                    changes = feed.read(first, max);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long next = changes.isEmpty() ? first : changes.get(changes.size() - 1).getSequence() + 1;
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("firstSequence", feed.firstSequence())
+                .field("lastSequence", feed.lastSequence())
+                .field("nextSequence", next)
+                .beginArray("changes");
+        for (ChangeEvent change : changes) {
+            json.beginObject()
+                .field("sequence", change.getSequence())
+                .field("type", change.getType())
+                .field("recordedAt", change.getRecordedAt())
+                .field("isbn", change.getIsbn())
+                .field("memberId", change.getMemberId())
+                .field("transactionId", change.getTransactionId())
+                .beginObject("data");
+            for (Map.Entry<String, String> value : change.getData().entrySet()) {
+                json.field(value.getKey(), value.getValue());
+            }
+            json.endObject().endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private static LocalDate date(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private static JsonWriter summaries(Map<? extends Enum<?>, LoanSummary> summaries, String total, String average) {
+        JsonWriter json = new JsonWriter().beginObject();
+        for (Map.Entry<? extends Enum<?>, LoanSummary> entry : summaries.entrySet()) {
+            json.beginObject(entry.getKey().name())
+                .field("loans", entry.getValue().getLoans())
+                .field(total, entry.getValue().getTotal())
+                .field(average, entry.getValue().getAverage())
+                .endObject();
+        }
+        return json.endObject();
+    }
+
+    private static <R extends Enum<R>, C extends Enum<C>> JsonWriter counts(JsonWriter json, Map<R, Map<C, Long>> counts) {
+        for (Map.Entry<R, Map<C, Long>> row : counts.entrySet()) {
+            json.beginObject(row.getKey().name());
+            for (Map.Entry<C, Long> cell : row.getValue().entrySet()) {
+                json.field(cell.getKey().name(), cell.getValue().longValue());
+            }
+            json.endObject();
+        }
+        return json;
+    }
+
+    private static JsonWriter members(Collection<SimpleMember> members) {
+        JsonWriter json = new JsonWriter().beginObject().field("count", members.size()).beginArray("members");
+        for (SimpleMember member : members) {
+            member(json, member).endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter memberWithLoans(SimpleMember member) {
+        JsonWriter json = member(new JsonWriter(), member).beginArray("openLoans");
+        for (SimpleTransaction loan : service.openLoansFor(member.getMemberId())) {
+            transaction(json, loan);
+        }
+        json.endArray().beginArray("holds");
+        for (SimpleTransaction hold : service.holdsFor(member.getMemberId())) {
+            transaction(json, hold);
+        }
+        return json.endArray().endObject();
+    }
+
+    /** Writes the member's fields, leaving the object open for extra fields. */
+    private static JsonWriter member(JsonWriter json, SimpleMember member) {
+        return json.beginObject()
+                .field("memberId", member.getMemberId())
+                .field("firstName", member.getFirstName())
+                .field("lastName", member.getLastName())
+                .field("email", member.getEmail())
+                .field("memberType", member.getMemberType())
+                .field("status", member.getStatus())
+                .field("currentBorrowedBooks", member.getCurrentBorrowedBooks())
+                .field("totalFinesOwed", member.getTotalFinesOwed());
+    }
+
+    private static JsonWriter transactions(Collection<SimpleTransaction> transactions) {
+        JsonWriter json = new JsonWriter().beginObject().field("count", transactions.size()).beginArray("transactions");
+        for (SimpleTransaction transaction : transactions) {
+            transaction(json, transaction);
+        }
+        return json.endArray().endObject();
+    }
+
+    private static JsonWriter history(HistoryPage<TransactionView> page) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("totalCount", page.getTotalCount())
+                .field("nextCursor", page.hasMore() ? Integer.valueOf(page.getNextCursor()) : null)
+                .beginArray("transactions");
+        for (TransactionView transaction : page.getItems()) {
+            transaction(json, transaction);
+        }
+        return json.endArray().endObject();
+    }
+
+    private static JsonWriter transaction(JsonWriter json, TransactionView transaction) {
+        return json.beginObject()
+                .field("transactionId", transaction.getTransactionId())
+                .field("memberId", transaction.getMemberId())
+                .field("isbn", transaction.getBookIsbn())
+                .field("copyBarcode", transaction.getCopyBarcode())
+                .field("type", transaction.getType())
+                .field("status", transaction.getStatus())
+                .field("transactionDate", transaction.getTransactionDate())
+                .field("dueDate", transaction.getDueDate())
+                .field("returnDate", transaction.getReturnDate())
+                .field("fineAmount", transaction.getFineAmount())
+                .endObject();
+    }
+
+}
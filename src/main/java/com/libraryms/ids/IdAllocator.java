@@ -0,0 +1,137 @@
+package com.libraryms.ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mints IDs from blocks leased from an {@link IdBlockSource}. Within a block
+ * minting is a single atomic increment; only the thread that exhausts a block
+ * takes the lock to lease the next one. Numbers left in a block when the
+ * process stops are skipped, never reused.
+ *
+ * <p>An allocator can mint every {@code stride}-th number only, those equal to
+ * {@code offset} modulo the stride, so that several allocators share one
+ * number space without coordinating. Blocks are then leased in units of that
+ * stride, so a block source must always be used with the same stride.
+ */
+public final class IdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private final IdFormat format;
+    private final IdBlockSource source;
+    private final int blockSize;
+    private final int stride;
+    private final int offset;
+    private volatile Lease lease;
+
+    /** An allocator counting from 1 in memory only. */
+    public IdAllocator(IdFormat format) {
+        this(format, new InMemoryBlockSource(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public IdAllocator(IdFormat format, IdBlockSource source, int blockSize) {
+        this(format, source, blockSize, 1, 0);
+    }
+
+    public IdAllocator(IdFormat format, IdBlockSource source, int blockSize, int stride, int offset) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        if (stride <= 0 || offset < 0 || offset >= stride) {
+            throw new IllegalArgumentException("Offset must be in [0, stride): " + offset + "/" + stride);
+        }
+        this.format = format;
+        this.source = source;
+        this.blockSize = blockSize;
+        this.stride = stride;
+        this.offset = offset;
+        this.lease = new Lease(1, 1);
+    }
+
+    public String next() {
+        return format.format(nextSequence());
+    }
+
+    public long nextSequence() {
+        while (true) {
+            Lease current = lease;
+            long slot = current.next.getAndIncrement();
+            if (slot < current.end) {
+                return sequenceOf(slot);
+            }
+            renew(current);
+        }
+    }
+
+    /**
+     * Makes sure {@code sequence} and everything below it is never minted, e.g.
+     * after replaying old records. Does not lease a block by itself.
+     */
+    public void advancePast(long sequence) {
+        long slot = Math.floorDiv(sequence - offset, stride);
+        while (true) {
+            Lease current = lease;
+            if (slot < current.end) {
+                current.next.accumulateAndGet(slot + 1, Math::max);
+                return;
+            }
+            skipTo(current, slot + 1);
+        }
+    }
+
+    /** Advances past the sequence number of {@code id} if it is in this allocator's format. */
+    public void advancePast(String id) {
+        long sequence = format.parse(id);
+        if (sequence >= 0) {
+            advancePast(sequence);
+        }
+    }
+
+    /** The number the next call to {@link #nextSequence()} will return if no block has to be leased. */
+    public long peekNext() {
+        Lease current = lease;
+        return sequenceOf(Math.min(current.next.get(), current.end));
+    }
+
+    // leases count slots; slot n is the n-th number this allocator may mint
+    private long sequenceOf(long slot) {
+        return slot * stride + offset;
+    }
+
+    private synchronized void renew(Lease exhausted) {
+        if (lease != exhausted) {
+            return;
+        }
+        long start = source.reserve(exhausted.end, blockSize);
+        lease = new Lease(start, start + blockSize);
+    }
+
+    // an empty lease ending at the floor, so the next renewal starts there or higher
+    private synchronized void skipTo(Lease current, long floor) {
+        if (lease == current) {
+            lease = new Lease(floor, floor);
+        }
+    }
+
+    private static final class Lease {
+        final AtomicLong next;
+        final long end;
+
+        Lease(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private static final class InMemoryBlockSource implements IdBlockSource {
+        private long firstFree = 1;
+
+        @Override
+        public synchronized long reserve(long floor, int size) {
+            long start = Math.max(firstFree, floor);
+            firstFree = start + size;
+            return start;
+        }
+    }
+
+}
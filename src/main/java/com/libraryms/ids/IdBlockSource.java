@@ -0,0 +1,17 @@
+package com.libraryms.ids;
+
+/**
+ * Hands out disjoint blocks of sequence numbers, remembering the highest one
+ * given out so far. Implementations shared between processes, such as a
+ * locked file, let each process mint IDs from its own block without talking
+ * to the others.
+ */
+public interface IdBlockSource {
+
+    /**
+     * Reserves {@code size} numbers starting at {@code floor} or at the first
+     * number not yet handed out, whichever is higher, and returns the start.
+     */
+    long reserve(long floor, int size);
+
+}
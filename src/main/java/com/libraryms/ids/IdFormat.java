@@ -0,0 +1,62 @@
+package com.libraryms.ids;
+
+/**
+ * A prefix followed by a sequence number zero-padded to six digits, such as
+ * {@code MEM000045}. Numbers past 999999 simply get longer.
+ */
+public final class IdFormat {
+
+    public static final IdFormat MEMBER = new IdFormat("MEM");
+    public static final IdFormat TRANSACTION = new IdFormat("TXN");
+
+    private static final int MIN_DIGITS = 6;
+
+    private final String prefix;
+
+    public IdFormat(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String format(long sequence) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Negative sequence: " + sequence);
+        }
+        int digits = 1;
+        for (long rest = sequence / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        char[] id = new char[prefix.length() + Math.max(digits, MIN_DIGITS)];
+        prefix.getChars(0, prefix.length(), id, 0);
+        for (int i = id.length - 1; i >= prefix.length(); i--) {
+            id[i] = (char) ('0' + sequence % 10);
+            sequence /= 10;
+        }
+        return new String(id);
+    }
+
+    /**
+     * The sequence number of an ID in exactly the form {@link #format} writes,
+     * or -1 for anything else.
+     */
+    public long parse(String id) {
+        int digits = id.length() - prefix.length();
+        if (digits < MIN_DIGITS || digits > 18 || !id.startsWith(prefix)
+                || (digits > MIN_DIGITS && id.charAt(prefix.length()) == '0')) {
+            return -1;
+        }
+        long sequence = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            sequence = sequence * 10 + (c - '0');
+        }
+        return sequence;
+    }
+
+}
@@ -0,0 +1,353 @@
+package com.libraryms.importer;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.service.LibraryException;
+import com.libraryms.service.LibraryService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Streams CSV or TSV files of books or members into a {@link LibraryService}.
+ * Lines are read in batches; each batch is parsed and validated on a worker
+ * thread while the caller commits earlier batches in file order, so at most
+ * {@code 2 * threads} batches are held in memory at once. Checks that depend on
+ * existing data (duplicate ISBNs and emails) run at commit time. A service
+ * holding one partition of the library takes only the rows it owns and
+ * counts the rest as skipped, so every partition can load the same file.
+ */
+public class BulkImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 2_000;
+
+    private static final String[] BOOK_COLUMNS = { "isbn", "title", "author" };
+    private static final String[] MEMBER_COLUMNS = { "firstname", "lastname", "email" };
+
+    private final LibraryService service;
+    private final int threads;
+    private final int batchSize;
+
+    public BulkImporter(LibraryService service) {
+        this(service, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkImporter(LibraryService service, int threads, int batchSize) {
+        this.service = service;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportReport importBooks(Path file) throws IOException {
+        return run(file, BOOK_COLUMNS, BulkImporter::parseBook, book -> {
+            if (!service.ownsBook(book.getIsbn())) {
+                return false;
+            }
+            service.addBook(book);
+            return true;
+        });
+    }
+
+    public ImportReport importMembers(Path file) throws IOException {
+        return run(file, MEMBER_COLUMNS, BulkImporter::parseMember,
+                row -> {
+                    if (!service.ownsRegistration(row.email)) {
+                        return false;
+                    }
+                    service.registerMember(row.firstName, row.lastName, row.email, row.memberType, row.phoneNumber);
+                    return true;
+                });
+    }
+
+    private <T> ImportReport run(Path file, String[] requiredColumns, RowParser<T> parser,
+                                 Predicate<T> committer) throws IOException {
+        long started = System.currentTimeMillis();
+        ImportReport report = new ImportReport(file.toString());
+        char delimiter = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<ParsedRow<T>>>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return report;
+            }
+            Map<String, Integer> columns = readHeader(headerLine, delimiter, requiredColumns);
+
+            long lineNumber = 1;
+            List<String> lines = new ArrayList<>(batchSize);
+            long firstLine = 2;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    inFlight.add(submit(pool, lines, firstLine, delimiter, columns, parser));
+                    lines = new ArrayList<>(batchSize);
+                    firstLine = lineNumber + 1;
+                    if (inFlight.size() >= threads * 2) {
+                        commit(await(inFlight.poll()), committer, report);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(pool, lines, firstLine, delimiter, columns, parser));
+            }
+            while (!inFlight.isEmpty()) {
+                commit(await(inFlight.poll()), committer, report);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - started);
+        return report;
+    }
+
+    private static <T> Future<List<ParsedRow<T>>> submit(ExecutorService pool, List<String> lines, long firstLine,
+                                                         char delimiter, Map<String, Integer> columns,
+                                                         RowParser<T> parser) {
+        return pool.submit(() -> {
+            List<ParsedRow<T>> rows = new ArrayList<>(lines.size());
+            long lineNumber = firstLine;
+            for (String line : lines) {
+                if (!line.trim().isEmpty()) {
+                    try {
+                        String[] fields = splitLine(line, delimiter);
+                        rows.add(new ParsedRow<>(lineNumber, parser.parse(new Row(columns, fields)), null));
+                    } catch (IllegalArgumentException e) {
+                        rows.add(new ParsedRow<>(lineNumber, null, e.getMessage()));
+                    }
+                }
+                lineNumber++;
+            }
+            return rows;
+        });
+    }
+
+    private static <T> List<ParsedRow<T>> await(Future<List<ParsedRow<T>>> batch) throws IOException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import worker failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private <T> void commit(List<ParsedRow<T>> rows, Predicate<T> committer, ImportReport report) {
+        service.runBatch(() -> {
+            for (ParsedRow<T> row : rows) {
+                if (row.error != null) {
+                    report.recordRejected(row.lineNumber, row.error);
+                    continue;
+                }
+                try {
+                    if (committer.test(row.value)) {
+                        report.recordImported();
+                    } else {
+                        report.recordSkipped();
+                    }
+                } catch (LibraryException e) {
+                    report.recordRejected(row.lineNumber, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static Map<String, Integer> readHeader(String headerLine, char delimiter,
+                                                   String[] requiredColumns) throws IOException {
+        String[] names = splitLine(headerLine, delimiter);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        for (String required : requiredColumns) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("Missing required column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    // ---- Row parsing ----
+
+    private static SimpleBook parseBook(Row row) {
+        String isbn = row.required("isbn");
+        String title = row.required("title");
+        String author = row.required("author");
+        SimpleBook book = new SimpleBook(isbn, title, author, parseCategory(row.optional("category")));
+        String publisher = row.optional("publisher");
+        if (publisher != null) {
+            book.setPublisher(publisher);
+        }
+        Integer year = row.optionalInt("year");
+        if (year != null) {
+            book.setYearPublished(year);
+        }
+        Integer copies = row.optionalInt("copies");
+        if (copies != null) {
+            if (copies < 1) {
+                throw new IllegalArgumentException("copies must be at least 1");
+            }
+            book.setTotalCopies(copies);
+            book.setAvailableCopies(copies);
+        }
+        return book;
+    }
+
+    private static MemberRow parseMember(Row row) {
+        MemberRow member = new MemberRow();
+        member.firstName = row.required("firstname");
+        member.lastName = row.required("lastname");
+        member.email = row.required("email");
+        if (member.email.indexOf('@') < 1 || member.email.indexOf('@') == member.email.length() - 1) {
+            throw new IllegalArgumentException("Invalid email: " + member.email);
+        }
+        member.memberType = parseMemberType(row.optional("membertype"));
+        member.phoneNumber = row.optional("phone");
+        return member;
+    }
+
+    public static BookCategory parseCategory(String value) {
+        if (value == null) {
+            return BookCategory.OTHER;
+        }
+        BookCategory category = BookCategory.fromDisplayName(value);
+        if (category != BookCategory.OTHER || value.equalsIgnoreCase(BookCategory.OTHER.getDisplayName())) {
+            return category;
+        }
+        try {
+            return BookCategory.valueOf(value.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown category: " + value);
+        }
+    }
+
+    public static MemberType parseMemberType(String value) {
+        if (value == null) {
+            return MemberType.PUBLIC;
+        }
+        MemberType type = MemberType.fromDisplayName(value);
+        if (type != MemberType.PUBLIC || value.equalsIgnoreCase(MemberType.PUBLIC.getDisplayName())) {
+            return type;
+        }
+        try {
+            return MemberType.valueOf(value.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown member type: " + value);
+        }
+    }
+
+    static String[] splitLine(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    private static final class Row {
+
+        private final Map<String, Integer> columns;
+        private final String[] fields;
+
+        Row(Map<String, Integer> columns, String[] fields) {
+            this.columns = columns;
+            this.fields = fields;
+        }
+
+        String optional(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.length) return null;
+            String value = fields[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        String required(String column) {
+            String value = optional(column);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing " + column);
+            }
+            return value;
+        }
+
+        Integer optionalInt(String column) {
+            String value = optional(column);
+            if (value == null) return null;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+
+    }
+
+    private static final class ParsedRow<T> {
+
+        final long lineNumber;
+        final T value;
+        final String error;
+
+        ParsedRow(long lineNumber, T value, String error) {
+            this.lineNumber = lineNumber;
+            this.value = value;
+            this.error = error;
+        }
+
+    }
+
+    private static final class MemberRow {
+        String firstName;
+        String lastName;
+        String email;
+        MemberType memberType;
+        String phoneNumber;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.libraryms.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImportReport {
+
+    public static final int MAX_RECORDED_ERRORS = 10_000;
+
+    private final String source;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long rowsSkipped;
+    private long elapsedMillis;
+    private final List<RowError> errors;
+
+    public ImportReport(String source) {
+        this.source = source;
+        this.errors = new ArrayList<>();
+    }
+
+    void recordImported() {
+        rowsRead++;
+        rowsImported++;
+    }
+
+    /** A valid row owned by another partition of the library. */
+    void recordSkipped() {
+        rowsRead++;
+        rowsSkipped++;
+    }
+
+    void recordRejected(long lineNumber, String message) {
+        rowsRead++;
+        rowsRejected++;
+        if (errors.size() < MAX_RECORDED_ERRORS) {
+            errors.add(new RowError(lineNumber, message));
+        }
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getSource() { return source; }
+
+    public long getRowsRead() { return rowsRead; }
+
+    public long getRowsImported() { return rowsImported; }
+
+    public long getRowsRejected() { return rowsRejected; }
+
+    public long getRowsSkipped() { return rowsSkipped; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Import{source='%s', read=%d, imported=%d, rejected=%d, skipped=%d, time=%dms}",
+                source, rowsRead, rowsImported, rowsRejected, rowsSkipped, elapsedMillis);
+    }
+
+    public static class RowError {
+
+        private final long lineNumber;
+        private final String message;
+
+        RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + message;
+        }
+
+    }
+
+}
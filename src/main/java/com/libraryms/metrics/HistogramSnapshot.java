@@ -0,0 +1,64 @@
+package com.libraryms.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. Percentiles report the
+ * highest value of the bucket they fall in, so they never understate; the mean
+ * is estimated from bucket midpoints.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] buckets;
+    private final long count;
+
+    HistogramSnapshot(long[] buckets) {
+        long sum = 0;
+        for (long bucket : buckets) {
+            sum += bucket;
+        }
+        this.buckets = buckets;
+        this.count = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanNanos() {
+        if (count == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != 0) {
+                total += buckets[i] * (LatencyHistogram.lowestValueIn(i) + LatencyHistogram.highestValueIn(i)) / 2.0;
+            }
+        }
+        return total / count;
+    }
+
+    /** Latency at or below which {@code percentile} percent of the recorded values fall. */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return LatencyHistogram.highestValueIn(i);
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public long getMaxNanos() {
+        for (int i = buckets.length - 1; i >= 0; i--) {
+            if (buckets[i] != 0) {
+                return LatencyHistogram.highestValueIn(i);
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.libraryms.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. Buckets are log-linear:
+ * every power of two is split into eight sub-buckets, so a reported value is
+ * within 12.5% of what was recorded. Recording is a single atomic increment.
+ * Counts are striped by thread, each stripe on its own cache lines, so
+ * concurrent recorders rarely contend; a snapshot adds the stripes up.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^40 ns is about 18 minutes; anything slower lands in the last bucket
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - 1) * SUB_BUCKETS;
+    // a cache line of padding between stripes
+    private static final int STRIPE_LENGTH = BUCKETS + 8;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+
+    public void record(long nanos) {
+        int base = ((int) Thread.currentThread().threadId() & (STRIPES - 1)) * STRIPE_LENGTH;
+        counts.getAndIncrement(base + bucketFor(nanos));
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * STRIPE_LENGTH;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += counts.get(base + i);
+            }
+        }
+        return new HistogramSnapshot(buckets);
+    }
+
+    /** Clears all counts. Values recorded while this runs may or may not survive. */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int bucketFor(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS
+                + (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    }
+
+    static long lowestValueIn(int bucket) {
+        return bucket == 0 ? 0 : highestValueIn(bucket - 1) + 1;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static int stripeCount() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+        return Integer.highestOneBit(Math.max(processors * 2 - 1, 1));
+    }
+
+}
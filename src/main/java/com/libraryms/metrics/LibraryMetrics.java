@@ -0,0 +1,64 @@
+package com.libraryms.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class LibraryMetrics implements LibraryMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.libraryms:type=LibraryMetrics";
+
+    private final OperationMetrics metrics;
+
+    public LibraryMetrics(OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Registers the metrics with the platform MBean server, replacing any earlier registration. */
+    public static void register(OperationMetrics metrics) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(new LibraryMetrics(metrics), name);
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (OperationMetrics.Entry entry : metrics.snapshot()) {
+            stats.add(new OperationStats(entry));
+        }
+        return stats;
+    }
+
+    @Override
+    public long getTotalOperations() {
+        long total = 0;
+        for (OperationMetrics.Entry entry : metrics.snapshot()) {
+            total += entry.getLatencies().getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalFailures() {
+        long failures = 0;
+        for (OperationMetrics.Entry entry : metrics.snapshot()) {
+            if (!OperationMetrics.SUCCESS.equals(entry.getOutcome())) {
+                failures += entry.getLatencies().getCount();
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+
+}
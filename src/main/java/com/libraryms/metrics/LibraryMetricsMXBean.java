@@ -0,0 +1,20 @@
+package com.libraryms.metrics;
+
+import java.util.List;
+
+/**
+ * Management view of {@link OperationMetrics}, registered as
+ * {@value LibraryMetrics#OBJECT_NAME}. Latencies are in microseconds and
+ * cover everything recorded since startup or the last {@link #reset()}.
+ */
+public interface LibraryMetricsMXBean {
+
+    List<OperationStats> getOperations();
+
+    long getTotalOperations();
+
+    long getTotalFailures();
+
+    void reset();
+
+}
@@ -0,0 +1,22 @@
+package com.libraryms.metrics;
+
+public enum Operation {
+    ADD_BOOK,
+    UPDATE_BOOK,
+    DELETE_BOOK,
+    SEARCH_BOOKS,
+    REGISTER_MEMBER,
+    UPDATE_MEMBER,
+    SEARCH_MEMBERS,
+    BORROW,
+    RETURN,
+    CHARGE_LOAN,
+    SETTLE_LOAN,
+    CHARGE_FINE,
+    OVERDUE_REPORT,
+    ACCRUE_FINES,
+    PLACE_HOLD,
+    CANCEL_HOLD,
+    RELEASE_EXPIRED_HOLDS,
+    CIRCULATION_ANALYTICS
+}
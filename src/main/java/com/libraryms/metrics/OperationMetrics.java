@@ -0,0 +1,107 @@
+package com.libraryms.metrics;
+
+import com.libraryms.service.ErrorCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency histograms for every operation and outcome. An outcome is success,
+ * one of the {@link ErrorCode}s, or an unexpected exception; a histogram is
+ * only allocated the first time its combination is recorded.
+ */
+public final class OperationMetrics {
+
+    public static final String SUCCESS = "OK";
+    public static final String UNEXPECTED = "UNEXPECTED";
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+    // slot 0 is success, then one per error code, then unexpected failures
+    private static final int OUTCOMES = ERROR_CODES.length + 2;
+    private static final int UNEXPECTED_SLOT = OUTCOMES - 1;
+
+    private final AtomicReferenceArray<LatencyHistogram> histograms =
+            new AtomicReferenceArray<>(OPERATIONS.length * OUTCOMES);
+
+    public void recordSuccess(Operation operation, long startNanos) {
+        record(operation, 0, startNanos);
+    }
+
+    public void recordFailure(Operation operation, ErrorCode code, long startNanos) {
+        record(operation, code.ordinal() + 1, startNanos);
+    }
+
+    public void recordUnexpected(Operation operation, long startNanos) {
+        record(operation, UNEXPECTED_SLOT, startNanos);
+    }
+
+    private void record(Operation operation, int outcome, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        int slot = operation.ordinal() * OUTCOMES + outcome;
+        LatencyHistogram histogram = histograms.get(slot);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.compareAndExchange(slot, null, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(elapsed);
+    }
+
+    /** One entry per operation and outcome recorded so far, in declaration order. */
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot < histograms.length(); slot++) {
+            LatencyHistogram histogram = histograms.get(slot);
+            if (histogram != null) {
+                entries.add(new Entry(OPERATIONS[slot / OUTCOMES], outcomeName(slot % OUTCOMES), histogram.snapshot()));
+            }
+        }
+        return entries;
+    }
+
+    public void reset() {
+        for (int slot = 0; slot < histograms.length(); slot++) {
+            LatencyHistogram histogram = histograms.get(slot);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private static String outcomeName(int outcome) {
+        if (outcome == 0) {
+            return SUCCESS;
+        }
+        return outcome == UNEXPECTED_SLOT ? UNEXPECTED : ERROR_CODES[outcome - 1].name();
+    }
+
+    public static final class Entry {
+
+        private final Operation operation;
+        private final String outcome;
+        private final HistogramSnapshot latencies;
+
+        Entry(Operation operation, String outcome, HistogramSnapshot latencies) {
+            this.operation = operation;
+            this.outcome = outcome;
+            this.latencies = latencies;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+
+        public HistogramSnapshot getLatencies() {
+            return latencies;
+        }
+
+    }
+
+}
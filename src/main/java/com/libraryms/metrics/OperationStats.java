@@ -0,0 +1,69 @@
+package com.libraryms.metrics;
+
+/**
+ * Percentile summary of one operation and outcome, as published over JMX.
+ */
+public final class OperationStats {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String operation;
+    private final String outcome;
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    OperationStats(OperationMetrics.Entry entry) {
+        HistogramSnapshot latencies = entry.getLatencies();
+        this.operation = entry.getOperation().name();
+        this.outcome = entry.getOutcome();
+        this.count = latencies.getCount();
+        this.meanMicros = latencies.getMeanNanos() / NANOS_PER_MICRO;
+        this.p50Micros = latencies.getValueAtPercentile(50) / NANOS_PER_MICRO;
+        this.p90Micros = latencies.getValueAtPercentile(90) / NANOS_PER_MICRO;
+        this.p99Micros = latencies.getValueAtPercentile(99) / NANOS_PER_MICRO;
+        this.p999Micros = latencies.getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+        this.maxMicros = latencies.getMaxNanos() / NANOS_PER_MICRO;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP90Micros() {
+        return p90Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.libraryms.model;
+
+public interface BookChangeListener {
+
+    void bookChanged(SimpleBook book, String property, Object oldValue, Object newValue);
+
+}
@@ -0,0 +1,219 @@
+package com.libraryms.model;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The physical copies of one title, numbered from 0. Two bitsets say which
+ * copies are on the shelf and which are on the hold shelf; a copy in neither
+ * is out on loan. Each change is a compare-and-set on one word, so a copy is
+ * taken or put back in a single atomic step and readers never lock. Changes to
+ * one title are still serialised by the caller (the service holds the book's
+ * lock) so they stay in step with the counts on {@link SimpleBook}.
+ *
+ * <p>A copy's barcode is its title's ISBN followed by {@code -C} and the
+ * copy number counted from 1, so a barcode leads straight to its copy.
+ */
+public final class BookCopies {
+
+    public static final int NO_COPY = -1;
+
+    private static final String BARCODE_SEPARATOR = "-C";
+    private static final int MIN_BARCODE_DIGITS = 3;
+
+    private final int count;
+    private final AtomicLongArray onShelf;
+    private final AtomicLongArray onHoldShelf;
+
+    /** {@code count} copies, all on the shelf. */
+    public BookCopies(int count) {
+        this(count, new long[0]);
+    }
+
+    private BookCopies(int count, long[] shelved) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Copy count must not be negative");
+        }
+        this.count = count;
+        int words = (count + 63) >>> 6;
+        this.onShelf = new AtomicLongArray(words);
+        this.onHoldShelf = new AtomicLongArray(words);
+        for (int word = 0; word < words; word++) {
+            long valid = word == words - 1 && (count & 63) != 0 ? (1L << count) - 1 : -1L;
+            onShelf.set(word, (word < shelved.length ? shelved[word] : -1L) & valid);
+        }
+    }
+
+    /** The copy's barcode, its number counted from 1 zero-padded to three digits; more digits once past 999. */
+    public static String barcode(String isbn, int copyNumber) {
+        int number = copyNumber + 1;
+        int digits = 1;
+        for (int rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int prefix = isbn.length() + BARCODE_SEPARATOR.length();
+        char[] barcode = new char[prefix + Math.max(digits, MIN_BARCODE_DIGITS)];
+        isbn.getChars(0, isbn.length(), barcode, 0);
+        BARCODE_SEPARATOR.getChars(0, BARCODE_SEPARATOR.length(), barcode, isbn.length());
+        for (int i = barcode.length - 1; i >= prefix; i--) {
+            barcode[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(barcode);
+    }
+
+    /** The ISBN part of a barcode, or null if it is not a copy barcode. */
+    public static String isbnOf(String barcode) {
+        int separator = barcode.lastIndexOf(BARCODE_SEPARATOR);
+        return separator > 0 && copyNumberOf(barcode) != NO_COPY ? barcode.substring(0, separator) : null;
+    }
+
+    /** The copy number a barcode stands for, or {@link #NO_COPY} if it is not a copy barcode. */
+    public static int copyNumberOf(String barcode) {
+        int separator = barcode.lastIndexOf(BARCODE_SEPARATOR);
+        int start = separator + BARCODE_SEPARATOR.length();
+        if (separator <= 0 || start == barcode.length() || barcode.length() - start > 9) {
+            return NO_COPY;
+        }
+        int number = 0;
+        for (int i = start; i < barcode.length(); i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_COPY;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number > 0 ? number - 1 : NO_COPY;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /** Takes the lowest-numbered copy off the shelf; {@link #NO_COPY} if none is there. */
+    public int takeFromShelf() {
+        for (int word = 0; word < onShelf.length(); word++) {
+            long bits;
+            while ((bits = onShelf.get(word)) != 0) {
+                long lowest = Long.lowestOneBit(bits);
+                if (onShelf.compareAndSet(word, bits, bits & ~lowest)) {
+                    return (word << 6) + Long.numberOfTrailingZeros(lowest);
+                }
+            }
+        }
+        return NO_COPY;
+    }
+
+    /** Takes a particular copy off the shelf, e.g. one recorded as on loan in a snapshot. */
+    public boolean takeFromShelf(int copyNumber) {
+        return copyNumber >= 0 && copyNumber < count && clear(onShelf, copyNumber);
+    }
+
+    /** Puts a copy that is out on loan back on the shelf. */
+    public boolean returnToShelf(int copyNumber) {
+        return copyNumber >= 0 && copyNumber < count && statusOf(copyNumber) == CopyStatus.ON_LOAN
+                && set(onShelf, copyNumber);
+    }
+
+    /** Moves a shelf copy to the hold shelf. */
+    public boolean moveToHoldShelf(int copyNumber) {
+        if (!takeFromShelf(copyNumber)) {
+            return false;
+        }
+        set(onHoldShelf, copyNumber);
+        return true;
+    }
+
+    /** Takes a copy off the hold shelf to lend it. */
+    public boolean takeFromHoldShelf(int copyNumber) {
+        return copyNumber >= 0 && copyNumber < count && clear(onHoldShelf, copyNumber);
+    }
+
+    /** Moves a copy from the hold shelf back to the shelf. */
+    public boolean releaseFromHoldShelf(int copyNumber) {
+        if (copyNumber < 0 || copyNumber >= count || !clear(onHoldShelf, copyNumber)) {
+            return false;
+        }
+        set(onShelf, copyNumber);
+        return true;
+    }
+
+    public CopyStatus statusOf(int copyNumber) {
+        if (copyNumber < 0 || copyNumber >= count) {
+            throw new IndexOutOfBoundsException("Copy " + copyNumber + " of " + count);
+        }
+        if (isSet(onShelf, copyNumber)) {
+            return CopyStatus.ON_SHELF;
+        }
+        return isSet(onHoldShelf, copyNumber) ? CopyStatus.ON_HOLD_SHELF : CopyStatus.ON_LOAN;
+    }
+
+    /** The lowest-numbered copy on the shelf from {@code from} on, or {@link #NO_COPY}. */
+    public int nextOnShelf(int from) {
+        if (from < 0 || from >= count) {
+            return NO_COPY;
+        }
+        int word = from >>> 6;
+        long bits = onShelf.get(word) & (-1L << from);
+        while (bits == 0) {
+            if (++word == onShelf.length()) {
+                return NO_COPY;
+            }
+            bits = onShelf.get(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    public int countOnShelf() {
+        int total = 0;
+        for (int word = 0; word < onShelf.length(); word++) {
+            total += Long.bitCount(onShelf.get(word));
+        }
+        return total;
+    }
+
+    /** The copies on the shelf as a bitset indexed by copy number; later changes do not show up in it. */
+    public BitSet onShelf() {
+        long[] words = new long[onShelf.length()];
+        for (int word = 0; word < words.length; word++) {
+            words[word] = onShelf.get(word);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * The same copies with the count changed: added copies start on the
+     * shelf, and copies numbered past the new count are dropped.
+     */
+    public BookCopies resize(int newCount) {
+        long[] shelved = new long[onShelf.length()];
+        for (int word = 0; word < shelved.length; word++) {
+            shelved[word] = onShelf.get(word);
+        }
+        // a new copy sits in bits that were above the old count, where the old words hold 0
+        if ((count & 63) != 0 && shelved.length > 0) {
+            shelved[shelved.length - 1] |= -1L << count;
+        }
+        BookCopies resized = new BookCopies(newCount, shelved);
+        for (int word = 0; word < Math.min(onHoldShelf.length(), resized.onHoldShelf.length()); word++) {
+            long valid = resized.onShelf.length() - 1 == word && (newCount & 63) != 0 ? (1L << newCount) - 1 : -1L;
+            resized.onHoldShelf.set(word, onHoldShelf.get(word) & valid);
+        }
+        return resized;
+    }
+
+    private static boolean isSet(AtomicLongArray bits, int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private static boolean set(AtomicLongArray bits, int index) {
+        long mask = 1L << index;
+        return (bits.getAndAccumulate(index >>> 6, mask, (word, m) -> word | m) & mask) == 0;
+    }
+
+    private static boolean clear(AtomicLongArray bits, int index) {
+        long mask = 1L << index;
+        return (bits.getAndAccumulate(index >>> 6, mask, (word, m) -> word & ~m) & mask) != 0;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.libraryms.model;
+
+public enum CopyStatus {
+    ON_SHELF("On Shelf", "Copy is on the shelf and can be borrowed"),
+    ON_HOLD_SHELF("On Hold Shelf", "Copy is set aside for a member who placed a hold"),
+    ON_LOAN("On Loan", "Copy is borrowed by a member");
+    
+    private final String displayName;
+    private final String description;
+    
+    CopyStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.libraryms.model;
+
+public interface MemberChangeListener {
+
+    void memberChanged(SimpleMember member, String property, Object oldValue, Object newValue);
+
+}
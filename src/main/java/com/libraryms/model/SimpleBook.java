@@ -14,9 +14,12 @@ public class SimpleBook {
     private String description;
     private Integer totalCopies;
     private Integer availableCopies;
+    private int heldCopies;
+    private volatile BookCopies copies;
     private BookStatus status;
     private LocalDateTime dateAdded;
     private LocalDateTime lastUpdated;
+    private BookChangeListener changeListener;
     
    
     public SimpleBook() {
@@ -43,20 +46,26 @@ public class SimpleBook {
     
     public String getTitle() { return title; }
     public void setTitle(String title) { 
+        String oldTitle = this.title;
         this.title = title; 
         this.lastUpdated = LocalDateTime.now();
+        fireChange("title", oldTitle, title);
     }
     
     public String getAuthor() { return author; }
     public void setAuthor(String author) { 
+        String oldAuthor = this.author;
         this.author = author; 
         this.lastUpdated = LocalDateTime.now();
+        fireChange("author", oldAuthor, author);
     }
     
     public BookCategory getCategory() { return category; }
     public void setCategory(BookCategory category) { 
+        BookCategory oldCategory = this.category;
         this.category = category; 
         this.lastUpdated = LocalDateTime.now();
+        fireChange("category", oldCategory, category);
     }
     
     public String getPublisher() { return publisher; }
@@ -80,6 +89,9 @@ public class SimpleBook {
     public Integer getTotalCopies() { return totalCopies; }
     public void setTotalCopies(Integer totalCopies) { 
         this.totalCopies = totalCopies; 
+        if (this.copies != null) {
+            this.copies = this.copies.resize(totalCopies);
+        }
         this.lastUpdated = LocalDateTime.now();
     }
     
@@ -89,10 +101,33 @@ public class SimpleBook {
         this.lastUpdated = LocalDateTime.now();
     }
     
+    /** Copies kept on the hold shelf for members who placed a hold; not counted as available. */
+    public int getHeldCopies() { return heldCopies; }
+    public void setHeldCopies(int heldCopies) { this.heldCopies = heldCopies; }
+    
+    /** The physical copies, created on first use with every copy on the shelf. */
+    public BookCopies getCopies() {
+        BookCopies result = copies;
+        if (result == null) {
+            synchronized (this) {
+                result = copies;
+                if (result == null) {
+                    result = new BookCopies(totalCopies);
+                    copies = result;
+                }
+            }
+        }
+        return result;
+    }
+    
     public BookStatus getStatus() { return status; }
     public void setStatus(BookStatus status) { 
+        BookStatus oldStatus = this.status;
         this.status = status; 
         this.lastUpdated = LocalDateTime.now();
+        if (oldStatus != status) {
+            fireChange("status", oldStatus, status);
+        }
     }
     
     public LocalDateTime getDateAdded() { return dateAdded; }
@@ -101,25 +136,96 @@ public class SimpleBook {
     public LocalDateTime getLastUpdated() { return lastUpdated; }
     public void setLastUpdated(LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
     
+    public BookChangeListener getChangeListener() { return changeListener; }
+    public void setChangeListener(BookChangeListener changeListener) { this.changeListener = changeListener; }
+    
+    private void fireChange(String property, Object oldValue, Object newValue) {
+        if (changeListener != null) {
+            changeListener.bookChanged(this, property, oldValue, newValue);
+        }
+    }
+    
     public boolean isAvailable() {
         return status == BookStatus.AVAILABLE && availableCopies > 0;
     }
     
-    public void borrowCopy() {
-        if (isAvailable()) {
-            this.availableCopies--;
+    /**
+     * Takes the lowest-numbered copy off the shelf and returns its number, or
+     * {@link BookCopies#NO_COPY} if the book is not available.
+     */
+    public int borrowCopy() {
+        int copy = isAvailable() ? getCopies().takeFromShelf() : BookCopies.NO_COPY;
+        if (copy != BookCopies.NO_COPY) {
+            copyLent();
+        }
+        return copy;
+    }
+    
+    /** Takes a particular copy off the shelf, e.g. the one a journal records as lent. */
+    public boolean borrowCopy(int copyNumber) {
+        if (!getCopies().takeFromShelf(copyNumber)) {
+            return false;
+        }
+        copyLent();
+        return true;
+    }
+    
+    private void copyLent() {
+        this.availableCopies--;
+        if (this.availableCopies == 0) {
+            setStatus(heldCopies > 0 ? BookStatus.RESERVED : BookStatus.BORROWED);
+        }
+        this.lastUpdated = LocalDateTime.now();
+    }
+    
+    /** Lends the copy set aside on the hold shelf to the member whose hold it was for. */
+    public void lendHeldCopy(int copyNumber) {
+        if (getCopies().takeFromHoldShelf(copyNumber)) {
+            this.heldCopies--;
             if (this.availableCopies == 0) {
-                this.status = BookStatus.BORROWED;
+                setStatus(heldCopies > 0 ? BookStatus.RESERVED : BookStatus.BORROWED);
             }
             this.lastUpdated = LocalDateTime.now();
         }
     }
     
-    public void returnCopy() {
-        if (this.availableCopies < this.totalCopies) {
+    public void returnCopy(int copyNumber) {
+        if (getCopies().returnToShelf(copyNumber)) {
             this.availableCopies++;
-            this.status = BookStatus.AVAILABLE;
-            this.lastUpdated = LocalDateTime.now();
+            setStatus(BookStatus.AVAILABLE);
+        }
+    }
+    
+    /**
+     * Moves the lowest-numbered shelf copy to the hold shelf for the next
+     * member in the hold queue and returns its number; the book is RESERVED
+     * once no copy is left on the shelf.
+     */
+    public int holdCopy() {
+        int copy = getCopies().nextOnShelf(0);
+        return holdCopy(copy) ? copy : BookCopies.NO_COPY;
+    }
+    
+    /** Moves a particular shelf copy to the hold shelf, e.g. the one a journal records as set aside. */
+    public boolean holdCopy(int copyNumber) {
+        if (!getCopies().moveToHoldShelf(copyNumber)) {
+            return false;
+        }
+        this.availableCopies--;
+        this.heldCopies++;
+        if (this.availableCopies == 0) {
+            setStatus(BookStatus.RESERVED);
+        }
+        this.lastUpdated = LocalDateTime.now();
+        return true;
+    }
+    
+    /** Puts a copy from the hold shelf back on the shelf, e.g. when its hold is collected or lapses. */
+    public void releaseHeldCopy(int copyNumber) {
+        if (getCopies().releaseFromHoldShelf(copyNumber)) {
+            this.heldCopies--;
+            this.availableCopies++;
+            setStatus(BookStatus.AVAILABLE);
         }
     }
     
@@ -16,6 +16,7 @@ public class SimpleMember {
     private LocalDate membershipEndDate;
     private double totalFinesOwed;
     private int currentBorrowedBooks;
+    private MemberChangeListener changeListener;
 
     public SimpleMember(String memberId, String firstName, String lastName, String email, MemberType memberType) {
         this.memberId = memberId;
@@ -34,13 +35,25 @@ public class SimpleMember {
     public void setMemberId(String memberId) { this.memberId = memberId; }
 
     public String getFirstName() { return firstName; }
-    public void setFirstName(String firstName) { this.firstName = firstName; }
+    public void setFirstName(String firstName) {
+        String oldFirstName = this.firstName;
+        this.firstName = firstName;
+        fireChange("firstName", oldFirstName, firstName);
+    }
 
     public String getLastName() { return lastName; }
-    public void setLastName(String lastName) { this.lastName = lastName; }
+    public void setLastName(String lastName) {
+        String oldLastName = this.lastName;
+        this.lastName = lastName;
+        fireChange("lastName", oldLastName, lastName);
+    }
 
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) {
+        String oldEmail = this.email;
+        this.email = email;
+        fireChange("email", oldEmail, email);
+    }
 
     public String getPhoneNumber() { return phoneNumber; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
@@ -49,10 +62,22 @@ public class SimpleMember {
     public void setAddress(String address) { this.address = address; }
 
     public MemberType getMemberType() { return memberType; }
-    public void setMemberType(MemberType memberType) { this.memberType = memberType; }
+    public void setMemberType(MemberType memberType) {
+        MemberType oldMemberType = this.memberType;
+        this.memberType = memberType;
+        if (oldMemberType != memberType) {
+            fireChange("memberType", oldMemberType, memberType);
+        }
+    }
 
     public MemberStatus getStatus() { return status; }
-    public void setStatus(MemberStatus status) { this.status = status; }
+    public void setStatus(MemberStatus status) {
+        MemberStatus oldStatus = this.status;
+        this.status = status;
+        if (oldStatus != status) {
+            fireChange("status", oldStatus, status);
+        }
+    }
 
     public LocalDate getDateOfBirth() { return dateOfBirth; }
     public void setDateOfBirth(LocalDate dateOfBirth) { this.dateOfBirth = dateOfBirth; }
@@ -67,7 +92,22 @@ public class SimpleMember {
     public void setTotalFinesOwed(double totalFinesOwed) { this.totalFinesOwed = totalFinesOwed; }
 
     public int getCurrentBorrowedBooks() { return currentBorrowedBooks; }
-    public void setCurrentBorrowedBooks(int currentBorrowedBooks) { this.currentBorrowedBooks = currentBorrowedBooks; }
+    public void setCurrentBorrowedBooks(int currentBorrowedBooks) {
+        int oldCount = this.currentBorrowedBooks;
+        this.currentBorrowedBooks = currentBorrowedBooks;
+        if (oldCount != currentBorrowedBooks) {
+            fireChange("currentBorrowedBooks", oldCount, currentBorrowedBooks);
+        }
+    }
+
+    public MemberChangeListener getChangeListener() { return changeListener; }
+    public void setChangeListener(MemberChangeListener changeListener) { this.changeListener = changeListener; }
+
+    private void fireChange(String property, Object oldValue, Object newValue) {
+        if (changeListener != null) {
+            changeListener.memberChanged(this, property, oldValue, newValue);
+        }
+    }
 
     public String getFullName() {
         return firstName + " " + lastName;
@@ -91,7 +131,7 @@ public class SimpleMember {
 
     public void borrowBook() {
         if (canBorrowBooks()) {
-            currentBorrowedBooks++;
+            setCurrentBorrowedBooks(currentBorrowedBooks + 1);
         } else {
             throw new IllegalStateException("Member cannot borrow more books");
         }
@@ -99,14 +139,14 @@ public class SimpleMember {
 
     public void returnBook() {
         if (currentBorrowedBooks > 0) {
-            currentBorrowedBooks--;
+            setCurrentBorrowedBooks(currentBorrowedBooks - 1);
         }
     }
 
     public void renewMembership(int months) {
         this.membershipEndDate = this.membershipEndDate.plusMonths(months);
         if (this.status == MemberStatus.EXPIRED) {
-            this.status = MemberStatus.ACTIVE;
+            setStatus(MemberStatus.ACTIVE);
         }
     }
 
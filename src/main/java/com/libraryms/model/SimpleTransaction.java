@@ -3,10 +3,14 @@ package com.libraryms.model;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
-public class SimpleTransaction {
+public class SimpleTransaction implements TransactionView {
+
+    public static final double DAILY_FINE = 0.50;
+
     private String transactionId;
     private String memberId;
     private String bookIsbn;
+    private int copyNumber = BookCopies.NO_COPY;
     private TransactionType type;
     private LocalDateTime transactionDate;
     private LocalDate dueDate;
@@ -29,6 +33,30 @@ public class SimpleTransaction {
         }
     }
 
+    public SimpleTransaction(String transactionId, String memberId, String bookIsbn, TransactionType type,
+                             LocalDateTime transactionDate, LocalDate dueDate) {
+        this.transactionId = transactionId;
+        this.memberId = memberId;
+        this.bookIsbn = bookIsbn;
+        this.type = type;
+        this.transactionDate = transactionDate;
+        this.dueDate = dueDate;
+        this.status = TransactionStatus.ACTIVE;
+        this.fineAmount = 0.0;
+    }
+
+    /** A mutable copy of any transaction, for example a row of the transaction history. */
+    public static SimpleTransaction copyOf(TransactionView source) {
+        SimpleTransaction copy = new SimpleTransaction(source.getTransactionId(), source.getMemberId(),
+                source.getBookIsbn(), source.getType(), source.getTransactionDate(), source.getDueDate());
+        copy.setCopyNumber(source.getCopyNumber());
+        copy.setReturnDate(source.getReturnDate());
+        copy.setFineAmount(source.getFineAmount());
+        copy.setStatus(source.getStatus());
+        copy.setNotes(source.getNotes());
+        return copy;
+    }
+
     public String getTransactionId() { return transactionId; }
     public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
 
@@ -38,6 +66,10 @@ public class SimpleTransaction {
     public String getBookIsbn() { return bookIsbn; }
     public void setBookIsbn(String bookIsbn) { this.bookIsbn = bookIsbn; }
 
+    /** The copy lent or set aside, or {@link BookCopies#NO_COPY} if none is yet. */
+    public int getCopyNumber() { return copyNumber; }
+    public void setCopyNumber(int copyNumber) { this.copyNumber = copyNumber; }
+
     public TransactionType getType() { return type; }
     public void setType(TransactionType type) { this.type = type; }
 
@@ -59,29 +91,30 @@ public class SimpleTransaction {
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
 
-    public boolean isOverdue() {
-        return type == TransactionType.BORROW && 
-               status == TransactionStatus.ACTIVE && 
-               dueDate != null && 
-               LocalDate.now().isAfter(dueDate);
+    public void calculateFine() {
+        calculateFine(LocalDate.now());
     }
 
-    public long getDaysOverdue() {
-        if (!isOverdue()) return 0;
-        return java.time.temporal.ChronoUnit.DAYS.between(dueDate, LocalDate.now());
+    public void calculateFine(LocalDate asOf) {
+        if (isOverdue(asOf)) {
+            fineAmount = accruedFine(asOf);
+        }
     }
 
-    public void calculateFine() {
-        if (isOverdue()) {
-            long daysOverdue = getDaysOverdue();
-            fineAmount = daysOverdue * 0.50; 
-        }
+    /** The fine this loan has run up by {@code asOf}, without recording it. */
+    public double accruedFine(LocalDate asOf) {
+        return isOverdue(asOf) ? getDaysOverdue(asOf) * DAILY_FINE : 0.0;
     }
 
     public void completeReturn() {
-        this.returnDate = LocalDate.now();
+        completeReturn(LocalDate.now());
+    }
+
+    /** Closes the loan with the fine it has run up by {@code returnDate}, replacing any accrued earlier. */
+    public void completeReturn(LocalDate returnDate) {
+        fineAmount = accruedFine(returnDate);
+        this.returnDate = returnDate;
         this.status = TransactionStatus.COMPLETED;
-        calculateFine();
     }
 
     @Override
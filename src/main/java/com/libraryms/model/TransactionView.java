@@ -0,0 +1,64 @@
+package com.libraryms.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Read-only access to a transaction, whether it is a {@link SimpleTransaction}
+ * or a row of the columnar transaction history.
+ */
+public interface TransactionView {
+
+    String getTransactionId();
+
+    String getMemberId();
+
+    String getBookIsbn();
+
+    int getCopyNumber();
+
+    TransactionType getType();
+
+    LocalDateTime getTransactionDate();
+
+    LocalDate getDueDate();
+
+    LocalDate getReturnDate();
+
+    double getFineAmount();
+
+    TransactionStatus getStatus();
+
+    String getNotes();
+
+    /** Barcode of the copy lent or set aside, or null if there is none. */
+    default String getCopyBarcode() {
+        int copyNumber = getCopyNumber();
+        return copyNumber != BookCopies.NO_COPY ? BookCopies.barcode(getBookIsbn(), copyNumber) : null;
+    }
+
+    default boolean isOverdue() {
+        return isOverdue(LocalDate.now());
+    }
+
+    default boolean isOverdue(LocalDate asOf) {
+        LocalDate dueDate = getDueDate();
+        return getType() == TransactionType.BORROW &&
+               getStatus() == TransactionStatus.ACTIVE &&
+               dueDate != null &&
+               asOf.isAfter(dueDate);
+    }
+
+    default long getDaysOverdue() {
+        return getDaysOverdue(LocalDate.now());
+    }
+
+    default long getDaysOverdue(LocalDate asOf) {
+        LocalDate dueDate = getDueDate();
+        if (getType() != TransactionType.BORROW || dueDate == null) return 0;
+        LocalDate end = getReturnDate() != null ? getReturnDate() : asOf;
+        return Math.max(0, ChronoUnit.DAYS.between(dueDate, end));
+    }
+
+}
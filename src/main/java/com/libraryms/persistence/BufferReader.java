@@ -0,0 +1,103 @@
+package com.libraryms.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads journal and mapped catalog records straight from a buffer, in the
+ * encoding {@link java.io.DataOutput} writes them. Only what
+ * {@link RecordCodec} and the journal read is supported.
+ */
+final class BufferReader {
+
+    private ByteBuffer buffer;
+
+    BufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    private void require(int bytes) throws EOFException {
+        if (buffer.remaining() < bytes) {
+            throw new EOFException();
+        }
+    }
+
+    boolean readBoolean() throws IOException {
+        require(1);
+        return buffer.get() != 0;
+    }
+
+    byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    String readUTF() throws IOException {
+        require(2);
+        int length = buffer.getShort() & 0xFFFF;
+        require(length);
+        int start = buffer.position();
+        boolean ascii = true;
+        for (int i = start; i < start + length; i++) {
+            if (buffer.get(i) <= 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii && buffer.hasArray()) {
+            buffer.position(start + length);
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[length];
+        int count = 0;
+        int end = start + length;
+        while (buffer.position() < end) {
+            int a = buffer.get() & 0xFF;
+            if (a < 0x80) {
+                chars[count++] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((a & 0x1F) << 6) | continuation(end));
+            } else if ((a & 0xF0) == 0xE0) {
+                int b = continuation(end);
+                chars[count++] = (char) (((a & 0x0F) << 12) | (b << 6) | continuation(end));
+            } else {
+                throw new UTFDataFormatException("Malformed input around byte " + (buffer.position() - 1));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int continuation(int end) throws UTFDataFormatException {
+        if (buffer.position() >= end) {
+            throw new UTFDataFormatException("Partial character at end of input");
+        }
+        int b = buffer.get() & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw new UTFDataFormatException("Malformed input around byte " + (buffer.position() - 1));
+        }
+        return b & 0x3F;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.libraryms.persistence;
+
+import com.libraryms.ids.IdBlockSource;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Eight-byte file holding the first sequence number not yet leased. Each
+ * reservation locks the file, bumps the mark and forces it to disk before the
+ * block is used, so a restart (or another process sharing the file) always
+ * continues above every number that may have been minted.
+ */
+public class HighWaterMarkFile implements IdBlockSource, AutoCloseable {
+
+    private static final int MARK_SIZE = Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer mark;
+
+    public HighWaterMarkFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mark = ByteBuffer.allocate(MARK_SIZE);
+    }
+
+    @Override
+    public synchronized long reserve(long floor, int size) {
+        try {
+            FileLock lock = channel.lock();
+            try {
+                mark.clear();
+                long firstFree = 1;
+                if (channel.read(mark, 0) == MARK_SIZE) {
+                    firstFree = mark.getLong(0);
+                }
+                long start = Math.max(firstFree, floor);
+                mark.clear();
+                mark.putLong(0, start + size);
+                channel.write(mark, 0);
+                channel.force(false);
+                return start;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE, "Could not lease IDs from " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
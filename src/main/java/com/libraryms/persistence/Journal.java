@@ -0,0 +1,537 @@
+package com.libraryms.persistence;
+
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionType;
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryEventListener;
+import com.libraryms.service.LibraryException;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of library events. Each record is framed as
+ * {@code [type:byte][length:int][payload][crc32:int]}; a torn or corrupt tail
+ * left by a crash is truncated on replay. The log is split into generations so
+ * that a snapshot of generation N makes every journal file before N obsolete.
+ * Once a write fails, every later record is refused, so nothing can be
+ * appended after a record that may be torn.
+ */
+public class Journal implements LibraryEventListener, Closeable {
+
+    private static final byte BOOK_ADDED = 1;
+    private static final byte BOOK_UPDATED = 2;
+    private static final byte BOOK_DELETED = 3;
+    private static final byte MEMBER_REGISTERED = 4;
+    private static final byte MEMBER_UPDATED = 5;
+    private static final byte BOOK_BORROWED = 6;
+    private static final byte BOOK_RETURNED = 7;
+    private static final byte FINE_APPLIED = 8;
+    private static final byte FINE_ACCRUED = 9;
+    private static final byte HOLD_PLACED = 10;
+    private static final byte HOLD_READY = 11;
+    private static final byte HOLD_COLLECTED = 12;
+    private static final byte HOLD_CANCELLED = 13;
+    private static final byte LOAN_CHARGED = 14;
+    private static final byte LOAN_SETTLED = 15;
+
+    private static final int HEADER_SIZE = 1 + 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path directory;
+    private final ExposedByteArrayOutputStream recordBuffer;
+    private final DataOutputStream record;
+    private final CRC32 crc;
+    private int generation;
+    private FileOutputStream file;
+    private DataOutputStream out;
+    private volatile long recordCount;
+    // per thread, so one caller's open batch never holds back another caller's flush
+    private final ThreadLocal<int[]> batchDepth = ThreadLocal.withInitial(() -> new int[1]);
+    private IOException failure;
+
+    private Journal(Path directory, int generation) {
+        this.directory = directory;
+        this.generation = generation;
+        this.recordBuffer = new ExposedByteArrayOutputStream(256);
+        this.record = new DataOutputStream(recordBuffer);
+        this.crc = new CRC32();
+    }
+
+    public static Journal open(Path directory, int generation) throws IOException {
+        Files.createDirectories(directory);
+        return new Journal(directory, generation);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public Path getFile() {
+        return fileFor(generation);
+    }
+
+    public synchronized void replay(LibraryEventListener target) throws IOException {
+        Path path = fileFor(generation);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long validLength = 0;
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            buffer.flip();
+            BufferReader in = new BufferReader(buffer);
+            CRC32 check = new CRC32();
+            while (true) {
+                buffer = fill(channel, buffer, HEADER_SIZE);
+                if (buffer.remaining() < HEADER_SIZE) break;
+                int length = buffer.getInt(buffer.position() + 1);
+                if (length < 0 || length > MAX_RECORD_SIZE) break;
+                int recordSize = HEADER_SIZE + length + TRAILER_SIZE;
+                buffer = fill(channel, buffer, recordSize);
+                if (buffer.remaining() < recordSize) break;
+
+                int start = buffer.position();
+                byte type = buffer.get(start);
+                check.reset();
+                check.update(type);
+                check.update(buffer.array(), buffer.arrayOffset() + start + HEADER_SIZE, length);
+                if ((int) check.getValue() != buffer.getInt(start + HEADER_SIZE + length)) break;
+
+                int limit = buffer.limit();
+                buffer.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + length);
+                in.reset(buffer);
+                dispatch(type, in, target);
+                buffer.limit(limit).position(start + recordSize);
+                validLength += recordSize;
+                count++;
+            }
+        }
+        if (validLength < Files.size(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        recordCount = count;
+    }
+
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        if (buffer.capacity() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < needed && channel.read(buffer) > 0) {
+            // keep reading until the record is complete or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void dispatch(byte type, BufferReader in, LibraryEventListener target) throws IOException {
+        switch (type) {
+            case BOOK_ADDED:
+                target.bookAdded(RecordCodec.readBook(in));
+                break;
+            case BOOK_UPDATED:
+                target.bookUpdated(in.readUTF(), BookField.values()[in.readByte()], RecordCodec.readString(in));
+                break;
+            case BOOK_DELETED:
+                target.bookDeleted(in.readUTF());
+                break;
+            case MEMBER_REGISTERED:
+                target.memberRegistered(RecordCodec.readMember(in));
+                break;
+            case MEMBER_UPDATED:
+                target.memberUpdated(in.readUTF(), MemberField.values()[in.readByte()], RecordCodec.readString(in));
+                break;
+            case BOOK_BORROWED: {
+                String transactionId = in.readUTF();
+                String memberId = in.readUTF();
+                String isbn = in.readUTF();
+                SimpleTransaction loan = new SimpleTransaction(transactionId, memberId, isbn, TransactionType.BORROW,
+                        RecordCodec.readDateTime(in), RecordCodec.readDate(in));
+                loan.setCopyNumber(in.readInt());
+                target.bookBorrowed(loan);
+                break;
+            }
+            case BOOK_RETURNED:
+                target.bookReturned(in.readUTF(), in.readUTF(), in.readUTF(), RecordCodec.readDate(in), in.readDouble());
+                break;
+            case FINE_APPLIED:
+                target.fineApplied(in.readUTF(), in.readDouble());
+                break;
+            case FINE_ACCRUED:
+                target.fineAccrued(in.readUTF(), in.readUTF(), in.readUTF(), in.readDouble());
+                break;
+            case HOLD_PLACED: {
+                String transactionId = in.readUTF();
+                String memberId = in.readUTF();
+                String isbn = in.readUTF();
+                target.holdPlaced(new SimpleTransaction(transactionId, memberId, isbn, TransactionType.RESERVE,
+                        RecordCodec.readDateTime(in), null));
+                break;
+            }
+            case HOLD_READY:
+                target.holdReady(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), RecordCodec.readDate(in));
+                break;
+            case HOLD_COLLECTED:
+                target.holdCollected(in.readUTF(), in.readUTF(), in.readUTF(), RecordCodec.readDate(in));
+                break;
+            case HOLD_CANCELLED:
+                target.holdCancelled(in.readUTF(), in.readUTF(), in.readUTF(), RecordCodec.readDate(in));
+                break;
+            case LOAN_CHARGED:
+                target.loanCharged(in.readUTF());
+                break;
+            case LOAN_SETTLED:
+                target.loanSettled(in.readUTF(), in.readDouble());
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    @Override
+    public synchronized void bookAdded(SimpleBook book) {
+        try {
+            begin();
+            RecordCodec.writeBook(record, book);
+            commit(BOOK_ADDED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void bookUpdated(String isbn, BookField field, String value) {
+        try {
+            begin();
+            record.writeUTF(isbn);
+            record.writeByte(field.ordinal());
+            RecordCodec.writeString(record, value);
+            commit(BOOK_UPDATED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void bookDeleted(String isbn) {
+        try {
+            begin();
+            record.writeUTF(isbn);
+            commit(BOOK_DELETED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void memberRegistered(SimpleMember member) {
+        try {
+            begin();
+            RecordCodec.writeMember(record, member);
+            commit(MEMBER_REGISTERED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void memberUpdated(String memberId, MemberField field, String value) {
+        try {
+            begin();
+            record.writeUTF(memberId);
+            record.writeByte(field.ordinal());
+            RecordCodec.writeString(record, value);
+            commit(MEMBER_UPDATED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void bookBorrowed(SimpleTransaction transaction) {
+        try {
+            begin();
+            record.writeUTF(transaction.getTransactionId());
+            record.writeUTF(transaction.getMemberId());
+            record.writeUTF(transaction.getBookIsbn());
+            RecordCodec.writeDateTime(record, transaction.getTransactionDate());
+            RecordCodec.writeDate(record, transaction.getDueDate());
+            record.writeInt(transaction.getCopyNumber());
+            commit(BOOK_BORROWED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void bookReturned(String transactionId, String memberId, String isbn, LocalDate returnDate, double fineAmount) {
+        try {
+            begin();
+            record.writeUTF(transactionId);
+            record.writeUTF(memberId);
+            record.writeUTF(isbn);
+            RecordCodec.writeDate(record, returnDate);
+            record.writeDouble(fineAmount);
+            commit(BOOK_RETURNED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void fineApplied(String memberId, double amount) {
+        try {
+            begin();
+            record.writeUTF(memberId);
+            record.writeDouble(amount);
+            commit(FINE_APPLIED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void loanCharged(String memberId) {
+        try {
+            begin();
+            record.writeUTF(memberId);
+            commit(LOAN_CHARGED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void loanSettled(String memberId, double fine) {
+        try {
+            begin();
+            record.writeUTF(memberId);
+            record.writeDouble(fine);
+            commit(LOAN_SETTLED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void fineAccrued(String transactionId, String memberId, String isbn, double accruedFine) {
+        try {
+            begin();
+            record.writeUTF(transactionId);
+            record.writeUTF(memberId);
+            record.writeUTF(isbn);
+            record.writeDouble(accruedFine);
+            commit(FINE_ACCRUED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void holdPlaced(SimpleTransaction hold) {
+        try {
+            begin();
+            record.writeUTF(hold.getTransactionId());
+            record.writeUTF(hold.getMemberId());
+            record.writeUTF(hold.getBookIsbn());
+            RecordCodec.writeDateTime(record, hold.getTransactionDate());
+            commit(HOLD_PLACED);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void holdReady(String transactionId, String memberId, String isbn, int copyNumber,
+                                       LocalDate pickupBy) {
+        try {
+            begin();
+            record.writeUTF(transactionId);
+            record.writeUTF(memberId);
+            record.writeUTF(isbn);
+            record.writeInt(copyNumber);
+            RecordCodec.writeDate(record, pickupBy);
+            commit(HOLD_READY);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void holdCollected(String transactionId, String memberId, String isbn, LocalDate collectedOn) {
+        writeHoldChange(HOLD_COLLECTED, transactionId, memberId, isbn, collectedOn);
+    }
+
+    @Override
+    public synchronized void holdCancelled(String transactionId, String memberId, String isbn, LocalDate cancelledOn) {
+        writeHoldChange(HOLD_CANCELLED, transactionId, memberId, isbn, cancelledOn);
+    }
+
+    private void writeHoldChange(byte type, String transactionId, String memberId, String isbn, LocalDate date) {
+        try {
+            begin();
+            record.writeUTF(transactionId);
+            record.writeUTF(memberId);
+            record.writeUTF(isbn);
+            RecordCodec.writeDate(record, date);
+            commit(type);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    private void begin() {
+        recordBuffer.reset();
+    }
+
+    private void commit(byte type) throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal stopped after an earlier write failed: " + failure.getMessage(), failure);
+        }
+        try {
+            ensureOpen();
+            crc.reset();
+            crc.update(type);
+            crc.update(recordBuffer.buffer(), 0, recordBuffer.size());
+            out.writeByte(type);
+            out.writeInt(recordBuffer.size());
+            out.write(recordBuffer.buffer(), 0, recordBuffer.size());
+            out.writeInt((int) crc.getValue());
+            if (batchDepth.get()[0] == 0) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        recordCount++;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out == null) {
+            file = new FileOutputStream(fileFor(generation).toFile(), true);
+            out = new DataOutputStream(new BufferedOutputStream(file, WRITE_BUFFER_SIZE));
+        }
+    }
+
+    /**
+     * Defers flushing the calling thread's records until its matching
+     * {@link #endBatch()}, so a bulk load writes whole buffers instead of one
+     * system call per record. Records from other threads are still flushed
+     * as they are written, along with anything buffered before them.
+     */
+    public void beginBatch() {
+        batchDepth.get()[0]++;
+    }
+
+    public void endBatch() throws IOException {
+        int[] depth = batchDepth.get();
+        if (depth[0] > 0 && --depth[0] == 0) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            file.getChannel().force(false);
+        }
+    }
+
+    public synchronized void rotate(int newGeneration) throws IOException {
+        close();
+        int previous = generation;
+        generation = newGeneration;
+        recordCount = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path path : files) {
+                int fileGeneration = generationOf(path);
+                if (fileGeneration >= 0 && fileGeneration <= previous && fileGeneration < newGeneration) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.flush();
+            file.getChannel().force(false);
+            out.close();
+            out = null;
+            file = null;
+        }
+    }
+
+    private Path fileFor(int fileGeneration) {
+        return directory.resolve(String.format("journal-%08d.log", fileGeneration));
+    }
+
+    private static int generationOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static LibraryException failure(IOException e) {
+        return new LibraryException(ErrorCode.STORAGE_FAILURE, "Could not write journal record: " + e.getMessage(), e);
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+    }
+
+}
@@ -0,0 +1,417 @@
+package com.libraryms.persistence;
+
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.store.BackingStore;
+import com.libraryms.store.BookCatalog;
+import com.libraryms.store.MemberRegistry;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Snapshot of books and members laid out for memory mapping.
+ *
+ * <pre>
+ * header   magic, version, generation, bookCount, memberCount,
+ *          bookIndexOffset, memberIndexOffset, emailIndexOffset, emailCount, countsOffset
+ * indexes  fixed 16-byte slots [keyHash:long][recordOffset:long], sorted by hash
+ * records  book and member records in {@link RecordCodec} format
+ * counts   [length:int][long...] for books, then the same for members
+ * </pre>
+ *
+ * Opening the file maps it and reads only the header. A lookup hashes the key,
+ * binary-searches the matching index and decodes that one record. The counts
+ * are the stores' aggregate counts over the records in the file (see
+ * {@link BookCatalog#savedCounts}), so the stores need not decode every record
+ * to rebuild them.
+ *
+ * <p>Each file is written from the one before it: records the stores have not
+ * loaded are copied across byte for byte, and only loaded records, which may
+ * have changed, are encoded again.
+ */
+public class MappedCatalogFile {
+
+    private static final int MAGIC = 0x4C4D5343;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+
+    private final MappedByteBuffer mapped;
+    private final int bookCount;
+    private final int memberCount;
+    private final int bookIndexOffset;
+    private final int memberIndexOffset;
+    private final int emailIndexOffset;
+    private final int emailCount;
+    private final int recordsEnd;
+    private final long[] bookCounts;
+    private final long[] memberCounts;
+
+    private MappedCatalogFile(MappedByteBuffer mapped) throws IOException {
+        this.mapped = mapped;
+        int version = mapped.getInt(4);
+        if (mapped.getInt(0) != MAGIC || version != VERSION) {
+            throw new IOException("Not a mapped catalog file");
+        }
+        this.bookCount = mapped.getInt(12);
+        this.memberCount = mapped.getInt(16);
+        this.bookIndexOffset = (int) mapped.getLong(20);
+        this.memberIndexOffset = (int) mapped.getLong(28);
+        this.emailIndexOffset = (int) mapped.getLong(36);
+        this.emailCount = mapped.getInt(44);
+        int countsOffset = (int) mapped.getLong(48);
+        this.recordsEnd = countsOffset;
+        this.bookCounts = readCounts(countsOffset);
+        this.memberCounts = readCounts(countsOffset + 4 + bookCounts.length * 8);
+    }
+
+    private long[] readCounts(int offset) {
+        long[] counts = new long[mapped.getInt(offset)];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mapped.getLong(offset + 4 + i * 8);
+        }
+        return counts;
+    }
+
+    public static MappedCatalogFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Mapped catalog larger than 2 GB: " + path);
+            }
+            return new MappedCatalogFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the books and members of {@code catalog} and {@code registry} to
+     * {@code path} and maps the result. {@code base} is the file the stores
+     * are attached to, or null if none: its records the stores have neither
+     * loaded nor removed are copied across, so only loaded records have to be
+     * in memory.
+     */
+    public static MappedCatalogFile write(Path path, int generation, MappedCatalogFile base,
+                                          BookCatalog catalog, MemberRegistry registry) throws IOException {
+        Collection<SimpleBook> books = catalog.getLoaded();
+        Collection<SimpleMember> members = registry.getLoaded();
+        Slots bookSlots = new Slots(books.size() + (base != null ? base.bookCount : 0));
+        Slots memberSlots = new Slots(members.size() + (base != null ? base.memberCount : 0));
+        Slots emailSlots = new Slots(members.size() + (base != null ? base.emailCount : 0));
+
+        // record offsets are relative to the start of the records until the indexes are sized
+        Path records = path.resolveSibling(path.getFileName() + ".records");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(records), 1 << 20))) {
+            if (base != null) {
+                long[] recordStarts = base.recordStarts();
+                base.carry(out, base.bookIndexOffset, base.bookCount, catalog::replacesBacking,
+                        recordStarts, bookSlots);
+                Slots moved = base.carry(out, base.memberIndexOffset, base.memberCount, registry::replacesBacking,
+                        recordStarts, memberSlots);
+                base.carryEmails(moved, emailSlots);
+            }
+            for (SimpleBook book : books) {
+                bookSlots.add(hash(book.getIsbn()), out.size());
+                RecordCodec.writeBook(out, book);
+            }
+            for (SimpleMember member : members) {
+                memberSlots.add(hash(member.getMemberId()), out.size());
+                String emailKey = MemberRegistry.normalizeEmail(member.getEmail());
+                if (emailKey != null) {
+                    emailSlots.add(hash(emailKey), out.size());
+                }
+                RecordCodec.writeMember(out, member);
+            }
+        }
+        long recordsOffset = HEADER_SIZE + (long) (bookSlots.count + memberSlots.count + emailSlots.count) * SLOT_SIZE;
+        if (recordsOffset + Files.size(records) > Integer.MAX_VALUE) {
+            Files.deleteIfExists(records);
+            throw new IOException("Mapped catalog would exceed 2 GB");
+        }
+        long countsOffset = recordsOffset + Files.size(records);
+        bookSlots.sort();
+        memberSlots.sort();
+        emailSlots.sort();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(generation);
+            out.writeInt(bookSlots.count);
+            out.writeInt(memberSlots.count);
+            out.writeLong(HEADER_SIZE);
+            out.writeLong(HEADER_SIZE + (long) bookSlots.count * SLOT_SIZE);
+            out.writeLong(HEADER_SIZE + (long) (bookSlots.count + memberSlots.count) * SLOT_SIZE);
+            out.writeInt(emailSlots.count);
+            out.writeLong(countsOffset);
+            out.write(new byte[HEADER_SIZE - out.size()]);
+            bookSlots.writeTo(out, recordsOffset);
+            memberSlots.writeTo(out, recordsOffset);
+            emailSlots.writeTo(out, recordsOffset);
+            Files.copy(records, out);
+            writeCounts(out, catalog.savedCounts());
+            writeCounts(out, registry.savedCounts());
+        } finally {
+            Files.deleteIfExists(records);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    /**
+     * Copies the records of one index whose keys {@code replaced} rejects to
+     * {@code out}, adding their new slots to {@code slots}. Returns the old
+     * and new offset of each record copied, sorted by old offset.
+     */
+    private Slots carry(DataOutputStream out, int indexOffset, int count, Predicate<String> replaced,
+                        long[] recordStarts, Slots slots) throws IOException {
+        Slots moved = new Slots(count);
+        byte[] bytes = new byte[256];
+        for (int slot = 0; slot < count; slot++) {
+            int slotOffset = indexOffset + slot * SLOT_SIZE;
+            int recordOffset = (int) mapped.getLong(slotOffset + 8);
+            if (replaced.test(keyAt(recordOffset))) {
+                continue;
+            }
+            int next = Arrays.binarySearch(recordStarts, recordOffset) + 1;
+            int length = (int) ((next < recordStarts.length ? recordStarts[next] : recordsEnd) - recordOffset);
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            mapped.get(recordOffset, bytes, 0, length);
+            slots.add(mapped.getLong(slotOffset), out.size());
+            moved.add(recordOffset, out.size());
+            out.write(bytes, 0, length);
+        }
+        moved.sort();
+        return moved;
+    }
+
+    // A member's email is unchanged while it is not loaded, so its slot only needs the new offset.
+    private void carryEmails(Slots moved, Slots emailSlots) {
+        for (int slot = 0; slot < emailCount; slot++) {
+            int slotOffset = emailIndexOffset + slot * SLOT_SIZE;
+            long newOffset = moved.find(mapped.getLong(slotOffset + 8));
+            if (newOffset >= 0) {
+                emailSlots.add(mapped.getLong(slotOffset), newOffset);
+            }
+        }
+    }
+
+    // Records are laid out back to back, so each ends where the next one starts.
+    private long[] recordStarts() {
+        long[] starts = new long[bookCount + memberCount];
+        for (int slot = 0; slot < bookCount; slot++) {
+            starts[slot] = mapped.getLong(bookIndexOffset + slot * SLOT_SIZE + 8);
+        }
+        for (int slot = 0; slot < memberCount; slot++) {
+            starts[bookCount + slot] = mapped.getLong(memberIndexOffset + slot * SLOT_SIZE + 8);
+        }
+        Arrays.sort(starts);
+        return starts;
+    }
+
+    // Books and members both start with their key.
+    private String keyAt(long recordOffset) {
+        ByteBuffer view = mapped.duplicate();
+        view.position((int) recordOffset);
+        try {
+            return new BufferReader(view).readUTF();
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt mapped catalog record at offset " + recordOffset, e);
+        }
+    }
+
+    private static void writeCounts(DataOutputStream out, long[] counts) throws IOException {
+        out.writeInt(counts.length);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    public BackingStore<SimpleBook> books() {
+        return new MappedStore<>(bookIndexOffset, bookCount, RecordCodec::readBook, SimpleBook::getIsbn, bookCounts);
+    }
+
+    public BackingStore<SimpleMember> members() {
+        return new MappedStore<SimpleMember>(memberIndexOffset, memberCount, RecordCodec::readMember,
+                SimpleMember::getMemberId, memberCounts) {
+            @Override
+            public String findKeyBy(String emailKey) {
+                long hash = hash(emailKey);
+                for (int slot = firstSlot(emailIndexOffset, emailCount, hash); slot < emailCount; slot++) {
+                    int slotOffset = emailIndexOffset + slot * SLOT_SIZE;
+                    if (mapped.getLong(slotOffset) != hash) break;
+                    SimpleMember member = decode(mapped.getLong(slotOffset + 8));
+                    if (emailKey.equals(MemberRegistry.normalizeEmail(member.getEmail()))) {
+                        return member.getMemberId();
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private int firstSlot(int indexOffset, int count, long hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mapped.getLong(indexOffset + mid * SLOT_SIZE) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Pairs of longs, sorted by the first, such as index slots while a file is written. */
+    private static final class Slots {
+
+        private final long[] values;
+        private int count;
+
+        Slots(int capacity) {
+            this.values = new long[capacity * 2];
+        }
+
+        void add(long first, long second) {
+            values[count * 2] = first;
+            values[count * 2 + 1] = second;
+            count++;
+        }
+
+        void sort() {
+            long[][] pairs = new long[count][];
+            for (int i = 0; i < count; i++) {
+                pairs[i] = new long[] { values[i * 2], values[i * 2 + 1] };
+            }
+            Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+            for (int i = 0; i < count; i++) {
+                values[i * 2] = pairs[i][0];
+                values[i * 2 + 1] = pairs[i][1];
+            }
+        }
+
+        /** The second value paired with {@code first}, or -1; the pairs must be sorted. */
+        long find(long first) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = values[mid * 2];
+                if (value < first) {
+                    low = mid + 1;
+                } else if (value > first) {
+                    high = mid - 1;
+                } else {
+                    return values[mid * 2 + 1];
+                }
+            }
+            return -1;
+        }
+
+        void writeTo(DataOutputStream out, long offsetBase) throws IOException {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(values[i * 2]);
+                out.writeLong(values[i * 2 + 1] + offsetBase);
+            }
+        }
+
+    }
+
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private interface Decoder<T> {
+        T read(BufferReader in) throws IOException;
+    }
+
+    private class MappedStore<T> implements BackingStore<T> {
+
+        private final int indexOffset;
+        private final int count;
+        private final Decoder<T> decoder;
+        private final Function<T, String> keyOf;
+        private final long[] counts;
+
+        MappedStore(int indexOffset, int count, Decoder<T> decoder, Function<T, String> keyOf, long[] counts) {
+            this.indexOffset = indexOffset;
+            this.count = count;
+            this.decoder = decoder;
+            this.keyOf = keyOf;
+            this.counts = counts;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public long[] counts() {
+            return counts;
+        }
+
+        @Override
+        public T load(String key) {
+            long hash = hash(key);
+            for (int slot = firstSlot(indexOffset, count, hash); slot < count; slot++) {
+                int slotOffset = indexOffset + slot * SLOT_SIZE;
+                if (mapped.getLong(slotOffset) != hash) break;
+                T record = decode(mapped.getLong(slotOffset + 8));
+                if (key.equals(keyOf.apply(record))) {
+                    return record;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void forEachKey(Consumer<String> action) {
+            for (int slot = 0; slot < count; slot++) {
+                action.accept(keyAt(mapped.getLong(indexOffset + slot * SLOT_SIZE + 8)));
+            }
+        }
+
+        @Override
+        public void forEach(Consumer<T> action) {
+            for (int slot = 0; slot < count; slot++) {
+                action.accept(decode(mapped.getLong(indexOffset + slot * SLOT_SIZE + 8)));
+            }
+        }
+
+        T decode(long recordOffset) {
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) recordOffset);
+            try {
+                return decoder.read(new BufferReader(view));
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt mapped catalog record at offset " + recordOffset, e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.libraryms.persistence;
+
+import com.libraryms.model.*;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+final class RecordCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+
+    private RecordCodec() {
+    }
+
+    static void writeBook(DataOutput out, SimpleBook book) throws IOException {
+        out.writeUTF(book.getIsbn());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeEnum(out, book.getCategory());
+        writeString(out, book.getPublisher());
+        out.writeInt(book.getYearPublished() != null ? book.getYearPublished() : NO_YEAR);
+        writeString(out, book.getDescription());
+        out.writeInt(book.getTotalCopies());
+        out.writeInt(book.getAvailableCopies());
+        writeEnum(out, book.getStatus());
+        writeDateTime(out, book.getDateAdded());
+        writeDateTime(out, book.getLastUpdated());
+    }
+
+    static SimpleBook readBook(BufferReader in) throws IOException {
+        String isbn = in.readUTF();
+        String title = readString(in);
+        String author = readString(in);
+        BookCategory category = readEnum(in, BookCategory.values());
+        SimpleBook book = new SimpleBook(isbn, title, author, category);
+        book.setPublisher(readString(in));
+        int year = in.readInt();
+        book.setYearPublished(year != NO_YEAR ? year : null);
+        book.setDescription(readString(in));
+        book.setTotalCopies(in.readInt());
+        book.setAvailableCopies(in.readInt());
+        book.setStatus(readEnum(in, BookStatus.values()));
+        book.setDateAdded(readDateTime(in));
+        book.setLastUpdated(readDateTime(in));
+        return book;
+    }
+
+    static void writeMember(DataOutput out, SimpleMember member) throws IOException {
+        out.writeUTF(member.getMemberId());
+        writeString(out, member.getFirstName());
+        writeString(out, member.getLastName());
+        writeString(out, member.getEmail());
+        writeEnum(out, member.getMemberType());
+        writeString(out, member.getPhoneNumber());
+        writeString(out, member.getAddress());
+        writeEnum(out, member.getStatus());
+        writeDate(out, member.getDateOfBirth());
+        writeDate(out, member.getMembershipStartDate());
+        writeDate(out, member.getMembershipEndDate());
+        out.writeDouble(member.getTotalFinesOwed());
+        out.writeInt(member.getCurrentBorrowedBooks());
+    }
+
+    static SimpleMember readMember(BufferReader in) throws IOException {
+        String memberId = in.readUTF();
+        String firstName = readString(in);
+        String lastName = readString(in);
+        String email = readString(in);
+        MemberType memberType = readEnum(in, MemberType.values());
+        SimpleMember member = new SimpleMember(memberId, firstName, lastName, email, memberType);
+        member.setPhoneNumber(readString(in));
+        member.setAddress(readString(in));
+        member.setStatus(readEnum(in, MemberStatus.values()));
+        member.setDateOfBirth(readDate(in));
+        member.setMembershipStartDate(readDate(in));
+        member.setMembershipEndDate(readDate(in));
+        member.setTotalFinesOwed(in.readDouble());
+        member.setCurrentBorrowedBooks(in.readInt());
+        return member;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(BufferReader in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value != null ? value.ordinal() : -1);
+    }
+
+    static <E extends Enum<E>> E readEnum(BufferReader in, E[] values) throws IOException {
+        int ordinal = in.readByte();
+        return ordinal >= 0 ? values[ordinal] : null;
+    }
+
+    static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : NO_DATE);
+    }
+
+    static LocalDate readDate(BufferReader in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_DATE);
+    }
+
+    static LocalDateTime readDateTime(BufferReader in) throws IOException {
+        long epochMilli = in.readLong();
+        return epochMilli != NO_DATE ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC) : null;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.libraryms.persistence;
+
+import com.libraryms.store.BookCatalog;
+import com.libraryms.store.MemberRegistry;
+import com.libraryms.store.TransactionHistory;
+
+public class Snapshot {
+
+    private final int generation;
+    private final int nextMemberId;
+    private final int nextTransactionId;
+    private final MappedCatalogFile catalogFile;
+    private final BookCatalog catalog;
+    private final MemberRegistry registry;
+    private final TransactionHistory history;
+
+    /**
+     * A snapshot to write, with the history in its column form. The stores'
+     * books and members are written on top of {@code catalogFile}, the file
+     * they are attached to, or null if none.
+     */
+    public Snapshot(int generation, int nextMemberId, int nextTransactionId, MappedCatalogFile catalogFile,
+                    BookCatalog catalog, MemberRegistry registry, TransactionHistory history) {
+        this.generation = generation;
+        this.nextMemberId = nextMemberId;
+        this.nextTransactionId = nextTransactionId;
+        this.catalogFile = catalogFile;
+        this.catalog = catalog;
+        this.registry = registry;
+        this.history = history;
+    }
+
+    /** A snapshot read back; its history went straight into the history passed to the reader. */
+    public Snapshot(int generation, int nextMemberId, int nextTransactionId, MappedCatalogFile catalogFile) {
+        this(generation, nextMemberId, nextTransactionId, catalogFile, null, null, null);
+    }
+
+    public int getGeneration() { return generation; }
+
+    public int getNextMemberId() { return nextMemberId; }
+
+    public int getNextTransactionId() { return nextTransactionId; }
+
+    public MappedCatalogFile getCatalogFile() { return catalogFile; }
+
+    public BookCatalog getCatalog() { return catalog; }
+
+    public MemberRegistry getRegistry() { return registry; }
+
+    public TransactionHistory getHistory() { return history; }
+
+}
@@ -0,0 +1,118 @@
+package com.libraryms.persistence;
+
+import com.libraryms.store.TransactionHistory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x4C4D5353;
+    private static final int VERSION = 4;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /** Writes {@code snapshot} and returns its new catalog file, mapped, for the stores to move to. */
+    public MappedCatalogFile write(Snapshot snapshot) throws IOException {
+        MappedCatalogFile catalogFile = MappedCatalogFile.write(catalogFileFor(snapshot.getGeneration()),
+                snapshot.getGeneration(), snapshot.getCatalogFile(), snapshot.getCatalog(), snapshot.getRegistry());
+
+        Path target = fileFor(snapshot.getGeneration());
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.getGeneration());
+            out.writeInt(snapshot.getNextMemberId());
+            out.writeInt(snapshot.getNextTransactionId());
+            snapshot.getHistory().writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return catalogFile;
+    }
+
+    /**
+     * Reads the newest snapshot. Its transactions are loaded straight into
+     * {@code history}, which must be empty.
+     */
+    public Snapshot loadLatest(TransactionHistory history) throws IOException {
+        int latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            for (Path path : files) {
+                latest = Math.max(latest, generationOf(path));
+            }
+        }
+        return latest < 0 ? null : read(fileFor(latest), history);
+    }
+
+    public void deleteOlderThan(int generation) throws IOException {
+        deleteOlderThan(generation, "snapshot-*.bin");
+        deleteOlderThan(generation, "catalog-*.map");
+    }
+
+    private void deleteOlderThan(int generation, String pattern) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, pattern)) {
+            for (Path path : files) {
+                int fileGeneration = generationOf(path);
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        // Still mapped on platforms that lock mapped files; retried after the next snapshot.
+                    }
+                }
+            }
+        }
+    }
+
+    private Snapshot read(Path path, TransactionHistory history) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a library snapshot: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            int generation = in.readInt();
+            int nextMemberId = in.readInt();
+            int nextTransactionId = in.readInt();
+
+            history.readFrom(in);
+            MappedCatalogFile catalogFile = MappedCatalogFile.open(catalogFileFor(generation));
+            return new Snapshot(generation, nextMemberId, nextTransactionId, catalogFile);
+        }
+    }
+
+    private Path fileFor(int generation) {
+        return directory.resolve(String.format("snapshot-%08d.bin", generation));
+    }
+
+    private Path catalogFileFor(int generation) {
+        return directory.resolve(String.format("catalog-%08d.map", generation));
+    }
+
+    private static int generationOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.libraryms.service;
+
+public enum ErrorCode {
+    MEMBER_NOT_FOUND("Member not found"),
+    BOOK_NOT_FOUND("Book not found"),
+    DUPLICATE_ISBN("A book with this ISBN already exists"),
+    DUPLICATE_EMAIL("A member with this email already exists"),
+    MEMBER_CANNOT_BORROW("Member cannot borrow books"),
+    BOOK_NOT_AVAILABLE("Book is not available for borrowing"),
+    NO_ACTIVE_LOAN("No active borrowing transaction found for this member and book"),
+    HOLD_NOT_ALLOWED("A hold cannot be placed on this book"),
+    NO_ACTIVE_HOLD("No active hold found for this member and book"),
+    INVALID_INPUT("Invalid input"),
+    WRONG_PARTITION("The record belongs to another partition"),
+    PARTITION_UNAVAILABLE("A partition of the library could not be reached"),
+    CHANGE_NOT_RETAINED("The change is no longer retained"),
+    STORAGE_FAILURE("Could not write to the library journal");
+    
+    private final String displayName;
+    
+    ErrorCode(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.libraryms.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public class FineAccrualReport {
+
+    private final LocalDate asOf;
+    private final long overdueLoans;
+    private final long loansUpdated;
+    private final long membersUpdated;
+    private final double balanceChange;
+    private final Map<String, Double> remoteCharges;
+    private final long elapsedMillis;
+
+    FineAccrualReport(LocalDate asOf, long overdueLoans, long loansUpdated, long membersUpdated,
+                      double balanceChange, Map<String, Double> remoteCharges, long elapsedMillis) {
+        this.asOf = asOf;
+        this.overdueLoans = overdueLoans;
+        this.loansUpdated = loansUpdated;
+        this.membersUpdated = membersUpdated;
+        this.balanceChange = balanceChange;
+        this.remoteCharges = remoteCharges;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDate getAsOf() { return asOf; }
+
+    public long getOverdueLoans() { return overdueLoans; }
+
+    public long getLoansUpdated() { return loansUpdated; }
+
+    public long getMembersUpdated() { return membersUpdated; }
+
+    /** Total added to member balances by this run, including {@link #getRemoteCharges()}. */
+    public double getBalanceChange() { return balanceChange; }
+
+    /**
+     * Fines accrued on loans of members of other partitions, by member ID.
+     * Their balances are kept there, so each amount still has to be added
+     * with {@link LibraryService#chargeFine} on the member's partition.
+     */
+    public Map<String, Double> getRemoteCharges() { return remoteCharges; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    @Override
+    public String toString() {
+        return String.format("FineAccrual{asOf=%s, overdue=%d, loansUpdated=%d, membersUpdated=%d, balanceChange=$%.2f, time=%dms}",
+                asOf, overdueLoans, loansUpdated, membersUpdated, balanceChange, elapsedMillis);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.libraryms.service;
+
+import com.libraryms.model.SimpleTransaction;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies accrued fines to a range of members, splitting the range in half
+ * until it is small enough to run on one thread. Each member's loans are
+ * updated under that member's lock by {@link LibraryService}.
+ */
+class FineAccrualTask extends RecursiveTask<FineAccrualTask.Tally> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MEMBERS_PER_TASK = 512;
+
+    private final transient LibraryService service;
+    private final transient List<List<SimpleTransaction>> loansByMember;
+    private final transient LocalDate asOf;
+    private final int from;
+    private final int to;
+
+    FineAccrualTask(LibraryService service, List<List<SimpleTransaction>> loansByMember, LocalDate asOf) {
+        this(service, loansByMember, asOf, 0, loansByMember.size());
+    }
+
+    private FineAccrualTask(LibraryService service, List<List<SimpleTransaction>> loansByMember, LocalDate asOf,
+                            int from, int to) {
+        this.service = service;
+        this.loansByMember = loansByMember;
+        this.asOf = asOf;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Tally compute() {
+        if (to - from <= MEMBERS_PER_TASK) {
+            Tally tally = new Tally();
+            for (int i = from; i < to; i++) {
+                service.accrueFines(loansByMember.get(i), asOf, tally);
+            }
+            return tally;
+        }
+        int middle = (from + to) >>> 1;
+        FineAccrualTask upper = new FineAccrualTask(service, loansByMember, asOf, middle, to);
+        upper.fork();
+        Tally tally = new FineAccrualTask(service, loansByMember, asOf, from, middle).compute();
+        tally.add(upper.join());
+        return tally;
+    }
+
+    static final class Tally {
+        long loansUpdated;
+        long membersUpdated;
+        double balanceChange;
+        final Map<String, Double> remoteCharges = new HashMap<>();
+
+        void add(Tally other) {
+            loansUpdated += other.loansUpdated;
+            membersUpdated += other.membersUpdated;
+            balanceChange += other.balanceChange;
+            remoteCharges.putAll(other.remoteCharges);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.libraryms.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls {@link LibraryService#releaseExpiredHolds} on a fixed schedule from a
+ * single daemon thread. The first sweep runs as soon as the sweeper is
+ * started, so holds that lapsed while the library was down are released too.
+ */
+public class HoldExpirySweeper implements AutoCloseable {
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofHours(1);
+
+    private final LibraryService service;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    public HoldExpirySweeper(LibraryService service) {
+        this(service, DEFAULT_INTERVAL);
+    }
+
+    public HoldExpirySweeper(LibraryService service, Duration interval) {
+        this.service = service;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "hold-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sweep, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void sweep() {
+        try {
+            service.releaseExpiredHolds(LocalDate.now());
+        } catch (RuntimeException e) {
+            // an exception would cancel every later run
+            System.err.println("Releasing expired holds failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
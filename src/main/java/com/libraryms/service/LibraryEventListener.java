@@ -0,0 +1,60 @@
+package com.libraryms.service;
+
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import java.time.LocalDate;
+
+/**
+ * Receives every state change made through {@link LibraryService}, after it has
+ * been applied. The journal records these calls and replays them on startup.
+ */
+public interface LibraryEventListener {
+
+    enum BookField { TITLE, AUTHOR, PUBLISHER }
+
+    enum MemberField { PHONE_NUMBER, ADDRESS }
+
+    void bookAdded(SimpleBook book);
+
+    void bookUpdated(String isbn, BookField field, String value);
+
+    void bookDeleted(String isbn);
+
+    void memberRegistered(SimpleMember member);
+
+    void memberUpdated(String memberId, MemberField field, String value);
+
+    void bookBorrowed(SimpleTransaction transaction);
+
+    void bookReturned(String transactionId, String memberId, String isbn, LocalDate returnDate, double fineAmount);
+
+    void fineApplied(String memberId, double amount);
+
+    /** The member took a loan recorded on another partition, counting against their limit. */
+    void loanCharged(String memberId);
+
+    /**
+     * A loan charged to the member on this partition ended on the loan's
+     * partition, or was never made; {@code fine} is added to their balance.
+     */
+    void loanSettled(String memberId, double fine);
+
+    /**
+     * An open loan's running fine was brought up to {@code accruedFine}; the
+     * member's balance moved by the difference from its previous value.
+     */
+    void fineAccrued(String transactionId, String memberId, String isbn, double accruedFine);
+
+    void holdPlaced(SimpleTransaction hold);
+
+    /** Copy {@code copyNumber} was set aside for the hold, to be collected by {@code pickupBy}. */
+    void holdReady(String transactionId, String memberId, String isbn, int copyNumber, LocalDate pickupBy);
+
+    /** The member borrowed the book the hold was for, taking its set-aside copy if it had one. */
+    void holdCollected(String transactionId, String memberId, String isbn, LocalDate collectedOn);
+
+    /** The hold was cancelled or lapsed; a copy set aside for it went back to the shelf. */
+    void holdCancelled(String transactionId, String memberId, String isbn, LocalDate cancelledOn);
+
+}
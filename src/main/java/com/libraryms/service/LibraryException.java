@@ -0,0 +1,23 @@
+package com.libraryms.service;
+
+public class LibraryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ErrorCode code;
+
+    public LibraryException(ErrorCode code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public LibraryException(ErrorCode code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public ErrorCode getCode() {
+        return code;
+    }
+
+}
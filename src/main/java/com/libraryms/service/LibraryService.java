@@ -0,0 +1,1157 @@
+package com.libraryms.service;
+
+import com.libraryms.analytics.CirculationAnalytics;
+import com.libraryms.analytics.IsbnLoanCount;
+import com.libraryms.analytics.LoanSummary;
+import com.libraryms.changes.ChangeFeed;
+import com.libraryms.cluster.PartitionMap;
+import com.libraryms.ids.IdAllocator;
+import com.libraryms.ids.IdFormat;
+import com.libraryms.metrics.Operation;
+import com.libraryms.metrics.OperationMetrics;
+import com.libraryms.model.*;
+import com.libraryms.persistence.HighWaterMarkFile;
+import com.libraryms.persistence.Journal;
+import com.libraryms.persistence.MappedCatalogFile;
+import com.libraryms.persistence.Snapshot;
+import com.libraryms.persistence.SnapshotStore;
+import com.libraryms.store.BookCatalog;
+import com.libraryms.store.HistoryPage;
+import com.libraryms.store.HoldQueues;
+import com.libraryms.store.LoanIndex;
+import com.libraryms.store.MemberRegistry;
+import com.libraryms.store.TransactionHistory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Library operations shared by the console, batch and bulk-import front ends.
+ * Safe for concurrent use: a mutation locks the stripes of the member and/or
+ * ISBN it touches (member before book, so two operations can never wait on
+ * each other in opposite order) plus the shared side of a state lock that
+ * snapshots take exclusively. The stores themselves guard their own indexes.
+ *
+ * <p>A service can hold one partition of a larger library (see
+ * {@link PartitionMap}): then it only accepts the books and registrations it
+ * owns, and lends to members of other partitions without checking or
+ * counting them, since their partition does that through
+ * {@link #chargeLoan}, {@link #chargeFine} and {@link #settleLoan}.
+ *
+ * <p>A change is applied in memory and then handed to the listeners, the
+ * journal first. If a listener fails, the change may be half applied and is
+ * not durable, so the service stops: that operation and every later one that
+ * changes state fail with {@link ErrorCode#STORAGE_FAILURE}, while reads keep
+ * working. Reopening the data directory recovers what the journal holds.
+ */
+public class LibraryService implements AutoCloseable {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+    public static final int HOLD_PICKUP_DAYS = 3;
+    private static final int HOLD_RELEASE_BATCH = 500;
+    private static final int LOCK_STRIPES = 1024;
+    private static final String MEMBER_ID_FILE = "member-ids.hwm";
+    private static final String TRANSACTION_ID_FILE = "transaction-ids.hwm";
+    private static final String CHANGES_DIRECTORY = "changes";
+
+    private final BookCatalog catalog;
+    private final MemberRegistry members;
+    private final LoanIndex openLoans;
+    private final HoldQueues holds;
+    private final TransactionHistory transactions;
+    private final List<LibraryEventListener> listeners;
+    private final SnapshotStore snapshots;
+    private final int snapshotInterval;
+    private final LockStripes memberLocks;
+    private final LockStripes bookLocks;
+    private final ReentrantReadWriteLock stateLock;
+    private final IdAllocator memberIds;
+    private final IdAllocator transactionIds;
+    private final List<HighWaterMarkFile> highWaterMarks;
+    private final OperationMetrics metrics;
+    private final CirculationAnalytics analytics;
+    private final PartitionMap partitions;
+    private final int partition;
+    private final ChangeFeed changes;
+    private volatile Journal journal;
+    // the mapped books and members the stores fault in from; null until the first snapshot
+    private MappedCatalogFile catalogFile;
+    // the failure that stopped the service; set once, never cleared
+    private volatile LibraryException halted;
+
+    public LibraryService() {
+        this.catalog = new BookCatalog();
+        this.members = new MemberRegistry();
+        this.openLoans = new LoanIndex();
+        this.holds = new HoldQueues();
+        this.transactions = new TransactionHistory();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.snapshots = null;
+        this.snapshotInterval = 0;
+        this.memberLocks = new LockStripes(LOCK_STRIPES);
+        this.bookLocks = new LockStripes(LOCK_STRIPES);
+        this.stateLock = new ReentrantReadWriteLock();
+        this.memberIds = new IdAllocator(IdFormat.MEMBER);
+        this.transactionIds = new IdAllocator(IdFormat.TRANSACTION);
+        this.highWaterMarks = List.of();
+        this.metrics = new OperationMetrics();
+        this.analytics = newAnalytics();
+        this.partitions = PartitionMap.SINGLE;
+        this.partition = 0;
+        this.changes = null;
+    }
+
+    public LibraryService(Path dataDirectory) throws IOException {
+        this(dataDirectory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public LibraryService(Path dataDirectory, int snapshotInterval) throws IOException {
+        this(dataDirectory, snapshotInterval, PartitionMap.SINGLE, 0);
+    }
+
+    /** The service for one partition of a library split as {@code partitions} describes. */
+    public LibraryService(Path dataDirectory, int snapshotInterval, PartitionMap partitions, int partition)
+            throws IOException {
+        if (partition < 0 || partition >= partitions.size()) {
+            throw new IllegalArgumentException("No partition " + partition + " of " + partitions.size());
+        }
+        this.catalog = new BookCatalog();
+        this.members = new MemberRegistry();
+        this.openLoans = new LoanIndex();
+        this.holds = new HoldQueues();
+        this.transactions = new TransactionHistory();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.snapshots = new SnapshotStore(dataDirectory);
+        this.snapshotInterval = snapshotInterval;
+        this.memberLocks = new LockStripes(LOCK_STRIPES);
+        this.bookLocks = new LockStripes(LOCK_STRIPES);
+        this.stateLock = new ReentrantReadWriteLock();
+        HighWaterMarkFile memberMark = new HighWaterMarkFile(dataDirectory.resolve(MEMBER_ID_FILE));
+        HighWaterMarkFile transactionMark = new HighWaterMarkFile(dataDirectory.resolve(TRANSACTION_ID_FILE));
+        this.highWaterMarks = List.of(memberMark, transactionMark);
+        // partitions mint disjoint numbers, so IDs stay unique across the whole library
+        this.memberIds = new IdAllocator(IdFormat.MEMBER, memberMark, IdAllocator.DEFAULT_BLOCK_SIZE,
+                partitions.size(), partition);
+        this.transactionIds = new IdAllocator(IdFormat.TRANSACTION, transactionMark, IdAllocator.DEFAULT_BLOCK_SIZE,
+                partitions.size(), partition);
+        this.metrics = new OperationMetrics();
+        this.analytics = newAnalytics();
+        this.partitions = partitions;
+        this.partition = partition;
+        recover(dataDirectory);
+        this.changes = ChangeFeed.open(dataDirectory.resolve(CHANGES_DIRECTORY));
+        listeners.add(changes);
+    }
+
+    private void recover(Path dataDirectory) throws IOException {
+        int generation = 0;
+        Snapshot snapshot = snapshots.loadLatest(transactions);
+        if (snapshot != null) {
+            restore(snapshot);
+            generation = snapshot.getGeneration();
+        }
+        journal = Journal.open(dataDirectory, generation);
+        journal.replay(new Replayer());
+        listeners.add(journal);
+    }
+
+    private void restore(Snapshot snapshot) {
+        catalogFile = snapshot.getCatalogFile();
+        catalog.attach(catalogFile.books());
+        members.attach(catalogFile.members());
+        transactions.forEach(transaction -> {
+            if (transaction.getStatus() != TransactionStatus.ACTIVE) {
+                return;
+            }
+            if (transaction.getType() == TransactionType.BORROW) {
+                restoreLoan(SimpleTransaction.copyOf(transaction));
+            } else if (transaction.getType() == TransactionType.RESERVE) {
+                restoreHold(SimpleTransaction.copyOf(transaction));
+            }
+        });
+        memberIds.advancePast(snapshot.getNextMemberId() - 1);
+        transactionIds.advancePast(snapshot.getNextTransactionId() - 1);
+    }
+
+    // Copies start out all on the shelf; snapshot book counts already leave out the copies taken here.
+    private void restoreLoan(SimpleTransaction loan) {
+        SimpleBook book = catalog.findByIsbn(loan.getBookIsbn());
+        if (book != null) {
+            book.getCopies().takeFromShelf(loan.getCopyNumber());
+        }
+        openLoans.add(loan);
+    }
+
+    private void restoreHold(SimpleTransaction hold) {
+        holds.add(hold);
+        SimpleBook book = catalog.findByIsbn(hold.getBookIsbn());
+        if (hold.getDueDate() == null || book == null) {
+            return;
+        }
+        book.getCopies().moveToHoldShelf(hold.getCopyNumber());
+        book.setHeldCopies(book.getHeldCopies() + 1);
+    }
+
+    public void addListener(LibraryEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Every change made through this service, in order; null without a data directory. */
+    public ChangeFeed getChangeFeed() {
+        return changes;
+    }
+
+    /** Latency and outcome counts for the operations below, per {@link Operation}. */
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    // ---- Books ----
+
+    public SimpleBook findBook(String isbn) {
+        return catalog.findByIsbn(isbn);
+    }
+
+    public boolean containsBook(String isbn) {
+        return catalog.contains(isbn);
+    }
+
+    public Collection<SimpleBook> getAllBooks() {
+        return catalog.getAll();
+    }
+
+    public List<SimpleBook> searchBooks(String query) {
+        return timed(Operation.SEARCH_BOOKS, () -> catalog.search(query));
+    }
+
+    /** Number of books in the category with the status, read from live counters rather than a scan. */
+    public long countBooks(BookCategory category, BookStatus status) {
+        return catalog.counts().get(category, status);
+    }
+
+    public Map<BookCategory, Map<BookStatus, Long>> bookCounts() {
+        return catalog.counts().toMap();
+    }
+
+    public void addBook(SimpleBook book) {
+        timed(Operation.ADD_BOOK, () -> {
+            if (book.getIsbn() == null || book.getIsbn().trim().isEmpty()) {
+                throw new LibraryException(ErrorCode.INVALID_INPUT, "ISBN is required");
+            }
+            if (!ownsBook(book.getIsbn())) {
+                throw new LibraryException(ErrorCode.WRONG_PARTITION, "Book " + book.getIsbn()
+                        + " belongs to partition " + partitions.partitionOfBook(book.getIsbn()));
+            }
+            return locked(null, bookLocks.forKey(book.getIsbn()), () -> {
+                if (!catalog.add(book)) {
+                    throw new LibraryException(ErrorCode.DUPLICATE_ISBN, "A book with this ISBN already exists: " + book.getIsbn());
+                }
+                publish(listener -> listener.bookAdded(book));
+                return book;
+            });
+        });
+    }
+
+    public SimpleBook updateBook(String isbn, LibraryEventListener.BookField field, String value) {
+        return timed(Operation.UPDATE_BOOK, () -> locked(null, bookLocks.forKey(isbn), () -> {
+            SimpleBook book = requireBook(isbn);
+            applyBookUpdate(book, field, value);
+            publish(listener -> listener.bookUpdated(isbn, field, value));
+            return book;
+        }));
+    }
+
+    public SimpleBook deleteBook(String isbn) {
+        return timed(Operation.DELETE_BOOK, () -> locked(null, bookLocks.forKey(isbn), () -> {
+            SimpleBook book = requireBook(isbn);
+            catalog.remove(isbn);
+            publish(listener -> listener.bookDeleted(isbn));
+            return book;
+        }));
+    }
+
+    private SimpleBook requireBook(String isbn) {
+        SimpleBook book = catalog.findByIsbn(isbn);
+        if (book == null) {
+            throw new LibraryException(ErrorCode.BOOK_NOT_FOUND, "Book not found with ISBN: " + isbn);
+        }
+        return book;
+    }
+
+    private static void applyBookUpdate(SimpleBook book, LibraryEventListener.BookField field, String value) {
+        switch (field) {
+            case TITLE:
+                book.setTitle(value);
+                break;
+            case AUTHOR:
+                book.setAuthor(value);
+                break;
+            case PUBLISHER:
+                book.setPublisher(value);
+                break;
+        }
+    }
+
+    // ---- Members ----
+
+    public SimpleMember findMember(String memberId) {
+        return members.findById(memberId);
+    }
+
+    public boolean containsEmail(String email) {
+        return members.containsEmail(email);
+    }
+
+    public Collection<SimpleMember> getAllMembers() {
+        return members.getAll();
+    }
+
+    public List<SimpleMember> searchMembers(String query) {
+        return timed(Operation.SEARCH_MEMBERS, () -> members.search(query));
+    }
+
+    /** Members whose first or last name, ID or email starts with {@code query}, for type-ahead lookups. */
+    public List<SimpleMember> searchMembersByPrefix(String query) {
+        return timed(Operation.SEARCH_MEMBERS, () -> members.searchPrefix(query));
+    }
+
+    /** Number of members of the type with the status, read from live counters rather than a scan. */
+    public long countMembers(MemberType memberType, MemberStatus status) {
+        return members.counts().get(memberType, status);
+    }
+
+    /** Number of members of the type with as many books out as the type allows. */
+    public long countMembersAtLimit(MemberType memberType) {
+        return members.atLimitCounts().rowTotal(memberType);
+    }
+
+    public Map<MemberType, Map<MemberStatus, Long>> memberCounts() {
+        return members.counts().toMap();
+    }
+
+    public SimpleMember registerMember(String firstName, String lastName, String email,
+                                       MemberType memberType, String phoneNumber) {
+        return timed(Operation.REGISTER_MEMBER, () -> enrol(firstName, lastName, email, memberType, phoneNumber));
+    }
+
+    private SimpleMember enrol(String firstName, String lastName, String email,
+                               MemberType memberType, String phoneNumber) {
+        if (!ownsRegistration(email)) {
+            throw new LibraryException(ErrorCode.WRONG_PARTITION, "Members with email " + email
+                    + " are registered on partition " + partitions.partitionOfEmail(email));
+        }
+        if (members.containsEmail(email)) {
+            throw new LibraryException(ErrorCode.DUPLICATE_EMAIL, "A member with this email already exists: " + email);
+        }
+        String memberId = memberIds.next();
+        SimpleMember member = new SimpleMember(memberId, firstName, lastName, email, memberType);
+        if (phoneNumber != null && !phoneNumber.trim().isEmpty()) {
+            member.setPhoneNumber(phoneNumber);
+        }
+        // held until the registration is journaled, so no borrow can be logged ahead of it
+        return locked(memberLocks.forKey(memberId), null, () -> {
+            applyRegistration(member);
+            publish(listener -> listener.memberRegistered(member));
+            return member;
+        });
+    }
+
+    public SimpleMember updateMember(String memberId, LibraryEventListener.MemberField field, String value) {
+        return timed(Operation.UPDATE_MEMBER, () -> locked(memberLocks.forKey(memberId), null, () -> {
+            SimpleMember member = requireMember(memberId);
+            applyMemberUpdate(member, field, value);
+            publish(listener -> listener.memberUpdated(memberId, field, value));
+            return member;
+        }));
+    }
+
+    private SimpleMember requireMember(String memberId) {
+        SimpleMember member = members.findById(memberId);
+        if (member == null) {
+            throw new LibraryException(ErrorCode.MEMBER_NOT_FOUND, "Member not found with ID: " + memberId);
+        }
+        return member;
+    }
+
+    private void applyRegistration(SimpleMember member) {
+        if (!members.register(member)) {
+            throw new LibraryException(ErrorCode.DUPLICATE_EMAIL, "A member with this email already exists: " + member.getEmail());
+        }
+    }
+
+    private static void applyMemberUpdate(SimpleMember member, LibraryEventListener.MemberField field, String value) {
+        switch (field) {
+            case PHONE_NUMBER:
+                member.setPhoneNumber(value);
+                break;
+            case ADDRESS:
+                member.setAddress(value);
+                break;
+        }
+    }
+
+    // ---- Circulation ----
+
+    /**
+     * Lends the member a copy of the book. A member of another partition is
+     * not checked here; the loan must already have been charged to them with
+     * {@link #chargeLoan} on their own partition.
+     */
+    public SimpleTransaction borrowBook(String memberId, String isbn) {
+        return timed(Operation.BORROW,
+                () -> locked(memberLocks.forKey(memberId), bookLocks.forKey(isbn), () -> lendCopy(memberId, isbn)));
+    }
+
+    private SimpleTransaction lendCopy(String memberId, String isbn) {
+        SimpleMember member = localMember(memberId);
+        if (member != null && !member.canBorrowBooks()) {
+            throw new LibraryException(ErrorCode.MEMBER_CANNOT_BORROW, "Member cannot borrow books: " + memberId);
+        }
+        SimpleBook book = requireBook(isbn);
+        SimpleTransaction hold = holds.findHold(memberId, isbn);
+        boolean copySetAside = hold != null && hold.getDueDate() != null;
+        if (!copySetAside && !book.isAvailable()) {
+            throw new LibraryException(ErrorCode.BOOK_NOT_AVAILABLE,
+                    "Book is not available for borrowing. Status: " + book.getStatus().getDisplayName());
+        }
+
+        String transactionId = transactionIds.next();
+        SimpleTransaction transaction = new SimpleTransaction(transactionId, memberId, isbn, TransactionType.BORROW);
+        transaction.setCopyNumber(takeCopy(book, hold));
+        if (member != null) {
+            member.borrowBook();
+        }
+        recordLoan(transaction);
+        publish(listener -> listener.bookBorrowed(transaction));
+        if (hold != null) {
+            LocalDate today = LocalDate.now();
+            closeHold(hold, book, TransactionStatus.COMPLETED, today);
+            publish(listener -> listener.holdCollected(hold.getTransactionId(), memberId, isbn, today));
+        }
+        return transaction;
+    }
+
+    // a member collecting a hold gets the copy set aside for it
+    private static int takeCopy(SimpleBook book, SimpleTransaction hold) {
+        if (hold != null && hold.getCopyNumber() != BookCopies.NO_COPY) {
+            book.lendHeldCopy(hold.getCopyNumber());
+            return hold.getCopyNumber();
+        }
+        return book.borrowCopy();
+    }
+
+    /**
+     * Takes back the member's copy of the book. For a member of another
+     * partition the fine is left to be settled there; see {@link #returnLoan}.
+     */
+    public SimpleTransaction returnBook(String memberId, String isbn) {
+        return returnLoan(memberId, isbn).getLoan();
+    }
+
+    /**
+     * Takes back the member's copy of the book as {@link #returnBook} does,
+     * also reporting how much of the fine a member of another partition
+     * still has to be charged there with {@link #settleLoan}.
+     */
+    public LoanReturn returnLoan(String memberId, String isbn) {
+        return timed(Operation.RETURN,
+                () -> locked(memberLocks.forKey(memberId), bookLocks.forKey(isbn), () -> receiveCopy(memberId, isbn)));
+    }
+
+    private LoanReturn receiveCopy(String memberId, String isbn) {
+        SimpleMember member = localMember(memberId);
+        SimpleBook book = requireBook(isbn);
+        SimpleTransaction loan = openLoans.findOpenLoan(memberId, isbn);
+        if (loan == null) {
+            throw new LibraryException(ErrorCode.NO_ACTIVE_LOAN,
+                    "No active borrowing transaction found for this member and book.");
+        }
+
+        // part of the fine may already be on the member's balance from fine accrual,
+        // here or, forwarded by the router, on the member's partition
+        double alreadyCharged = loan.getFineAmount();
+        loan.completeReturn();
+        closeLoan(loan, book, member);
+        publish(listener -> listener.bookReturned(loan.getTransactionId(), memberId, isbn,
+                loan.getReturnDate(), loan.getFineAmount()));
+
+        double fine = loan.getFineAmount() - alreadyCharged;
+        if (fine != 0 && member != null) {
+            member.addFine(fine);
+            publish(listener -> listener.fineApplied(memberId, fine));
+        }
+        setAsideForNextHold(book, loan.getReturnDate());
+        return new LoanReturn(loan, member != null ? 0 : fine);
+    }
+
+    /**
+     * Brings the running fine of every loan overdue on {@code asOf} up to date
+     * and moves each member's balance by the change, so members who keep books
+     * too long hit the fine limit without returning them. A fine only ever
+     * grows: loans whose fine would not, including every loan after a run with
+     * an earlier date than the last, are left alone. {@code asOf} may not be
+     * later than today, since the return charges the fine up to the return
+     * date. Members are processed in parallel on the common fork/join pool.
+     * The change for members of other partitions is only reported, in
+     * {@link FineAccrualReport#getRemoteCharges()}.
+     */
+    public FineAccrualReport accrueFines(LocalDate asOf) {
+        return timed(Operation.ACCRUE_FINES, () -> {
+            if (asOf.isAfter(LocalDate.now())) {
+                throw new LibraryException(ErrorCode.INVALID_INPUT, "Cannot accrue fines ahead of today: " + asOf);
+            }
+            long started = System.nanoTime();
+            List<SimpleTransaction> overdue = openLoans.overdueAsOf(asOf);
+            List<List<SimpleTransaction>> changedByMember = new ArrayList<>(overdue.parallelStream()
+                    .filter(loan -> loan.accruedFine(asOf) > loan.getFineAmount())
+                    .collect(Collectors.groupingByConcurrent(SimpleTransaction::getMemberId))
+                    .values());
+            FineAccrualTask.Tally tally = ForkJoinPool.commonPool()
+                    .invoke(new FineAccrualTask(this, changedByMember, asOf));
+            return new FineAccrualReport(asOf, overdue.size(), tally.loansUpdated, tally.membersUpdated,
+                    tally.balanceChange, tally.remoteCharges, (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    /** Accrues the fines of one member's loans, all of which belong to the same member. */
+    void accrueFines(List<SimpleTransaction> loans, LocalDate asOf, FineAccrualTask.Tally tally) {
+        String memberId = loans.get(0).getMemberId();
+        locked(memberLocks.forKey(memberId), null, () -> {
+            SimpleMember member = localMember(memberId);
+            int updated = 0;
+            double change = 0;
+            for (SimpleTransaction loan : loans) {
+                double accrued = loan.accruedFine(asOf);
+                // returned or accrued by someone else since the scan
+                if (loan.getStatus() != TransactionStatus.ACTIVE || accrued <= loan.getFineAmount()) {
+                    continue;
+                }
+                change += applyAccrual(loan, member, accrued);
+                publish(listener -> listener.fineAccrued(loan.getTransactionId(), memberId, loan.getBookIsbn(), accrued));
+                updated++;
+            }
+            if (updated > 0) {
+                tally.loansUpdated += updated;
+                tally.membersUpdated++;
+                tally.balanceChange += change;
+                if (member == null) {
+                    tally.remoteCharges.put(memberId, change);
+                }
+            }
+            return member;
+        });
+    }
+
+    // a member of another partition is charged on their own partition with chargeFine
+    private double applyAccrual(SimpleTransaction loan, SimpleMember member, double accruedFine) {
+        double change = accruedFine - loan.getFineAmount();
+        loan.setFineAmount(accruedFine);
+        if (member != null) {
+            member.addFine(change);
+        }
+        transactions.updateOutcome(loan);
+        return change;
+    }
+
+    public SimpleTransaction findOpenLoan(String memberId, String isbn) {
+        return openLoans.findOpenLoan(memberId, isbn);
+    }
+
+    public List<SimpleTransaction> openLoansFor(String memberId) {
+        return openLoans.openLoansFor(memberId);
+    }
+
+    public List<SimpleTransaction> overdueAsOf(LocalDate date) {
+        return timed(Operation.OVERDUE_REPORT, () -> openLoans.overdueAsOf(date));
+    }
+
+    public boolean hasTransactions() {
+        return !transactions.isEmpty();
+    }
+
+    public HistoryPage<TransactionView> transactionHistory(int cursor, int pageSize) {
+        return transactions.page(cursor, pageSize);
+    }
+
+    public HistoryPage<TransactionView> transactionHistory(String memberId, int cursor, int pageSize) {
+        return transactions.pageForMember(memberId, cursor, pageSize);
+    }
+
+    private void recordLoan(SimpleTransaction transaction) {
+        transactions.add(transaction);
+        openLoans.add(transaction);
+    }
+
+    private void closeLoan(SimpleTransaction loan, SimpleBook book, SimpleMember member) {
+        openLoans.remove(loan);
+        transactions.updateOutcome(loan);
+        book.returnCopy(loan.getCopyNumber());
+        if (member != null) {
+            member.returnBook();
+        }
+    }
+
+    // ---- Partitions ----
+
+    public PartitionMap getPartitionMap() {
+        return partitions;
+    }
+
+    /** This service's index in {@link #getPartitionMap()}. */
+    public int getPartition() {
+        return partition;
+    }
+
+    public boolean ownsBook(String isbn) {
+        return partitions.partitionOfBook(isbn) == partition;
+    }
+
+    public boolean ownsMember(String memberId) {
+        return partitions.partitionOfMember(memberId) == partition;
+    }
+
+    /** Whether a member with this email is registered here rather than on another partition. */
+    public boolean ownsRegistration(String email) {
+        return partitions.partitionOfEmail(email) == partition;
+    }
+
+    /**
+     * Counts a loan about to be made on the book's partition against the
+     * member, failing as {@link #borrowBook} would if they cannot borrow. If
+     * that partition then refuses the loan, undo this with
+     * {@link #settleLoan} and no fine.
+     */
+    public SimpleMember chargeLoan(String memberId) {
+        return timed(Operation.CHARGE_LOAN, () -> locked(memberLocks.forKey(memberId), null, () -> {
+            SimpleMember member = requireMember(memberId);
+            if (!member.canBorrowBooks()) {
+                throw new LibraryException(ErrorCode.MEMBER_CANNOT_BORROW, "Member cannot borrow books: " + memberId);
+            }
+            member.borrowBook();
+            publish(listener -> listener.loanCharged(memberId));
+            return member;
+        }));
+    }
+
+    /**
+     * Ends a loan charged with {@link #chargeLoan}, adding the part of its fine
+     * not already charged with {@link #chargeFine}
+     * ({@link LoanReturn#getFineToSettle()} on the book's partition).
+     */
+    public SimpleMember settleLoan(String memberId, double fine) {
+        return timed(Operation.SETTLE_LOAN, () -> {
+            requireFine(fine);
+            return locked(memberLocks.forKey(memberId), null, () -> {
+                SimpleMember member = requireMember(memberId);
+                applySettlement(member, fine);
+                publish(listener -> listener.loanSettled(memberId, fine));
+                return member;
+            });
+        });
+    }
+
+    /**
+     * Adds to the member's balance a fine accrued on a loan kept on another
+     * partition, as reported there in {@link FineAccrualReport#getRemoteCharges()}.
+     */
+    public SimpleMember chargeFine(String memberId, double amount) {
+        return timed(Operation.CHARGE_FINE, () -> {
+            requireFine(amount);
+            return locked(memberLocks.forKey(memberId), null, () -> {
+                SimpleMember member = requireMember(memberId);
+                member.addFine(amount);
+                publish(listener -> listener.fineApplied(memberId, amount));
+                return member;
+            });
+        });
+    }
+
+    private static void requireFine(double amount) {
+        if (!(amount >= 0) || Double.isInfinite(amount)) {
+            throw new LibraryException(ErrorCode.INVALID_INPUT, "Fine must not be negative: " + amount);
+        }
+    }
+
+    private static void applySettlement(SimpleMember member, double fine) {
+        member.returnBook();
+        if (fine != 0) {
+            member.addFine(fine);
+        }
+    }
+
+    // null for a member of another partition, whose limits and balance are kept there
+    private SimpleMember localMember(String memberId) {
+        return ownsMember(memberId) ? requireMember(memberId) : null;
+    }
+
+    // ---- Copies ----
+
+    /** Barcodes of the book's copies on the shelf, lowest copy number first. */
+    public List<String> barcodesOnShelf(String isbn) {
+        BookCopies copies = requireBook(isbn).getCopies();
+        List<String> barcodes = new ArrayList<>();
+        for (int copy = copies.nextOnShelf(0); copy != BookCopies.NO_COPY; copy = copies.nextOnShelf(copy + 1)) {
+            barcodes.add(BookCopies.barcode(isbn, copy));
+        }
+        return barcodes;
+    }
+
+    /** Whether the copy with this barcode is on the shelf, on the hold shelf or out on loan. */
+    public CopyStatus findCopy(String barcode) {
+        String isbn = BookCopies.isbnOf(barcode);
+        SimpleBook book = isbn != null ? catalog.findByIsbn(isbn) : null;
+        int copy = BookCopies.copyNumberOf(barcode);
+        if (book == null || copy >= book.getCopies().count()) {
+            throw new LibraryException(ErrorCode.BOOK_NOT_FOUND, "No copy with barcode: " + barcode);
+        }
+        return book.getCopies().statusOf(copy);
+    }
+
+    // ---- Holds ----
+
+    /**
+     * Queues the member for a book with no copy on the shelf. Returned copies
+     * are set aside for the oldest hold first; the member then has
+     * {@value #HOLD_PICKUP_DAYS} days to borrow it.
+     */
+    public SimpleTransaction placeHold(String memberId, String isbn) {
+        return timed(Operation.PLACE_HOLD,
+                () -> locked(memberLocks.forKey(memberId), bookLocks.forKey(isbn), () -> queueHold(memberId, isbn)));
+    }
+
+    private SimpleTransaction queueHold(String memberId, String isbn) {
+        SimpleMember member = localMember(memberId);
+        if (member != null && !member.isActive()) {
+            throw new LibraryException(ErrorCode.MEMBER_CANNOT_BORROW, "Member cannot place holds: " + memberId);
+        }
+        SimpleBook book = requireBook(isbn);
+        if (book.isAvailable()) {
+            throw new LibraryException(ErrorCode.HOLD_NOT_ALLOWED, "Book is on the shelf and can be borrowed: " + isbn);
+        }
+        if (holds.findHold(memberId, isbn) != null) {
+            throw new LibraryException(ErrorCode.HOLD_NOT_ALLOWED, "Member already has a hold on this book.");
+        }
+        if (openLoans.findOpenLoan(memberId, isbn) != null) {
+            throw new LibraryException(ErrorCode.HOLD_NOT_ALLOWED, "Member already has this book on loan.");
+        }
+
+        SimpleTransaction hold = new SimpleTransaction(transactionIds.next(), memberId, isbn, TransactionType.RESERVE);
+        recordHold(hold);
+        publish(listener -> listener.holdPlaced(hold));
+        return hold;
+    }
+
+    /** Withdraws the member's hold; a copy already set aside goes to the next hold in line. */
+    public SimpleTransaction cancelHold(String memberId, String isbn) {
+        return timed(Operation.CANCEL_HOLD, () -> locked(memberLocks.forKey(memberId), bookLocks.forKey(isbn), () -> {
+            SimpleTransaction hold = holds.findHold(memberId, isbn);
+            if (hold == null) {
+                throw new LibraryException(ErrorCode.NO_ACTIVE_HOLD, "No active hold found for this member and book.");
+            }
+            SimpleBook book = requireBook(isbn);
+            LocalDate today = LocalDate.now();
+            closeHold(hold, book, TransactionStatus.CANCELLED, today);
+            publish(listener -> listener.holdCancelled(hold.getTransactionId(), memberId, isbn, today));
+            setAsideForNextHold(book, today);
+            return hold;
+        }));
+    }
+
+    /**
+     * Cancels holds whose copy was not collected by the pickup deadline and
+     * passes each copy to the next hold in line, or back to the shelf. Holds
+     * are released {@value #HOLD_RELEASE_BATCH} at a time with one journal
+     * flush per batch. Returns the number released.
+     */
+    public int releaseExpiredHolds(LocalDate asOf) {
+        return timed(Operation.RELEASE_EXPIRED_HOLDS, () -> {
+            List<SimpleTransaction> expired = holds.expiredAsOf(asOf);
+            int[] released = new int[1];
+            for (int from = 0; from < expired.size(); from += HOLD_RELEASE_BATCH) {
+                List<SimpleTransaction> batch = expired.subList(from, Math.min(from + HOLD_RELEASE_BATCH, expired.size()));
+                runBatch(() -> {
+                    for (SimpleTransaction hold : batch) {
+                        if (releaseHold(hold, asOf)) {
+                            released[0]++;
+                        }
+                    }
+                });
+            }
+            return released[0];
+        });
+    }
+
+    private boolean releaseHold(SimpleTransaction hold, LocalDate asOf) {
+        String memberId = hold.getMemberId();
+        String isbn = hold.getBookIsbn();
+        return locked(memberLocks.forKey(memberId), bookLocks.forKey(isbn), () -> {
+            // collected or cancelled since the scan
+            if (hold.getStatus() != TransactionStatus.ACTIVE) {
+                return false;
+            }
+            SimpleBook book = requireBook(isbn);
+            closeHold(hold, book, TransactionStatus.CANCELLED, asOf);
+            publish(listener -> listener.holdCancelled(hold.getTransactionId(), memberId, isbn, asOf));
+            setAsideForNextHold(book, asOf);
+            return true;
+        });
+    }
+
+    /** The member's open holds, waiting or ready for pickup. */
+    public List<SimpleTransaction> holdsFor(String memberId) {
+        return holds.holdsFor(memberId);
+    }
+
+    /** Holds still waiting for a copy of the book, first in line first. */
+    public List<SimpleTransaction> holdQueueFor(String isbn) {
+        return holds.waitingFor(isbn);
+    }
+
+    private void recordHold(SimpleTransaction hold) {
+        transactions.add(hold);
+        holds.add(hold);
+    }
+
+    /** Sets a shelf copy aside for the oldest waiting hold, if there is one. Caller holds the book's lock. */
+    private void setAsideForNextHold(SimpleBook book, LocalDate today) {
+        SimpleTransaction next = holds.nextWaiting(book.getIsbn());
+        if (next == null || book.getAvailableCopies() == 0) {
+            return;
+        }
+        LocalDate pickupBy = today.plusDays(HOLD_PICKUP_DAYS);
+        int copy = book.holdCopy();
+        readyHold(next, copy, pickupBy);
+        publish(listener -> listener.holdReady(next.getTransactionId(), next.getMemberId(), next.getBookIsbn(),
+                copy, pickupBy));
+    }
+
+    private void readyHold(SimpleTransaction hold, int copyNumber, LocalDate pickupBy) {
+        hold.setCopyNumber(copyNumber);
+        holds.markReady(hold, pickupBy);
+        transactions.updateOutcome(hold);
+    }
+
+    private void closeHold(SimpleTransaction hold, SimpleBook book, TransactionStatus outcome, LocalDate date) {
+        holds.remove(hold);
+        hold.setReturnDate(date);
+        hold.setStatus(outcome);
+        transactions.updateOutcome(hold);
+        // a collected hold's copy went out on loan with it
+        if (outcome == TransactionStatus.CANCELLED && hold.getCopyNumber() != BookCopies.NO_COPY) {
+            book.releaseHeldCopy(hold.getCopyNumber());
+        }
+    }
+
+    // ---- Analytics ----
+
+    private CirculationAnalytics newAnalytics() {
+        return new CirculationAnalytics(transactions,
+                memberId -> {
+                    SimpleMember member = members.findById(memberId);
+                    return member != null ? member.getMemberType() : null;
+                },
+                isbn -> {
+                    SimpleBook book = catalog.findByIsbn(isbn);
+                    return book != null ? book.getCategory() : null;
+                });
+    }
+
+    /** The ISBNs lent most often between the dates (inclusive, null for open-ended), most first. */
+    public List<IsbnLoanCount> topBorrowedIsbns(LocalDate from, LocalDate to, int limit) {
+        return timed(Operation.CIRCULATION_ANALYTICS, () -> analytics.topBorrowedIsbns(from, to, limit));
+    }
+
+    /** Returned loans made between the dates, with their total days out, by the member's type. */
+    public Map<MemberType, LoanSummary> loanDaysByMemberType(LocalDate from, LocalDate to) {
+        return timed(Operation.CIRCULATION_ANALYTICS, () -> analytics.loanDaysByMemberType(from, to));
+    }
+
+    /** Returned loans made between the dates, with how many came back late, by the book's category. */
+    public Map<BookCategory, LoanSummary> lateReturnsByCategory(LocalDate from, LocalDate to) {
+        return timed(Operation.CIRCULATION_ANALYTICS, () -> analytics.lateReturnsByCategory(from, to));
+    }
+
+    // ---- Persistence ----
+
+    public boolean isEmpty() {
+        return catalog.isEmpty() && members.isEmpty() && transactions.isEmpty();
+    }
+
+    public void snapshot() throws IOException {
+        if (journal == null) return;
+        stateLock.writeLock().lock();
+        try {
+            writeSnapshot();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        int generation = journal.getGeneration() + 1;
+        journal.flush();
+        MappedCatalogFile written = snapshots.write(new Snapshot(generation, Math.toIntExact(memberIds.peekNext()),
+                Math.toIntExact(transactionIds.peekNext()), catalogFile, catalog, members, transactions));
+        journal.rotate(generation);
+        catalog.reattach(written.books());
+        members.reattach(written.members());
+        catalogFile = written;
+        snapshots.deleteOlderThan(generation);
+    }
+
+    private void snapshotIfDue() {
+        Journal current = journal;
+        if (current == null || snapshotInterval <= 0 || current.getRecordCount() < snapshotInterval) {
+            return;
+        }
+        stateLock.writeLock().lock();
+        try {
+            if (journal.getRecordCount() >= snapshotInterval) {
+                writeSnapshot();
+            }
+        } catch (IOException e) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE, "Snapshot failed: " + e.getMessage(), e);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a group of mutations with the journal flushed once at the end
+     * rather than after every record.
+     */
+    public void runBatch(Runnable batch) {
+        if (journal == null) {
+            batch.run();
+            return;
+        }
+        journal.beginBatch();
+        try {
+            batch.run();
+        } finally {
+            try {
+                journal.endBatch();
+            } catch (IOException e) {
+                throw halt(new LibraryException(ErrorCode.STORAGE_FAILURE,
+                        "Could not flush journal: " + e.getMessage(), e));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        if (changes != null) {
+            changes.close();
+        }
+        for (HighWaterMarkFile highWaterMark : highWaterMarks) {
+            highWaterMark.close();
+        }
+    }
+
+    private void publish(Consumer<LibraryEventListener> event) {
+        for (LibraryEventListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (LibraryException e) {
+                throw halt(e);
+            } catch (RuntimeException e) {
+                throw halt(new LibraryException(ErrorCode.STORAGE_FAILURE,
+                        "Could not record change: " + e.getMessage(), e));
+            }
+        }
+    }
+
+    private LibraryException halt(LibraryException failure) {
+        if (halted == null) {
+            halted = failure;
+        }
+        return failure;
+    }
+
+    private void requireRunning() {
+        LibraryException failure = halted;
+        if (failure != null) {
+            throw new LibraryException(ErrorCode.STORAGE_FAILURE,
+                    "Library stopped taking changes after a storage failure: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Runs a mutation under the shared state lock and the given stripes, taken
+     * in member-then-book order. Either stripe may be null. Fails once the
+     * service has stopped.
+     */
+    private <T> T locked(Lock memberLock, Lock bookLock, Supplier<T> mutation) {
+        T result;
+        Lock shared = stateLock.readLock();
+        shared.lock();
+        try {
+            if (memberLock != null) memberLock.lock();
+            try {
+                if (bookLock != null) bookLock.lock();
+                try {
+                    requireRunning();
+                    result = mutation.get();
+                } finally {
+                    if (bookLock != null) bookLock.unlock();
+                }
+            } finally {
+                if (memberLock != null) memberLock.unlock();
+            }
+        } finally {
+            shared.unlock();
+        }
+        snapshotIfDue();
+        return result;
+    }
+
+    /**
+     * Runs an operation and records its latency under its outcome: success,
+     * the {@link ErrorCode} it failed with, or unexpected.
+     */
+    private <T> T timed(Operation operation, Supplier<T> body) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = body.get();
+        } catch (LibraryException e) {
+            metrics.recordFailure(operation, e.getCode(), start);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            metrics.recordUnexpected(operation, start);
+            throw e;
+        }
+        metrics.recordSuccess(operation, start);
+        return result;
+    }
+
+    private class Replayer implements LibraryEventListener {
+
+        @Override
+        public void bookAdded(SimpleBook book) {
+            catalog.add(book);
+        }
+
+        @Override
+        public void bookUpdated(String isbn, BookField field, String value) {
+            applyBookUpdate(requireBook(isbn), field, value);
+        }
+
+        @Override
+        public void bookDeleted(String isbn) {
+            catalog.remove(isbn);
+        }
+
+        @Override
+        public void memberRegistered(SimpleMember member) {
+            applyRegistration(member);
+            memberIds.advancePast(member.getMemberId());
+        }
+
+        @Override
+        public void memberUpdated(String memberId, MemberField field, String value) {
+            applyMemberUpdate(requireMember(memberId), field, value);
+        }
+
+        @Override
+        public void bookBorrowed(SimpleTransaction transaction) {
+            SimpleMember member = localMember(transaction.getMemberId());
+            SimpleBook book = requireBook(transaction.getBookIsbn());
+            int copy = transaction.getCopyNumber();
+            SimpleTransaction hold = holds.findHold(transaction.getMemberId(), transaction.getBookIsbn());
+            if (hold != null && hold.getCopyNumber() == copy && copy != BookCopies.NO_COPY) {
+                book.lendHeldCopy(copy);
+            } else {
+                book.borrowCopy(copy);
+            }
+            if (member != null) {
+                member.setCurrentBorrowedBooks(member.getCurrentBorrowedBooks() + 1);
+            }
+            recordLoan(transaction);
+            transactionIds.advancePast(transaction.getTransactionId());
+        }
+
+        @Override
+        public void bookReturned(String transactionId, String memberId, String isbn,
+                                 LocalDate returnDate, double fineAmount) {
+            SimpleTransaction loan = openLoans.findOpenLoan(memberId, isbn, transactionId);
+            if (loan != null) {
+                loan.setReturnDate(returnDate);
+                loan.setFineAmount(fineAmount);
+                loan.setStatus(TransactionStatus.COMPLETED);
+                closeLoan(loan, requireBook(isbn), localMember(memberId));
+            }
+        }
+
+        @Override
+        public void fineApplied(String memberId, double amount) {
+            requireMember(memberId).addFine(amount);
+        }
+
+        @Override
+        public void loanCharged(String memberId) {
+            SimpleMember member = requireMember(memberId);
+            member.setCurrentBorrowedBooks(member.getCurrentBorrowedBooks() + 1);
+        }
+
+        @Override
+        public void loanSettled(String memberId, double fine) {
+            applySettlement(requireMember(memberId), fine);
+        }
+
+        @Override
+        public void fineAccrued(String transactionId, String memberId, String isbn, double accruedFine) {
+            SimpleTransaction loan = openLoans.findOpenLoan(memberId, isbn, transactionId);
+            if (loan != null) {
+                applyAccrual(loan, localMember(memberId), accruedFine);
+            }
+        }
+
+        @Override
+        public void holdPlaced(SimpleTransaction hold) {
+            recordHold(hold);
+            transactionIds.advancePast(hold.getTransactionId());
+        }
+
+        @Override
+        public void holdReady(String transactionId, String memberId, String isbn, int copyNumber, LocalDate pickupBy) {
+            SimpleTransaction hold = holds.findHold(memberId, isbn, transactionId);
+            if (hold != null) {
+                requireBook(isbn).holdCopy(copyNumber);
+                readyHold(hold, copyNumber, pickupBy);
+            }
+        }
+
+        @Override
+        public void holdCollected(String transactionId, String memberId, String isbn, LocalDate collectedOn) {
+            SimpleTransaction hold = holds.findHold(memberId, isbn, transactionId);
+            if (hold != null) {
+                closeHold(hold, requireBook(isbn), TransactionStatus.COMPLETED, collectedOn);
+            }
+        }
+
+        @Override
+        public void holdCancelled(String transactionId, String memberId, String isbn, LocalDate cancelledOn) {
+            SimpleTransaction hold = holds.findHold(memberId, isbn, transactionId);
+            if (hold != null) {
+                closeHold(hold, requireBook(isbn), TransactionStatus.CANCELLED, cancelledOn);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.libraryms.service;
+
+import com.libraryms.model.SimpleTransaction;
+
+/** A returned loan and the part of its fine the member's partition still has to be charged. */
+public class LoanReturn {
+
+    private final SimpleTransaction loan;
+    private final double fineToSettle;
+
+    LoanReturn(SimpleTransaction loan, double fineToSettle) {
+        this.loan = loan;
+        this.fineToSettle = fineToSettle;
+    }
+
+    public SimpleTransaction getLoan() { return loan; }
+
+    /**
+     * What to pass to {@link LibraryService#settleLoan} on the member's
+     * partition: the fine less what fine accrual has already charged there.
+     * Always 0 for a member of this partition, whose balance the return
+     * has already moved.
+     */
+    public double getFineToSettle() { return fineToSettle; }
+
+}
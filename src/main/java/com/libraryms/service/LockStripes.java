@@ -0,0 +1,29 @@
+package com.libraryms.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks selected by key hash. Two keys share a lock only when they
+ * land on the same stripe, so unrelated ISBNs or members rarely contend and the
+ * number of lock objects stays constant however large the catalog grows.
+ */
+final class LockStripes {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    LockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    ReentrantLock forKey(String key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & mask];
+    }
+
+}
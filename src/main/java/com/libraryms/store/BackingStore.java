@@ -0,0 +1,29 @@
+package com.libraryms.store;
+
+import java.util.function.Consumer;
+
+/**
+ * Read-only source of records that have not been loaded into memory yet, such
+ * as a memory-mapped snapshot. Stores fault records in from it on first access.
+ */
+public interface BackingStore<T> {
+
+    int size();
+
+    T load(String key);
+
+    void forEachKey(Consumer<String> action);
+
+    /** Decodes every record in turn without keeping any, for building indexes over them. */
+    void forEach(Consumer<T> action);
+
+    default String findKeyBy(String secondaryKey) {
+        return null;
+    }
+
+    /** Aggregate counts saved with the records by the store they came from, or null if none were saved. */
+    default long[] counts() {
+        return null;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.libraryms.store;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.BookChangeListener;
+import com.libraryms.model.BookStatus;
+import com.libraryms.model.SimpleBook;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Books by ISBN with an n-gram search index, faulted in from a
+ * {@link BackingStore} on first access. Also keeps a live count of books by
+ * category and status, including books not loaded yet; the counts are updated
+ * from change events without taking the catalog's lock.
+ *
+ * <p>Looking up a book that is already loaded takes no lock, so loans and
+ * returns on different books never meet here. Faulting a book in, adding,
+ * removing and searching synchronise on the catalog.
+ */
+public class BookCatalog implements BookChangeListener {
+
+    private final Map<String, SimpleBook> booksByIsbn;
+    private final NGramIndex<String> searchIndex;
+    private final Set<String> deletedFromBacking;
+    private final Set<String> pendingIndex;
+    private final EnumGridCounts<BookCategory, BookStatus> counts;
+    private volatile BackingStore<SimpleBook> backing;
+    private int unloadedCount;
+    // every backing record the catalog has not loaded is in the search index
+    private boolean backingIndexed;
+
+    public BookCatalog() {
+        this.booksByIsbn = new ConcurrentHashMap<>();
+        this.searchIndex = new NGramIndex<>();
+        this.deletedFromBacking = new HashSet<>();
+        this.pendingIndex = new LinkedHashSet<>();
+        this.counts = new EnumGridCounts<>(BookCategory.class, BookStatus.class);
+    }
+
+    public synchronized void attach(BackingStore<SimpleBook> backing) {
+        this.backing = backing;
+        this.unloadedCount = backing.size();
+        this.deletedFromBacking.clear();
+        this.backingIndexed = false;
+        long[] saved = backing.counts();
+        if (saved != null && saved.length == counts.cellCount()) {
+            counts.addAll(saved, 0);
+        } else {
+            // no counts saved, or saved with different categories or statuses
+            backing.forEachKey(isbn -> count(backing.load(isbn), 1));
+        }
+    }
+
+    /**
+     * Moves to a backing written from this catalog, holding every book it
+     * has, loaded or not. Loaded books stay loaded, and the counts and search
+     * index already cover the new backing's books.
+     */
+    public synchronized void reattach(BackingStore<SimpleBook> backing) {
+        this.backing = backing;
+        this.unloadedCount = backing.size() - booksByIsbn.size();
+        this.deletedFromBacking.clear();
+    }
+
+    /** The live counts by category and status, laid out as {@link #attach} reads them back. */
+    public long[] savedCounts() {
+        return counts.toArray();
+    }
+
+    /** Live counts of books by category and status; reading them takes no lock. */
+    public EnumGridCounts<BookCategory, BookStatus> counts() {
+        return counts;
+    }
+
+    public synchronized boolean add(SimpleBook book) {
+        if (book.getIsbn() == null || findByIsbn(book.getIsbn()) != null) {
+            return false;
+        }
+        put(book);
+        return true;
+    }
+
+    public SimpleBook findByIsbn(String isbn) {
+        if (isbn == null) return null;
+        SimpleBook book = booksByIsbn.get(isbn);
+        if (book != null || backing == null) {
+            return book;
+        }
+        return faultIn(isbn);
+    }
+
+    private synchronized SimpleBook faultIn(String isbn) {
+        SimpleBook book = booksByIsbn.get(isbn);
+        if (book != null || backing == null || deletedFromBacking.contains(isbn)) {
+            return book;
+        }
+        book = backing.load(isbn);
+        if (book != null) {
+            // point lookups skip n-gram indexing; search() catches up
+            unloadedCount--;
+            book.setChangeListener(this);
+            if (!backingIndexed) {
+                pendingIndex.add(isbn);
+            }
+            // published last: lock-free readers may change it as soon as they see it
+            booksByIsbn.put(isbn, book);
+        }
+        return book;
+    }
+
+    public boolean contains(String isbn) {
+        return findByIsbn(isbn) != null;
+    }
+
+    public synchronized SimpleBook remove(String isbn) {
+        SimpleBook book = findByIsbn(isbn);
+        if (book == null) return null;
+        booksByIsbn.remove(isbn);
+        searchIndex.remove(isbn);
+        pendingIndex.remove(isbn);
+        book.setChangeListener(null);
+        count(book, -1);
+        if (backing != null) {
+            deletedFromBacking.add(isbn);
+        }
+        return book;
+    }
+
+    /** Books whose title, author or ISBN contains {@code query}; only the matches are faulted in. */
+    public synchronized List<SimpleBook> search(String query) {
+        indexBacking();
+        indexPending();
+        List<String> isbns = searchIndex.search(query);
+        List<SimpleBook> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            results.add(findByIsbn(isbn));
+        }
+        return results;
+    }
+
+    // Not synchronized: status changes come with every loan and return, and must not queue on the catalog.
+    @Override
+    public void bookChanged(SimpleBook book, String property, Object oldValue, Object newValue) {
+        switch (property) {
+            case "status":
+                counts.move(book.getCategory(), (BookStatus) oldValue, book.getCategory(), (BookStatus) newValue);
+                break;
+            case "category":
+                counts.move((BookCategory) oldValue, book.getStatus(), (BookCategory) newValue, book.getStatus());
+                break;
+            default:
+                reindex(book, property);
+        }
+    }
+
+    private synchronized void reindex(SimpleBook book, String property) {
+        if (("title".equals(property) || "author".equals(property)) && !pendingIndex.contains(book.getIsbn())) {
+            index(book);
+        }
+    }
+
+    private void put(SimpleBook book) {
+        book.setChangeListener(this);
+        count(book, 1);
+        index(book);
+        booksByIsbn.put(book.getIsbn(), book);
+    }
+
+    private void count(SimpleBook book, long delta) {
+        counts.add(book.getCategory(), book.getStatus(), delta);
+    }
+
+    private void index(SimpleBook book) {
+        searchIndex.put(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    private void indexPending() {
+        for (String isbn : pendingIndex) {
+            index(booksByIsbn.get(isbn));
+        }
+        pendingIndex.clear();
+    }
+
+    private void indexBacking() {
+        if (backing == null || backingIndexed) {
+            return;
+        }
+        backing.forEach(book -> {
+            String isbn = book.getIsbn();
+            if (!booksByIsbn.containsKey(isbn) && !deletedFromBacking.contains(isbn)) {
+                index(book);
+            }
+        });
+        backingIndexed = true;
+    }
+
+    private void loadAll() {
+        if (backing != null && unloadedCount > 0) {
+            backing.forEachKey(this::findByIsbn);
+        }
+    }
+
+    public synchronized int size() {
+        return booksByIsbn.size() + unloadedCount;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public synchronized Collection<SimpleBook> getAll() {
+        loadAll();
+        return new ArrayList<>(booksByIsbn.values());
+    }
+
+    /** The books in memory, which are all a snapshot has to encode; the rest are still as in the backing. */
+    public synchronized Collection<SimpleBook> getLoaded() {
+        return new ArrayList<>(booksByIsbn.values());
+    }
+
+    /** Whether the backing's book for {@code isbn} is out of date: loaded, so maybe changed, or removed. */
+    public synchronized boolean replacesBacking(String isbn) {
+        return booksByIsbn.containsKey(isbn) || deletedFromBacking.contains(isbn);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.libraryms.store;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counts of records by a pair of enum values, such as books by category
+ * and status. Each cell is a {@link LongAdder}, so writers on different
+ * threads do not contend and a read sums a few per-thread cells no matter
+ * how many records there are. A record that changes cell leaves one and
+ * joins the other in two steps, so a read racing the move can be one off
+ * until it completes. Records with a null value are not counted.
+ */
+public final class EnumGridCounts<R extends Enum<R>, C extends Enum<C>> {
+
+    private final Class<R> rowType;
+    private final Class<C> columnType;
+    private final R[] rows;
+    private final C[] columns;
+    private final LongAdder[] cells;
+
+    public EnumGridCounts(Class<R> rowType, Class<C> columnType) {
+        this.rowType = rowType;
+        this.columnType = columnType;
+        this.rows = rowType.getEnumConstants();
+        this.columns = columnType.getEnumConstants();
+        this.cells = new LongAdder[rows.length * columns.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new LongAdder();
+        }
+    }
+
+    public long get(R row, C column) {
+        return row == null || column == null ? 0 : cells[index(row, column)].sum();
+    }
+
+    public long rowTotal(R row) {
+        long total = 0;
+        for (C column : columns) {
+            total += get(row, column);
+        }
+        return total;
+    }
+
+    /** Every cell, zeros included, by row and then column. */
+    public Map<R, Map<C, Long>> toMap() {
+        Map<R, Map<C, Long>> result = new EnumMap<>(rowType);
+        for (R row : rows) {
+            Map<C, Long> counts = new EnumMap<>(columnType);
+            for (C column : columns) {
+                counts.put(column, get(row, column));
+            }
+            result.put(row, counts);
+        }
+        return result;
+    }
+
+    void add(R row, C column, long delta) {
+        if (row != null && column != null) {
+            cells[index(row, column)].add(delta);
+        }
+    }
+
+    void move(R fromRow, C fromColumn, R toRow, C toColumn) {
+        if (fromRow != toRow || fromColumn != toColumn) {
+            add(fromRow, fromColumn, -1);
+            add(toRow, toColumn, 1);
+        }
+    }
+
+    void clear() {
+        for (LongAdder cell : cells) {
+            cell.reset();
+        }
+    }
+
+    /** The counts row by row, as stored alongside a snapshot. */
+    long[] toArray() {
+        long[] values = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            values[i] = cells[i].sum();
+        }
+        return values;
+    }
+
+    /** Adds counts saved by {@link #toArray}, read from {@code values} starting at {@code offset}. */
+    void addAll(long[] values, int offset) {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i].add(values[offset + i]);
+        }
+    }
+
+    int cellCount() {
+        return cells.length;
+    }
+
+    private int index(R row, C column) {
+        return row.ordinal() * columns.length + column.ordinal();
+    }
+
+}
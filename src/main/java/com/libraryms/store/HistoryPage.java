@@ -0,0 +1,27 @@
+package com.libraryms.store;
+
+import java.util.List;
+
+public class HistoryPage<T> {
+
+    private final List<T> items;
+    private final int nextCursor;
+    private final int totalCount;
+
+    public HistoryPage(List<T> items, int nextCursor, int totalCount) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    public List<T> getItems() { return items; }
+
+    public int getNextCursor() { return nextCursor; }
+
+    public int getTotalCount() { return totalCount; }
+
+    public boolean hasMore() {
+        return nextCursor > 0;
+    }
+
+}
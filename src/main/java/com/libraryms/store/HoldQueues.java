@@ -0,0 +1,134 @@
+package com.libraryms.store;
+
+import com.libraryms.model.SimpleTransaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Open holds ({@link com.libraryms.model.TransactionType#RESERVE} transactions):
+ * a FIFO queue of holds still waiting for a copy per ISBN, the holds whose
+ * copy is on the hold shelf by pickup deadline, and every open hold by member.
+ * A hold is ready once it has a pickup deadline (its due date).
+ *
+ * <p>Built from concurrent maps and queues so lookups never block and no
+ * lock spans more than one ISBN. Callers serialise changes to one ISBN's
+ * holds (the service holds that book's lock); the per-member and per-deadline
+ * entries are shared and only changed inside {@code compute}.
+ */
+public class HoldQueues {
+
+    private final Map<String, Queue<SimpleTransaction>> waitingByIsbn;
+    private final Map<String, Map<String, SimpleTransaction>> holdsByMember;
+    private final ConcurrentNavigableMap<LocalDate, Set<SimpleTransaction>> readyByDeadline;
+
+    public HoldQueues() {
+        this.waitingByIsbn = new ConcurrentHashMap<>();
+        this.holdsByMember = new ConcurrentHashMap<>();
+        this.readyByDeadline = new ConcurrentSkipListMap<>();
+    }
+
+    /** Adds an open hold: to the back of its ISBN's queue, or by deadline if it is already ready. */
+    public void add(SimpleTransaction hold) {
+        holdsByMember.compute(hold.getMemberId(), (memberId, holds) -> {
+            Map<String, SimpleTransaction> memberHolds = holds != null ? holds : new ConcurrentHashMap<>();
+            memberHolds.put(hold.getBookIsbn(), hold);
+            return memberHolds;
+        });
+        if (hold.getDueDate() != null) {
+            addReady(hold);
+        } else {
+            waitingByIsbn.computeIfAbsent(hold.getBookIsbn(), isbn -> new ConcurrentLinkedQueue<>()).add(hold);
+        }
+    }
+
+    /** The oldest hold still waiting for {@code isbn}, left in the queue. */
+    public SimpleTransaction nextWaiting(String isbn) {
+        Queue<SimpleTransaction> waiting = waitingByIsbn.get(isbn);
+        return waiting != null ? waiting.peek() : null;
+    }
+
+    /**
+     * Takes a waiting hold out of its queue and files it under
+     * {@code pickupBy}, which becomes its due date.
+     */
+    public void markReady(SimpleTransaction hold, LocalDate pickupBy) {
+        removeWaiting(hold);
+        hold.setDueDate(pickupBy);
+        addReady(hold);
+    }
+
+    public boolean remove(SimpleTransaction hold) {
+        boolean[] removed = new boolean[1];
+        holdsByMember.computeIfPresent(hold.getMemberId(), (memberId, holds) -> {
+            removed[0] = holds.remove(hold.getBookIsbn(), hold);
+            return holds.isEmpty() ? null : holds;
+        });
+        if (!removed[0]) {
+            return false;
+        }
+        if (hold.getDueDate() != null) {
+            readyByDeadline.computeIfPresent(hold.getDueDate(), (date, dueThatDay) -> {
+                dueThatDay.remove(hold);
+                return dueThatDay.isEmpty() ? null : dueThatDay;
+            });
+        } else {
+            removeWaiting(hold);
+        }
+        return true;
+    }
+
+    public SimpleTransaction findHold(String memberId, String isbn) {
+        Map<String, SimpleTransaction> holds = holdsByMember.get(memberId);
+        return holds == null ? null : holds.get(isbn);
+    }
+
+    public SimpleTransaction findHold(String memberId, String isbn, String transactionId) {
+        SimpleTransaction hold = findHold(memberId, isbn);
+        return hold != null && hold.getTransactionId().equals(transactionId) ? hold : null;
+    }
+
+    public List<SimpleTransaction> holdsFor(String memberId) {
+        Map<String, SimpleTransaction> holds = holdsByMember.get(memberId);
+        return holds == null ? Collections.emptyList() : new ArrayList<>(holds.values());
+    }
+
+    /** Holds waiting for {@code isbn}, first in line first. */
+    public List<SimpleTransaction> waitingFor(String isbn) {
+        Queue<SimpleTransaction> waiting = waitingByIsbn.get(isbn);
+        return waiting == null ? Collections.emptyList() : new ArrayList<>(waiting);
+    }
+
+    /** Ready holds whose pickup deadline is before {@code date}. */
+    public List<SimpleTransaction> expiredAsOf(LocalDate date) {
+        List<SimpleTransaction> result = new ArrayList<>();
+        for (Set<SimpleTransaction> dueThatDay : readyByDeadline.headMap(date, false).values()) {
+            result.addAll(dueThatDay);
+        }
+        return result;
+    }
+
+    private void removeWaiting(SimpleTransaction hold) {
+        Queue<SimpleTransaction> waiting = waitingByIsbn.get(hold.getBookIsbn());
+        if (waiting != null && waiting.remove(hold) && waiting.isEmpty()) {
+            waitingByIsbn.remove(hold.getBookIsbn(), waiting);
+        }
+    }
+
+    private void addReady(SimpleTransaction hold) {
+        readyByDeadline.compute(hold.getDueDate(), (date, dueThatDay) -> {
+            Set<SimpleTransaction> bucket = dueThatDay != null ? dueThatDay : ConcurrentHashMap.newKeySet();
+            bucket.add(hold);
+            return bucket;
+        });
+    }
+
+}
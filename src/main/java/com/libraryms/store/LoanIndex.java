@@ -0,0 +1,120 @@
+package com.libraryms.store;
+
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionStatus;
+import com.libraryms.model.TransactionType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open loans by member and ISBN, and by due date. Built from concurrent maps so
+ * lookups never block. Callers serialise changes to one member's loans (the
+ * service holds that member's lock), which keeps the per-member cleanup in
+ * {@link #remove} race-free; due-date buckets are shared across members and
+ * are only changed inside {@code compute}.
+ */
+public class LoanIndex {
+
+    private final Map<String, Map<String, Deque<SimpleTransaction>>> loansByMember;
+    private final ConcurrentNavigableMap<LocalDate, Set<SimpleTransaction>> loansByDueDate;
+    private final AtomicInteger openLoanCount;
+
+    public LoanIndex() {
+        this.loansByMember = new ConcurrentHashMap<>();
+        this.loansByDueDate = new ConcurrentSkipListMap<>();
+        this.openLoanCount = new AtomicInteger();
+    }
+
+    public void add(SimpleTransaction transaction) {
+        if (transaction.getType() != TransactionType.BORROW ||
+            transaction.getStatus() != TransactionStatus.ACTIVE) {
+            return;
+        }
+        loansByMember
+            .computeIfAbsent(transaction.getMemberId(), id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(transaction.getBookIsbn(), isbn -> new ConcurrentLinkedDeque<>())
+            .addLast(transaction);
+        if (transaction.getDueDate() != null) {
+            loansByDueDate.compute(transaction.getDueDate(), (date, dueThatDay) -> {
+                Set<SimpleTransaction> bucket = dueThatDay != null ? dueThatDay : ConcurrentHashMap.newKeySet();
+                bucket.add(transaction);
+                return bucket;
+            });
+        }
+        openLoanCount.incrementAndGet();
+    }
+
+    public boolean remove(SimpleTransaction transaction) {
+        Map<String, Deque<SimpleTransaction>> memberLoans = loansByMember.get(transaction.getMemberId());
+        if (memberLoans == null) return false;
+        Deque<SimpleTransaction> loans = memberLoans.get(transaction.getBookIsbn());
+        if (loans == null || !loans.remove(transaction)) return false;
+        if (loans.isEmpty()) {
+            memberLoans.remove(transaction.getBookIsbn());
+            if (memberLoans.isEmpty()) {
+                loansByMember.remove(transaction.getMemberId());
+            }
+        }
+        if (transaction.getDueDate() != null) {
+            loansByDueDate.computeIfPresent(transaction.getDueDate(), (date, dueThatDay) -> {
+                dueThatDay.remove(transaction);
+                return dueThatDay.isEmpty() ? null : dueThatDay;
+            });
+        }
+        openLoanCount.decrementAndGet();
+        return true;
+    }
+
+    public SimpleTransaction findOpenLoan(String memberId, String isbn) {
+        Map<String, Deque<SimpleTransaction>> memberLoans = loansByMember.get(memberId);
+        if (memberLoans == null) return null;
+        Deque<SimpleTransaction> loans = memberLoans.get(isbn);
+        return loans == null ? null : loans.peekFirst();
+    }
+
+    public SimpleTransaction findOpenLoan(String memberId, String isbn, String transactionId) {
+        Map<String, Deque<SimpleTransaction>> memberLoans = loansByMember.get(memberId);
+        if (memberLoans == null) return null;
+        Deque<SimpleTransaction> loans = memberLoans.get(isbn);
+        if (loans == null) return null;
+        for (SimpleTransaction loan : loans) {
+            if (loan.getTransactionId().equals(transactionId)) {
+                return loan;
+            }
+        }
+        return null;
+    }
+
+    public List<SimpleTransaction> openLoansFor(String memberId) {
+        Map<String, Deque<SimpleTransaction>> memberLoans = loansByMember.get(memberId);
+        if (memberLoans == null) return Collections.emptyList();
+        List<SimpleTransaction> result = new ArrayList<>();
+        for (Deque<SimpleTransaction> loans : memberLoans.values()) {
+            result.addAll(loans);
+        }
+        return result;
+    }
+
+    public List<SimpleTransaction> overdueAsOf(LocalDate date) {
+        List<SimpleTransaction> result = new ArrayList<>();
+        for (Set<SimpleTransaction> dueThatDay : loansByDueDate.headMap(date, false).values()) {
+            result.addAll(dueThatDay);
+        }
+        return result;
+    }
+
+    public int size() {
+        return openLoanCount.get();
+    }
+
+}
@@ -0,0 +1,329 @@
+package com.libraryms.store;
+
+import com.libraryms.model.MemberChangeListener;
+import com.libraryms.model.MemberStatus;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleMember;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Members by ID and email with an n-gram search index, faulted in from a
+ * {@link BackingStore} on first access. Also keeps live counts of members by
+ * type and status, overall and at their borrowing limit, including members not
+ * loaded yet; the counts are updated from change events without taking the
+ * registry's lock.
+ *
+ * <p>Looking up a loaded member by ID takes no lock, so loans and returns for
+ * different members never meet here. Faulting a member in, lookups by email,
+ * registering, removing and searching synchronise on the registry.
+ */
+public class MemberRegistry implements MemberChangeListener {
+
+    private final Map<String, SimpleMember> membersById;
+    private final Map<String, SimpleMember> membersByEmail;
+    private final NGramIndex<String> searchIndex;
+    private final Set<String> deletedFromBacking;
+    private final Set<String> pendingIndex;
+    private final EnumGridCounts<MemberType, MemberStatus> counts;
+    private final EnumGridCounts<MemberType, MemberStatus> atLimitCounts;
+    private volatile BackingStore<SimpleMember> backing;
+    private int unloadedCount;
+    // every backing record the registry has not loaded is in the search index
+    private boolean backingIndexed;
+
+    public MemberRegistry() {
+        this.membersById = new ConcurrentHashMap<>();
+        this.membersByEmail = new HashMap<>();
+        this.searchIndex = new NGramIndex<>();
+        this.deletedFromBacking = new HashSet<>();
+        this.pendingIndex = new LinkedHashSet<>();
+        this.counts = new EnumGridCounts<>(MemberType.class, MemberStatus.class);
+        this.atLimitCounts = new EnumGridCounts<>(MemberType.class, MemberStatus.class);
+    }
+
+    public synchronized void attach(BackingStore<SimpleMember> backing) {
+        this.backing = backing;
+        this.unloadedCount = backing.size();
+        this.deletedFromBacking.clear();
+        this.backingIndexed = false;
+        long[] saved = backing.counts();
+        if (saved != null && saved.length == counts.cellCount() * 2) {
+            counts.addAll(saved, 0);
+            atLimitCounts.addAll(saved, counts.cellCount());
+        } else {
+            // no counts saved, or saved with different types or statuses
+            backing.forEachKey(memberId -> count(backing.load(memberId), 1));
+        }
+    }
+
+    /**
+     * Moves to a backing written from this registry, holding every member it
+     * has, loaded or not. Loaded members stay loaded, and the counts and
+     * search index already cover the new backing's members.
+     */
+    public synchronized void reattach(BackingStore<SimpleMember> backing) {
+        this.backing = backing;
+        this.unloadedCount = backing.size() - membersById.size();
+        this.deletedFromBacking.clear();
+    }
+
+    /** The live counts by type and status, overall then at the limit, laid out as {@link #attach} reads them back. */
+    public long[] savedCounts() {
+        long[] all = counts.toArray();
+        long[] atLimit = atLimitCounts.toArray();
+        long[] result = Arrays.copyOf(all, all.length + atLimit.length);
+        System.arraycopy(atLimit, 0, result, all.length, atLimit.length);
+        return result;
+    }
+
+    /** Live counts of members by type and status; reading them takes no lock. */
+    public EnumGridCounts<MemberType, MemberStatus> counts() {
+        return counts;
+    }
+
+    /** Live counts of members with as many books out as their type allows, by type and status. */
+    public EnumGridCounts<MemberType, MemberStatus> atLimitCounts() {
+        return atLimitCounts;
+    }
+
+    public synchronized boolean register(SimpleMember member) {
+        if (member.getMemberId() == null || findById(member.getMemberId()) != null) {
+            return false;
+        }
+        if (containsEmail(member.getEmail())) {
+            return false;
+        }
+        put(member);
+        return true;
+    }
+
+    public SimpleMember findById(String memberId) {
+        if (memberId == null) return null;
+        SimpleMember member = membersById.get(memberId);
+        if (member != null || backing == null) {
+            return member;
+        }
+        return faultIn(memberId);
+    }
+
+    private synchronized SimpleMember faultIn(String memberId) {
+        SimpleMember member = membersById.get(memberId);
+        if (member != null || backing == null || deletedFromBacking.contains(memberId)) {
+            return member;
+        }
+        member = backing.load(memberId);
+        if (member != null) {
+            // point lookups skip n-gram indexing; search() catches up
+            unloadedCount--;
+            putUnindexed(member);
+            if (!backingIndexed) {
+                pendingIndex.add(memberId);
+            }
+        }
+        return member;
+    }
+
+    public synchronized SimpleMember findByEmail(String email) {
+        String emailKey = normalizeEmail(email);
+        if (emailKey == null) return null;
+        SimpleMember member = membersByEmail.get(emailKey);
+        if (member != null || backing == null) {
+            return member;
+        }
+        member = findById(backing.findKeyBy(emailKey));
+        return member != null && emailKey.equals(normalizeEmail(member.getEmail())) ? member : null;
+    }
+
+    public synchronized boolean containsEmail(String email) {
+        return findByEmail(email) != null;
+    }
+
+    public synchronized SimpleMember remove(String memberId) {
+        SimpleMember member = findById(memberId);
+        if (member == null) return null;
+        membersById.remove(memberId);
+        String emailKey = normalizeEmail(member.getEmail());
+        if (emailKey != null) {
+            membersByEmail.remove(emailKey, member);
+        }
+        searchIndex.remove(memberId);
+        pendingIndex.remove(memberId);
+        member.setChangeListener(null);
+        count(member, -1);
+        if (backing != null) {
+            deletedFromBacking.add(memberId);
+        }
+        return member;
+    }
+
+    public synchronized List<SimpleMember> search(String query) {
+        indexBacking();
+        indexPending();
+        return resolve(searchIndex.search(query));
+    }
+
+    public synchronized List<SimpleMember> searchPrefix(String query) {
+        indexBacking();
+        indexPending();
+        return resolve(searchIndex.searchPrefix(query));
+    }
+
+    public synchronized int size() {
+        return membersById.size() + unloadedCount;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public synchronized Collection<SimpleMember> getAll() {
+        loadAll();
+        return new ArrayList<>(membersById.values());
+    }
+
+    /** The members in memory, which are all a snapshot has to encode; the rest are still as in the backing. */
+    public synchronized Collection<SimpleMember> getLoaded() {
+        return new ArrayList<>(membersById.values());
+    }
+
+    /** Whether the backing's member {@code memberId} is out of date: loaded, so maybe changed, or removed. */
+    public synchronized boolean replacesBacking(String memberId) {
+        return membersById.containsKey(memberId) || deletedFromBacking.contains(memberId);
+    }
+
+    // Not synchronized: the borrowed count changes with every loan and return, and must not queue on the registry.
+    @Override
+    public void memberChanged(SimpleMember member, String property, Object oldValue, Object newValue) {
+        MemberType type = member.getMemberType();
+        MemberStatus status = member.getStatus();
+        int borrowed = member.getCurrentBorrowedBooks();
+        switch (property) {
+            case "status":
+                counts.move(type, (MemberStatus) oldValue, type, status);
+                if (atLimit(type, borrowed)) {
+                    atLimitCounts.move(type, (MemberStatus) oldValue, type, status);
+                }
+                break;
+            case "memberType": {
+                MemberType oldType = (MemberType) oldValue;
+                counts.move(oldType, status, type, status);
+                if (atLimit(oldType, borrowed)) {
+                    atLimitCounts.add(oldType, status, -1);
+                }
+                if (atLimit(type, borrowed)) {
+                    atLimitCounts.add(type, status, 1);
+                }
+                break;
+            }
+            case "currentBorrowedBooks": {
+                boolean wasAtLimit = atLimit(type, (Integer) oldValue);
+                if (wasAtLimit != atLimit(type, borrowed)) {
+                    atLimitCounts.add(type, status, wasAtLimit ? -1 : 1);
+                }
+                break;
+            }
+            default:
+                reindex(member, property, oldValue, newValue);
+        }
+    }
+
+    private synchronized void reindex(SimpleMember member, String property, Object oldValue, Object newValue) {
+        if ("email".equals(property)) {
+            String oldKey = normalizeEmail((String) oldValue);
+            if (oldKey != null) {
+                membersByEmail.remove(oldKey, member);
+            }
+            String newKey = normalizeEmail((String) newValue);
+            if (newKey != null) {
+                membersByEmail.putIfAbsent(newKey, member);
+            }
+        }
+        if (("firstName".equals(property) || "lastName".equals(property) || "email".equals(property))
+                && !pendingIndex.contains(member.getMemberId())) {
+            index(member);
+        }
+    }
+
+    private void put(SimpleMember member) {
+        count(member, 1);
+        index(member);
+        putUnindexed(member);
+    }
+
+    // published last: lock-free readers may change the member as soon as they see it
+    private void putUnindexed(SimpleMember member) {
+        member.setChangeListener(this);
+        String emailKey = normalizeEmail(member.getEmail());
+        if (emailKey != null) {
+            membersByEmail.put(emailKey, member);
+        }
+        membersById.put(member.getMemberId(), member);
+    }
+
+    private void count(SimpleMember member, long delta) {
+        counts.add(member.getMemberType(), member.getStatus(), delta);
+        if (atLimit(member.getMemberType(), member.getCurrentBorrowedBooks())) {
+            atLimitCounts.add(member.getMemberType(), member.getStatus(), delta);
+        }
+    }
+
+    private static boolean atLimit(MemberType type, int borrowed) {
+        return type != null && borrowed >= type.getMaxBooksAllowed();
+    }
+
+    private void indexPending() {
+        for (String memberId : pendingIndex) {
+            index(membersById.get(memberId));
+        }
+        pendingIndex.clear();
+    }
+
+    private void indexBacking() {
+        if (backing == null || backingIndexed) {
+            return;
+        }
+        backing.forEach(member -> {
+            String memberId = member.getMemberId();
+            if (!membersById.containsKey(memberId) && !deletedFromBacking.contains(memberId)) {
+                index(member);
+            }
+        });
+        backingIndexed = true;
+    }
+
+    private void loadAll() {
+        if (backing != null && unloadedCount > 0) {
+            backing.forEachKey(this::findById);
+        }
+    }
+
+    private void index(SimpleMember member) {
+        searchIndex.put(member.getMemberId(),
+                member.getFirstName(), member.getLastName(), member.getMemberId(), member.getEmail());
+    }
+
+    private List<SimpleMember> resolve(List<String> memberIds) {
+        List<SimpleMember> results = new ArrayList<>(memberIds.size());
+        for (String memberId : memberIds) {
+            results.add(findById(memberId));
+        }
+        return results;
+    }
+
+    public static String normalizeEmail(String email) {
+        if (email == null) return null;
+        String trimmed = email.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.libraryms.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Case-insensitive n-gram index over one or more text fields per key. Every
+ * one-, two- and three-character substring of a field is a gram, and so are
+ * the field's first one and two characters, kept apart as prefix grams. A
+ * query of up to three characters is answered straight from one posting list;
+ * longer queries intersect the posting lists of their trigrams and then
+ * confirm each candidate against the stored lower-cased fields, so results
+ * match {@code String.contains} (or {@code startsWith}) exactly. No query
+ * looks at keys outside its posting lists.
+ */
+public class NGramIndex<K> {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int PREFIX_LENGTH = 2;
+    // kinds 0-2 are substrings of length 1-3, kinds 3-4 field prefixes of length 1-2
+    private static final int PREFIX_KIND = GRAM_LENGTH;
+
+    private final Map<Long, Set<K>> postings;
+    private final Map<K, String[]> fieldsByKey;
+
+    public NGramIndex() {
+        this.postings = new HashMap<>();
+        this.fieldsByKey = new HashMap<>();
+    }
+
+    public void put(K key, String... fields) {
+        remove(key);
+        String[] normalized = new String[fields.length];
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = normalize(fields[i]);
+            collectGrams(normalized[i], grams);
+        }
+        fieldsByKey.put(key, normalized);
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, g -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    public boolean remove(K key) {
+        String[] fields = fieldsByKey.remove(key);
+        if (fields == null) return false;
+        Set<Long> grams = new HashSet<>();
+        for (String field : fields) {
+            collectGrams(field, grams);
+        }
+        for (Long gram : grams) {
+            Set<K> keys = postings.get(gram);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        return true;
+    }
+
+    public List<K> search(String query) {
+        return find(normalize(query), false);
+    }
+
+    public List<K> searchPrefix(String query) {
+        return find(normalize(query), true);
+    }
+
+    public int size() {
+        return fieldsByKey.size();
+    }
+
+    private List<K> find(String term, boolean prefixOnly) {
+        if (term.isEmpty()) return Collections.emptyList();
+
+        if (term.length() <= PREFIX_LENGTH && prefixOnly) {
+            return listOf(postings.get(prefixAt(term, term.length())));
+        }
+        if (term.length() <= GRAM_LENGTH && !prefixOnly) {
+            return listOf(postings.get(gramAt(term, 0, term.length())));
+        }
+
+        List<Set<K>> lists = new ArrayList<>();
+        if (prefixOnly) {
+            Set<K> keys = postings.get(prefixAt(term, PREFIX_LENGTH));
+            if (keys == null) return Collections.emptyList();
+            lists.add(keys);
+        }
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            Set<K> keys = postings.get(gramAt(term, i, GRAM_LENGTH));
+            if (keys == null) return Collections.emptyList();
+            lists.add(keys);
+        }
+        Set<K> smallest = lists.get(0);
+        for (Set<K> keys : lists) {
+            if (keys.size() < smallest.size()) smallest = keys;
+        }
+
+        List<K> results = new ArrayList<>();
+        candidates:
+        for (K key : smallest) {
+            for (Set<K> keys : lists) {
+                if (keys != smallest && !keys.contains(key)) continue candidates;
+            }
+            if (matches(fieldsByKey.get(key), term, prefixOnly)) {
+                results.add(key);
+            }
+        }
+        return results;
+    }
+
+    private List<K> listOf(Set<K> keys) {
+        return keys == null ? Collections.emptyList() : new ArrayList<>(keys);
+    }
+
+    private static boolean matches(String[] fields, String term, boolean prefixOnly) {
+        for (String field : fields) {
+            if (prefixOnly ? field.startsWith(term) : field.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectGrams(String text, Set<Long> grams) {
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(gramAt(text, i, length));
+            }
+        }
+        for (int length = 1; length <= PREFIX_LENGTH && length <= text.length(); length++) {
+            grams.add(prefixAt(text, length));
+        }
+    }
+
+    private static long gramAt(String text, int offset, int length) {
+        return pack(length - 1, text, offset, length);
+    }
+
+    private static long prefixAt(String text, int length) {
+        return pack(PREFIX_KIND + length - 1, text, 0, length);
+    }
+
+    // the kind goes above the characters, so grams of different kinds never collide
+    private static long pack(int kind, String text, int offset, int length) {
+        long gram = kind;
+        for (int i = offset; i < offset + length; i++) {
+            gram = (gram << 16) | text.charAt(i);
+        }
+        return gram;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,723 @@
+package com.libraryms.store;
+
+import com.libraryms.ids.IdFormat;
+import com.libraryms.model.TransactionStatus;
+import com.libraryms.model.TransactionType;
+import com.libraryms.model.TransactionView;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Every transaction in recording order, stored column by column rather than as
+ * objects: dictionary codes for member IDs and ISBNs, and everything else as
+ * narrow numbers. Transaction numbers and dates are kept as offsets from the
+ * first row of their chunk, copy numbers as shorts, type and status in one
+ * byte and fines in cents; the rare value that does not fit goes to a small
+ * per-chunk overflow map. A row costs about 35 bytes including the per-member
+ * index and the dictionaries, against 350 or so for a
+ * {@link com.libraryms.model.SimpleTransaction}, and a scan walks a few
+ * primitive arrays.
+ *
+ * <p>Rows are read through {@link TransactionView}s. Writers synchronise on
+ * the history; readers need no lock because a row's cells are written before
+ * the row count that makes it visible is published. Appending is the one step
+ * every loan and return still takes in turn: it fills one row and bumps a
+ * per-member index, a few hundred nanoseconds against the several
+ * microseconds of journaling around it, so it stays a plain monitor.
+ */
+public class TransactionHistory {
+
+    public static final int FIRST_PAGE = Integer.MAX_VALUE;
+    /** Day column value for a date that is not set. */
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private volatile Chunk[] chunks;
+    private volatile int size;
+    private final SymbolTable memberIds;
+    private final SymbolTable isbns;
+    private int[][] rowsByMember;
+    private int[] rowCountByMember;
+    private final Map<Integer, Integer> openRowsBySequence;
+    private final Map<Integer, String> notesByRow;
+
+    public TransactionHistory() {
+        this.chunks = new Chunk[0];
+        this.memberIds = new SymbolTable();
+        this.isbns = new SymbolTable();
+        this.rowsByMember = new int[16][];
+        this.rowCountByMember = new int[16];
+        this.openRowsBySequence = new HashMap<>();
+        this.notesByRow = new HashMap<>();
+    }
+
+    public synchronized void add(TransactionView transaction) {
+        int row = size;
+        int sequence = parseTransactionId(transaction.getTransactionId());
+        long createdAt = toEpochMilli(transaction.getTransactionDate());
+        if ((row & CHUNK_MASK) == 0) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = Chunk.startingWith(sequence, createdAt);
+            chunks = grown;
+        }
+        Chunk chunk = chunks[row >>> CHUNK_BITS];
+        int cell = row & CHUNK_MASK;
+        int member = memberIds.codeFor(transaction.getMemberId());
+        chunk.setSequence(cell, sequence);
+        chunk.member[cell] = member;
+        chunk.isbn[cell] = isbns.codeFor(transaction.getBookIsbn());
+        chunk.setCreatedAt(cell, createdAt);
+        chunk.kind[cell] = (byte) (transaction.getType().ordinal() << 4);
+        writeOutcome(chunk, cell, transaction);
+        if (transaction.getNotes() != null) {
+            notesByRow.put(row, transaction.getNotes());
+        }
+        if (transaction.getStatus() == TransactionStatus.ACTIVE) {
+            openRowsBySequence.put(sequence, row);
+        }
+        indexForMember(member, row);
+        size = row + 1;
+    }
+
+    /**
+     * Copies the copy number, due date, return date, fine and status of a
+     * transaction added while it was still active, e.g. after it was returned,
+     * its fine accrued or, for a hold, its copy was set aside.
+     */
+    public synchronized boolean updateOutcome(TransactionView transaction) {
+        int sequence = parseTransactionId(transaction.getTransactionId());
+        Integer row = openRowsBySequence.get(sequence);
+        if (row == null) {
+            return false;
+        }
+        writeOutcome(chunks[row >>> CHUNK_BITS], row & CHUNK_MASK, transaction);
+        if (transaction.getStatus() != TransactionStatus.ACTIVE) {
+            openRowsBySequence.remove(sequence);
+        }
+        return true;
+    }
+
+    public synchronized HistoryPage<TransactionView> page(int cursor, int pageSize) {
+        checkPageSize(pageSize);
+        int end = Math.min(Math.max(cursor, 0), size);
+        int start = Math.max(0, end - pageSize);
+        List<TransactionView> items = new ArrayList<>(end - start);
+        for (int row = end - 1; row >= start; row--) {
+            items.add(new Row(row));
+        }
+        return new HistoryPage<>(items, start, size);
+    }
+
+    public synchronized HistoryPage<TransactionView> pageForMember(String memberId, int cursor, int pageSize) {
+        checkPageSize(pageSize);
+        int member = memberIds.find(memberId);
+        if (member < 0) {
+            return new HistoryPage<>(Collections.emptyList(), 0, 0);
+        }
+        int[] rows = rowsByMember[member];
+        int count = rowCountByMember[member];
+        int end = Math.min(Math.max(cursor, 0), count);
+        int start = Math.max(0, end - pageSize);
+        List<TransactionView> items = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            items.add(new Row(rows[i]));
+        }
+        return new HistoryPage<>(items, start, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Read-only list of the rows recorded so far; later additions do not show up in it. */
+    public List<TransactionView> getAll() {
+        int count = size;
+        return new AbstractList<TransactionView>() {
+            @Override
+            public TransactionView get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Row " + index + " of " + count);
+                }
+                return new Row(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Visits every row in recording order. The view handed to the action is
+     * reused for the next row, so it must not be kept.
+     */
+    public void forEach(Consumer<? super TransactionView> action) {
+        int count = size;
+        Row cursor = new Row(0);
+        for (int row = 0; row < count; row++) {
+            cursor.row = row;
+            action.accept(cursor);
+        }
+    }
+
+    /** The rows recorded so far as columns, for scans that would otherwise decode a view per row. */
+    public synchronized Columns columns() {
+        return new Columns(chunks, size, memberIds.symbols, memberIds.count, isbns.symbols, isbns.count);
+    }
+
+    /**
+     * Writes every row, the dictionaries and the notes as the columns they
+     * are held in, for {@link #readFrom} to load without decoding a row at a
+     * time. Callers keep other writers out while it runs.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        memberIds.writeTo(out);
+        isbns.writeTo(out);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE * Long.BYTES);
+        for (int first = 0; first < size; first += CHUNK_SIZE) {
+            Chunk chunk = chunks[first >>> CHUNK_BITS];
+            int rows = Math.min(CHUNK_SIZE, size - first);
+            out.writeInt(chunk.sequenceBase);
+            out.writeLong(chunk.secondBase);
+            buffer.clear().asShortBuffer().put(chunk.sequence, 0, rows);
+            out.write(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asIntBuffer().put(chunk.member, 0, rows);
+            out.write(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asIntBuffer().put(chunk.isbn, 0, rows);
+            out.write(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asShortBuffer().put(chunk.copy, 0, rows);
+            out.write(buffer.array(), 0, rows * Short.BYTES);
+            out.write(chunk.kind, 0, rows);
+            buffer.clear().asIntBuffer().put(chunk.createdSecond, 0, rows);
+            out.write(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asShortBuffer().put(chunk.createdMilli, 0, rows);
+            out.write(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().put(chunk.dueDay, 0, rows);
+            out.write(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().put(chunk.returnDay, 0, rows);
+            out.write(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asIntBuffer().put(chunk.fineCents, 0, rows);
+            out.write(buffer.array(), 0, rows * Integer.BYTES);
+            out.writeInt(chunk.wide.size());
+            for (Map.Entry<Integer, Long> entry : chunk.wide.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        out.writeInt(notesByRow.size());
+        for (Map.Entry<Integer, String> note : notesByRow.entrySet()) {
+            out.writeInt(note.getKey());
+            out.writeUTF(note.getValue());
+        }
+    }
+
+    /** Loads rows written by {@link #writeTo} into this history, which must still be empty. */
+    public synchronized void readFrom(DataInput in) throws IOException {
+        if (size != 0) {
+            throw new IllegalStateException("History already has " + size + " rows");
+        }
+        int count = in.readInt();
+        memberIds.readFrom(in);
+        isbns.readFrom(in);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE * Long.BYTES);
+        Chunk[] loaded = new Chunk[(count + CHUNK_MASK) >>> CHUNK_BITS];
+        for (int first = 0; first < count; first += CHUNK_SIZE) {
+            Chunk chunk = new Chunk(in.readInt(), in.readLong());
+            int rows = Math.min(CHUNK_SIZE, count - first);
+            in.readFully(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().get(chunk.sequence, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asIntBuffer().get(chunk.member, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asIntBuffer().get(chunk.isbn, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().get(chunk.copy, 0, rows);
+            in.readFully(chunk.kind, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asIntBuffer().get(chunk.createdSecond, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().get(chunk.createdMilli, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().get(chunk.dueDay, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Short.BYTES);
+            buffer.clear().asShortBuffer().get(chunk.returnDay, 0, rows);
+            in.readFully(buffer.array(), 0, rows * Integer.BYTES);
+            buffer.clear().asIntBuffer().get(chunk.fineCents, 0, rows);
+            for (int wide = in.readInt(); wide > 0; wide--) {
+                chunk.wide.put(in.readInt(), in.readLong());
+            }
+            for (int cell = 0; cell < rows; cell++) {
+                indexForMember(chunk.member[cell], first + cell);
+                if (chunk.status(cell) == TransactionStatus.ACTIVE) {
+                    openRowsBySequence.put(chunk.sequence(cell), first + cell);
+                }
+            }
+            loaded[first >>> CHUNK_BITS] = chunk;
+        }
+        for (int notes = in.readInt(); notes > 0; notes--) {
+            notesByRow.put(in.readInt(), in.readUTF());
+        }
+        chunks = loaded;
+        size = count;
+    }
+
+    private static void writeOutcome(Chunk chunk, int cell, TransactionView transaction) {
+        chunk.setShort(chunk.copy, cell, Chunk.COPY, transaction.getCopyNumber());
+        chunk.setDay(chunk.dueDay, cell, Chunk.DUE_DAY, toEpochDay(transaction.getDueDate()));
+        chunk.setDay(chunk.returnDay, cell, Chunk.RETURN_DAY, toEpochDay(transaction.getReturnDate()));
+        chunk.setInt(chunk.fineCents, cell, Chunk.FINE_CENTS, Math.round(transaction.getFineAmount() * 100));
+        chunk.kind[cell] = (byte) (chunk.kind[cell] & 0xF0 | transaction.getStatus().ordinal());
+    }
+
+    private void indexForMember(int member, int row) {
+        if (member >= rowsByMember.length) {
+            int capacity = Math.max(member + 1, rowsByMember.length * 2);
+            rowsByMember = Arrays.copyOf(rowsByMember, capacity);
+            rowCountByMember = Arrays.copyOf(rowCountByMember, capacity);
+        }
+        int[] rows = rowsByMember[member];
+        int count = rowCountByMember[member];
+        if (rows == null) {
+            rows = new int[4];
+        } else if (count == rows.length) {
+            rows = Arrays.copyOf(rows, count + (count >> 1));
+        }
+        rows[count] = row;
+        rowsByMember[member] = rows;
+        rowCountByMember[member] = count + 1;
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+    }
+
+    private static int parseTransactionId(String transactionId) {
+        long sequence = IdFormat.TRANSACTION.parse(transactionId);
+        if (sequence < 0 || sequence > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Not a library transaction ID: " + transactionId);
+        }
+        return (int) sequence;
+    }
+
+    // same encoding as the journal: local date-times are stored as if they were UTC
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIMESTAMP;
+    }
+
+    private static LocalDateTime fromEpochMilli(long epochMilli) {
+        return epochMilli != NO_TIMESTAMP ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC) : null;
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date != null ? Math.toIntExact(date.toEpochDay()) : NO_DAY;
+    }
+
+    private static LocalDate fromEpochDay(int epochDay) {
+        return epochDay != NO_DAY ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    /**
+     * One block of {@code CHUNK_SIZE} rows. Transaction numbers are kept as
+     * the difference from the first row's number plus the row's place in the
+     * chunk, creation times as seconds and milliseconds from the first row's
+     * second, and due and return dates as days from that second's day, so for
+     * the rows a library actually records they fit in shorts and ints. A value
+     * that does not fit is stored in {@code wide}, keyed by cell and column,
+     * and its cell holds {@code WIDE_SHORT} or {@code WIDE_INT} instead.
+     */
+    private static final class Chunk {
+        static final int SEQUENCE = 0;
+        static final int COPY = 1;
+        static final int CREATED_SECOND = 2;
+        static final int DUE_DAY = 3;
+        static final int RETURN_DAY = 4;
+        static final int FINE_CENTS = 5;
+
+        static final short WIDE_SHORT = Short.MIN_VALUE;
+        static final short NO_DAY_OFFSET = Short.MIN_VALUE + 1;
+        static final int WIDE_INT = Integer.MIN_VALUE;
+        static final short NO_MILLI = -1;
+
+        final int sequenceBase;
+        final long secondBase;
+        final int dayBase;
+        final short[] sequence = new short[CHUNK_SIZE];
+        final int[] member = new int[CHUNK_SIZE];
+        final int[] isbn = new int[CHUNK_SIZE];
+        final short[] copy = new short[CHUNK_SIZE];
+        final byte[] kind = new byte[CHUNK_SIZE];
+        final int[] createdSecond = new int[CHUNK_SIZE];
+        final short[] createdMilli = new short[CHUNK_SIZE];
+        final short[] dueDay = new short[CHUNK_SIZE];
+        final short[] returnDay = new short[CHUNK_SIZE];
+        final int[] fineCents = new int[CHUNK_SIZE];
+        final Map<Integer, Long> wide = new ConcurrentHashMap<>();
+
+        Chunk(int sequenceBase, long secondBase) {
+            this.sequenceBase = sequenceBase;
+            this.secondBase = secondBase;
+            this.dayBase = (int) Math.floorDiv(secondBase, 86_400);
+        }
+
+        static Chunk startingWith(int firstSequence, long firstCreatedAt) {
+            return new Chunk(firstSequence, firstCreatedAt != NO_TIMESTAMP ? Math.floorDiv(firstCreatedAt, 1000) : 0);
+        }
+
+        int sequence(int cell) {
+            return (int) (sequenceBase + cell + getShort(sequence, cell, SEQUENCE));
+        }
+
+        void setSequence(int cell, int value) {
+            setShort(sequence, cell, SEQUENCE, (long) value - sequenceBase - cell);
+        }
+
+        long createdAt(int cell) {
+            short milli = createdMilli[cell];
+            if (milli == NO_MILLI) {
+                return NO_TIMESTAMP;
+            }
+            return (secondBase + getInt(createdSecond, cell, CREATED_SECOND)) * 1000 + milli;
+        }
+
+        void setCreatedAt(int cell, long epochMilli) {
+            if (epochMilli == NO_TIMESTAMP) {
+                createdMilli[cell] = NO_MILLI;
+                return;
+            }
+            setInt(createdSecond, cell, CREATED_SECOND, Math.floorDiv(epochMilli, 1000) - secondBase);
+            createdMilli[cell] = (short) Math.floorMod(epochMilli, 1000);
+        }
+
+        TransactionType type(int cell) {
+            return TYPES[kind[cell] >>> 4];
+        }
+
+        TransactionStatus status(int cell) {
+            return STATUSES[kind[cell] & 0xF];
+        }
+
+        int day(short[] column, int cell, int id) {
+            short offset = column[cell];
+            return offset == NO_DAY_OFFSET ? NO_DAY : (int) (dayBase + getShort(column, cell, id));
+        }
+
+        void setDay(short[] column, int cell, int id, int epochDay) {
+            if (epochDay == NO_DAY) {
+                column[cell] = NO_DAY_OFFSET;
+                wide.remove(key(cell, id));
+            } else {
+                setShort(column, cell, id, (long) epochDay - dayBase);
+            }
+        }
+
+        long getShort(short[] column, int cell, int id) {
+            short value = column[cell];
+            if (value != WIDE_SHORT) {
+                return value;
+            }
+            Long wideValue = wide.get(key(cell, id));
+            return wideValue != null ? wideValue : column[cell];
+        }
+
+        // A wide value is stored before the cell points at it, and removed only after the cell holds
+        // the narrow one, so a lock-free reader finds one or the other.
+        void setShort(short[] column, int cell, int id, long value) {
+            if (value > NO_DAY_OFFSET && value <= Short.MAX_VALUE) {
+                column[cell] = (short) value;
+                wide.remove(key(cell, id));
+            } else {
+                wide.put(key(cell, id), value);
+                column[cell] = WIDE_SHORT;
+            }
+        }
+
+        long getInt(int[] column, int cell, int id) {
+            int value = column[cell];
+            if (value != WIDE_INT) {
+                return value;
+            }
+            Long wideValue = wide.get(key(cell, id));
+            return wideValue != null ? wideValue : column[cell];
+        }
+
+        void setInt(int[] column, int cell, int id, long value) {
+            if (value > WIDE_INT && value <= Integer.MAX_VALUE) {
+                column[cell] = (int) value;
+                wide.remove(key(cell, id));
+            } else {
+                wide.put(key(cell, id), value);
+                column[cell] = WIDE_INT;
+            }
+        }
+
+        private static Integer key(int cell, int id) {
+            return cell << 3 | id;
+        }
+    }
+
+    /**
+     * Distinct strings numbered in order of first use, found through an
+     * open-addressing table of codes rather than a map of boxed integers.
+     * Codes are assigned under the history's lock; decoding reads the
+     * published array without one.
+     */
+    private static final class SymbolTable {
+        private volatile String[] symbols = new String[16];
+        private int count;
+        // code + 1 of the symbol in each slot, 0 for a free slot; never more than half full
+        private int[] slots = new int[32];
+
+        int codeFor(String symbol) {
+            int code = find(symbol);
+            if (code >= 0) {
+                return code;
+            }
+            code = count;
+            String[] current = symbols;
+            if (code == current.length) {
+                current = Arrays.copyOf(current, code * 2);
+            }
+            current[code] = symbol;
+            symbols = current;
+            count = code + 1;
+            if (count * 2 > slots.length) {
+                int[] grown = new int[slots.length * 2];
+                for (int existing = 0; existing < code; existing++) {
+                    insert(grown, current[existing], existing);
+                }
+                slots = grown;
+            }
+            insert(slots, symbol, code);
+            return code;
+        }
+
+        int find(String symbol) {
+            String[] current = symbols;
+            int mask = slots.length - 1;
+            for (int slot = spread(symbol.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    return -1;
+                }
+                if (current[entry - 1].equals(symbol)) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        String symbol(int code) {
+            return symbols[code];
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(count);
+            for (int code = 0; code < count; code++) {
+                out.writeUTF(symbols[code]);
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            for (int remaining = in.readInt(); remaining > 0; remaining--) {
+                codeFor(in.readUTF());
+            }
+        }
+
+        private static void insert(int[] table, String symbol, int code) {
+            int mask = table.length - 1;
+            int slot = spread(symbol.hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = code + 1;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Read-only view of the rows and member/ISBN codes that existed when it
+     * was taken. Members and ISBNs are given as dense codes, numbered from 0,
+     * that index per-member or per-ISBN arrays; dates are epoch days, with
+     * {@link #NO_DAY} for one not set. Row accessors do no bounds checks
+     * beyond the array's own. A row whose outcome is updated during a scan
+     * may be seen before or after the update.
+     */
+    public static final class Columns {
+        private final Chunk[] chunks;
+        private final int size;
+        private final String[] memberIds;
+        private final int memberCount;
+        private final String[] isbns;
+        private final int isbnCount;
+
+        private Columns(Chunk[] chunks, int size, String[] memberIds, int memberCount, String[] isbns, int isbnCount) {
+            this.chunks = chunks;
+            this.size = size;
+            this.memberIds = memberIds;
+            this.memberCount = memberCount;
+            this.isbns = isbns;
+            this.isbnCount = isbnCount;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int memberCount() {
+            return memberCount;
+        }
+
+        public String memberId(int memberCode) {
+            return memberIds[memberCode];
+        }
+
+        public int isbnCount() {
+            return isbnCount;
+        }
+
+        public String isbn(int isbnCode) {
+            return isbns[isbnCode];
+        }
+
+        public int memberCode(int row) {
+            return chunks[row >>> CHUNK_BITS].member[row & CHUNK_MASK];
+        }
+
+        public int isbnCode(int row) {
+            return chunks[row >>> CHUNK_BITS].isbn[row & CHUNK_MASK];
+        }
+
+        public TransactionType type(int row) {
+            return chunks[row >>> CHUNK_BITS].type(row & CHUNK_MASK);
+        }
+
+        /** The day the transaction was recorded on. */
+        public int createdDay(int row) {
+            return (int) Math.floorDiv(chunks[row >>> CHUNK_BITS].createdAt(row & CHUNK_MASK), MILLIS_PER_DAY);
+        }
+
+        public int dueDay(int row) {
+            Chunk chunk = chunks[row >>> CHUNK_BITS];
+            return chunk.day(chunk.dueDay, row & CHUNK_MASK, Chunk.DUE_DAY);
+        }
+
+        public int returnDay(int row) {
+            Chunk chunk = chunks[row >>> CHUNK_BITS];
+            return chunk.day(chunk.returnDay, row & CHUNK_MASK, Chunk.RETURN_DAY);
+        }
+    }
+
+    /** A row of the history seen as a transaction. */
+    private final class Row implements TransactionView {
+        private int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        private Chunk chunk() {
+            return chunks[row >>> CHUNK_BITS];
+        }
+
+        @Override
+        public String getTransactionId() {
+            return IdFormat.TRANSACTION.format(chunk().sequence(row & CHUNK_MASK));
+        }
+
+        @Override
+        public String getMemberId() {
+            return memberIds.symbol(chunk().member[row & CHUNK_MASK]);
+        }
+
+        @Override
+        public String getBookIsbn() {
+            return isbns.symbol(chunk().isbn[row & CHUNK_MASK]);
+        }
+
+        @Override
+        public int getCopyNumber() {
+            Chunk chunk = chunk();
+            return (int) chunk.getShort(chunk.copy, row & CHUNK_MASK, Chunk.COPY);
+        }
+
+        @Override
+        public TransactionType getType() {
+            return chunk().type(row & CHUNK_MASK);
+        }
+
+        @Override
+        public LocalDateTime getTransactionDate() {
+            return fromEpochMilli(chunk().createdAt(row & CHUNK_MASK));
+        }
+
+        @Override
+        public LocalDate getDueDate() {
+            Chunk chunk = chunk();
+            return fromEpochDay(chunk.day(chunk.dueDay, row & CHUNK_MASK, Chunk.DUE_DAY));
+        }
+
+        @Override
+        public LocalDate getReturnDate() {
+            Chunk chunk = chunk();
+            return fromEpochDay(chunk.day(chunk.returnDay, row & CHUNK_MASK, Chunk.RETURN_DAY));
+        }
+
+        @Override
+        public double getFineAmount() {
+            Chunk chunk = chunk();
+            return chunk.getInt(chunk.fineCents, row & CHUNK_MASK, Chunk.FINE_CENTS) / 100.0;
+        }
+
+        @Override
+        public TransactionStatus getStatus() {
+            return chunk().status(row & CHUNK_MASK);
+        }
+
+        @Override
+        public String getNotes() {
+            synchronized (TransactionHistory.this) {
+                return notesByRow.isEmpty() ? null : notesByRow.get(row);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Transaction{id='" + getTransactionId() + "', member='" + getMemberId() + "', book='"
+                    + getBookIsbn() + "', type=" + getType().getDisplayName() + ", status="
+                    + getStatus().getDisplayName() + "}";
+        }
+    }
+
+}
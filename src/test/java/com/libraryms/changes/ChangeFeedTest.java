@@ -0,0 +1,134 @@
+package com.libraryms.changes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.libraryms.service.ErrorCode;
+import com.libraryms.service.LibraryException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Segments past retention are gone for readers, a torn last record is cut
+ * off when the feed reopens, and a subscription that failed can be resumed
+ * from where it stopped without losing or repeating changes.
+ */
+class ChangeFeedTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changesInDroppedSegmentsAreNotRetained() throws Exception {
+        try (ChangeFeed feed = ChangeFeed.open(directory, 4, 2)) {
+            record(feed, 1, 12);
+            feed.flush();
+
+            assertEquals(5, feed.firstSequence());
+            assertEquals(12, feed.lastSequence());
+            LibraryException e = assertThrows(LibraryException.class, () -> feed.read(4, 10));
+            assertEquals(ErrorCode.CHANGE_NOT_RETAINED, e.getCode());
+            assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L), sequences(feed.read(5, 100)));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void tornLastRecordIsDroppedOnReopen() throws Exception {
+        try (ChangeFeed feed = ChangeFeed.open(directory)) {
+            record(feed, 1, 5);
+        }
+        Path segment = lastSegment();
+        long intact = Files.size(segment);
+        // a length prefix and part of a payload, as a crash mid-write leaves them
+        Files.write(segment, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        try (ChangeFeed feed = ChangeFeed.open(directory)) {
+            assertEquals(intact, Files.size(segment));
+            assertEquals(5, feed.lastSequence());
+            record(feed, 6, 6);
+            feed.flush();
+
+            List<ChangeEvent> changes = feed.read(1, 10);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), sequences(changes));
+            assertEquals("978-6", changes.get(5).getIsbn());
+        }
+    }
+
+    @Test
+    void failedSubscriptionResumesWhereItStopped() throws Exception {
+        List<ChangeEvent> handled = new CopyOnWriteArrayList<>();
+        try (ChangeFeed feed = ChangeFeed.open(directory)) {
+            record(feed, 1, 10);
+            feed.flush();
+
+            ChangeSubscription failing = feed.subscribe(1, 3, batch -> {
+                if (batch.get(0).getSequence() == 7) {
+                    throw new IllegalStateException("consumer failed");
+                }
+                handled.addAll(batch);
+            });
+            awaitTrue(() -> !failing.isRunning());
+            assertNotNull(failing.getFailure());
+            assertEquals(7, failing.getNextSequence());
+
+            try (ChangeSubscription resumed = feed.subscribe(failing.getNextSequence(), 3, handled::addAll)) {
+                awaitTrue(() -> handled.size() == 10);
+                record(feed, 11, 12);
+                awaitTrue(() -> handled.size() == 12);
+                assertEquals(13, resumed.getNextSequence());
+            }
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long sequence = 1; sequence <= 12; sequence++) {
+            expected.add(sequence);
+        }
+        assertEquals(expected, sequences(handled));
+    }
+
+    private static void record(ChangeFeed feed, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            feed.bookDeleted("978-" + i);
+        }
+    }
+
+    private static List<Long> sequences(List<ChangeEvent> changes) {
+        List<Long> sequences = new ArrayList<>(changes.size());
+        for (ChangeEvent change : changes) {
+            sequences.add(change.getSequence());
+        }
+        return sequences;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("changes-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+}
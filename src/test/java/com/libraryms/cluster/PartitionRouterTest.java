@@ -0,0 +1,204 @@
+package com.libraryms.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.libraryms.ids.IdFormat;
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberStatus;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionType;
+import com.libraryms.persistence.Journal;
+import com.libraryms.service.LibraryService;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A router over two in-process nodes ends up where a single library given the
+ * same commands does: the same balances and loan counts per member, the same
+ * copies on the shelf and the same member counts. Both start from journals
+ * holding the same overdue loans, half of them across partitions.
+ */
+class PartitionRouterTest {
+
+    private static final int BOOKS = 8;
+    private static final int MEMBERS = 8;
+
+    private final PartitionMap partitions = new PartitionMap(2);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void routedCommandsMatchASingleLibrary() throws Exception {
+        seed();
+        List<LibraryService> services = List.of(
+                new LibraryService(dataDirectory.resolve("node-0"), 0, partitions, 0),
+                new LibraryService(dataDirectory.resolve("node-1"), 0, partitions, 1));
+        List<PartitionNode> nodes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (LibraryService service : services) {
+            PartitionNode node = new PartitionNode(service, 0);
+            node.start();
+            nodes.add(node);
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), node.getPort()));
+        }
+        try (LibraryService single = new LibraryService(dataDirectory.resolve("single"), 0);
+             PartitionRouter router = new PartitionRouter(addresses)) {
+            LocalDate today = LocalDate.now();
+            ok(router.execute("ACCRUE_FINES " + today));
+            single.accrueFines(today);
+
+            for (int k = 1; k <= MEMBERS / 2; k++) {
+                ok(router.execute("RETURN " + memberId(k) + " " + isbn(k)));
+                single.returnBook(memberId(k), isbn(k));
+            }
+
+            for (int i = 0; i < 4; i++) {
+                String email = "new" + i + "@library.test";
+                String clustered = ok(router.execute("REGISTER New Reader" + i + " " + email + " PUBLIC"))[1];
+                String local = single.registerMember("New", "Reader" + i, email, MemberType.PUBLIC, null).getMemberId();
+                for (int b = i; b < i + 3; b++) {
+                    ok(router.execute("BORROW " + clustered + " " + isbn(b % BOOKS)));
+                    single.borrowBook(local, isbn(b % BOOKS));
+                }
+                ok(router.execute("RETURN " + clustered + " " + isbn(i % BOOKS)));
+                single.returnBook(local, isbn(i % BOOKS));
+            }
+
+            // member 8's loan has been overdue for 24 days
+            assertEquals(12.0, single.findMember(memberId(MEMBERS)).getTotalFinesOwed());
+            assertEquals(membersByEmail(List.of(single)), membersByEmail(services));
+            assertEquals(shelvesByIsbn(List.of(single)), shelvesByIsbn(services));
+            assertEquals(memberCounts(List.of(single)), memberCounts(services));
+        } finally {
+            for (PartitionNode node : nodes) {
+                node.close();
+            }
+            for (LibraryService service : services) {
+                service.close();
+            }
+        }
+    }
+
+    /**
+     * Journals for a single library and for each partition with the same books,
+     * members and overdue loans; a partition gets the records it would have
+     * written, so a loan of another partition's member is charged there.
+     */
+    private void seed() throws Exception {
+        Journal single = Journal.open(dataDirectory.resolve("single"), 0);
+        List<Journal> nodes = List.of(Journal.open(dataDirectory.resolve("node-0"), 0),
+                Journal.open(dataDirectory.resolve("node-1"), 0));
+        try {
+            for (int i = 0; i < BOOKS; i++) {
+                single.bookAdded(book(i));
+                nodes.get(partitions.partitionOfBook(isbn(i))).bookAdded(book(i));
+            }
+            long transaction = 0;
+            for (int k = 1; k <= MEMBERS; k++) {
+                int memberPartition = partitions.partitionOfMember(memberId(k));
+                single.memberRegistered(member(k));
+                nodes.get(memberPartition).memberRegistered(member(k));
+
+                int bookPartition = partitions.partitionOfBook(isbn(k));
+                // each node mints transaction numbers in its own residue class
+                do {
+                    transaction++;
+                } while (transaction % partitions.size() != bookPartition);
+                single.bookBorrowed(overdueLoan(transaction, k));
+                nodes.get(bookPartition).bookBorrowed(overdueLoan(transaction, k));
+                if (bookPartition != memberPartition) {
+                    nodes.get(memberPartition).loanCharged(memberId(k));
+                }
+            }
+        } finally {
+            single.close();
+            for (Journal node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    private static String isbn(int i) {
+        return "978-" + (i % BOOKS);
+    }
+
+    private static SimpleBook book(int i) {
+        SimpleBook book = new SimpleBook(isbn(i), "Title " + i, "Author " + i, BookCategory.FICTION);
+        book.setTotalCopies(3);
+        book.setAvailableCopies(3);
+        return book;
+    }
+
+    // member k lives on partition k % 2
+    private static String memberId(int k) {
+        return IdFormat.MEMBER.format(k);
+    }
+
+    private static SimpleMember member(int k) {
+        return new SimpleMember(memberId(k), "Reader", "Number" + k, "reader" + k + "@library.test", MemberType.PUBLIC);
+    }
+
+    // member k borrowed book k, due 3k days ago
+    private static SimpleTransaction overdueLoan(long transaction, int k) {
+        LocalDate due = LocalDate.now().minusDays(3L * k);
+        SimpleTransaction loan = new SimpleTransaction(IdFormat.TRANSACTION.format(transaction), memberId(k), isbn(k),
+                TransactionType.BORROW, due.minusWeeks(2).atStartOfDay(), due);
+        loan.setCopyNumber(0);
+        return loan;
+    }
+
+    private static String[] ok(String result) {
+        assertTrue(result.startsWith("OK"), result);
+        return result.split("\t", -1);
+    }
+
+    // email -> fines owed and books out; member IDs differ between the layouts
+    private static Map<String, String> membersByEmail(List<LibraryService> services) {
+        Map<String, String> members = new TreeMap<>();
+        for (LibraryService service : services) {
+            for (SimpleMember member : service.getAllMembers()) {
+                members.put(member.getEmail(), member.getTotalFinesOwed() + " owed, "
+                        + member.getCurrentBorrowedBooks() + " out");
+            }
+        }
+        return members;
+    }
+
+    private static Map<String, Integer> shelvesByIsbn(List<LibraryService> services) {
+        Map<String, Integer> shelves = new TreeMap<>();
+        for (LibraryService service : services) {
+            for (SimpleBook book : service.getAllBooks()) {
+                shelves.put(book.getIsbn(), book.getAvailableCopies());
+            }
+        }
+        return shelves;
+    }
+
+    private static Map<String, Long> memberCounts(List<LibraryService> services) {
+        Map<String, Long> counts = new HashMap<>();
+        for (LibraryService service : services) {
+            for (MemberType type : MemberType.values()) {
+                for (MemberStatus status : MemberStatus.values()) {
+                    counts.merge(type + "/" + status, service.countMembers(type, status), Long::sum);
+                }
+                counts.merge(type + " at limit", service.countMembersAtLimit(type), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+}
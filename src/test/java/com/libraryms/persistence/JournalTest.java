@@ -0,0 +1,62 @@
+package com.libraryms.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Batches belong to the thread that opened them: one caller's open batch must
+ * not keep another caller's acknowledged records in the write buffer.
+ */
+class JournalTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void endBatchFlushesWhileAnotherThreadsBatchIsOpen() throws Exception {
+        try (Journal journal = Journal.open(dataDirectory, 0)) {
+            journal.beginBatch();
+            journal.bookDeleted("978-held");
+            assertEquals(0, sizeOf(journal), "records of an open batch stay buffered");
+
+            Thread other = new Thread(() -> {
+                journal.beginBatch();
+                journal.bookDeleted("978-other");
+                try {
+                    journal.endBatch();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            other.start();
+            other.join();
+            long flushed = sizeOf(journal);
+            assertTrue(flushed > 0, "the other thread's batch was flushed when it ended");
+
+            journal.bookDeleted("978-later");
+            assertEquals(flushed, sizeOf(journal), "the open batch still defers its own records");
+            journal.endBatch();
+            assertTrue(sizeOf(journal) > flushed);
+        }
+    }
+
+    @Test
+    void recordsOutsideABatchAreFlushedAtOnce() throws Exception {
+        try (Journal journal = Journal.open(dataDirectory, 0)) {
+            journal.bookDeleted("978-1");
+            assertTrue(sizeOf(journal) > 0);
+        }
+    }
+
+    private static long sizeOf(Journal journal) throws IOException {
+        return Files.exists(journal.getFile()) ? Files.size(journal.getFile()) : 0;
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.libraryms.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.TransactionStatus;
+import com.libraryms.model.TransactionType;
+import com.libraryms.model.TransactionView;
+import com.libraryms.store.HistoryPage;
+import com.libraryms.store.TransactionHistory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Many threads borrowing and returning a few contended books for a few
+ * members. Copies must never be lent twice, members must stay within their
+ * limit, and the books, members, open loans and history must agree afterwards.
+ */
+class ConcurrentCirculationTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final int BOOKS = 20;
+    private static final int COPIES = 2;
+    private static final int MEMBERS = 30;
+    private static final MemberType MEMBER_TYPE = MemberType.PUBLIC;
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void inMemoryLibraryNeverOverLends() throws Exception {
+        LibraryService service = new LibraryService();
+        Fixture fixture = Fixture.create(service);
+        long borrowed = hammer(fixture);
+        assertConsistent(fixture, borrowed);
+    }
+
+    @Test
+    void journaledLibraryNeverOverLendsAndRecoversTheSameState() throws Exception {
+        long borrowed;
+        Map<String, Integer> loansByMember;
+        try (LibraryService service = new LibraryService(dataDirectory)) {
+            Fixture fixture = Fixture.create(service);
+            borrowed = hammer(fixture);
+            assertConsistent(fixture, borrowed);
+            loansByMember = loansByMember(fixture);
+        }
+        try (LibraryService recovered = new LibraryService(dataDirectory)) {
+            Fixture fixture = Fixture.existing(recovered);
+            assertConsistent(fixture, borrowed);
+            assertEquals(loansByMember, loansByMember(fixture));
+        }
+    }
+
+    /** Runs the random borrow/return mix on all threads and returns the number of loans made. */
+    private static long hammer(Fixture fixture) throws Exception {
+        LibraryService service = fixture.service;
+        AtomicLong loans = new AtomicLong();
+        ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String memberId = fixture.memberIds.get(random.nextInt(MEMBERS));
+                        String isbn = fixture.isbns.get(random.nextInt(BOOKS));
+                        try {
+                            if (random.nextBoolean()) {
+                                service.borrowBook(memberId, isbn);
+                                loans.incrementAndGet();
+                            } else {
+                                service.returnBook(memberId, isbn);
+                            }
+                        } catch (LibraryException expected) {
+                            // no copy left, member at their limit, or nothing to return
+                        }
+                        SimpleBook book = service.findBook(isbn);
+                        if (book.getAvailableCopies() < 0) {
+                            violations.add(isbn + " has " + book.getAvailableCopies() + " copies available");
+                        }
+                        SimpleMember member = service.findMember(memberId);
+                        if (member.getCurrentBorrowedBooks() > MEMBER_TYPE.getMaxBooksAllowed()) {
+                            violations.add(memberId + " has " + member.getCurrentBorrowedBooks() + " books out");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(violations.isEmpty(), () -> "Seen during the run: " + violations);
+        assertTrue(loans.get() > 0, "No loan succeeded");
+        return loans.get();
+    }
+
+    private static void assertConsistent(Fixture fixture, long borrowed) {
+        LibraryService service = fixture.service;
+        int openLoans = 0;
+        for (String memberId : fixture.memberIds) {
+            SimpleMember member = service.findMember(memberId);
+            int loans = service.openLoansFor(memberId).size();
+            assertEquals(loans, member.getCurrentBorrowedBooks(), memberId + " borrowed count");
+            assertTrue(loans <= MEMBER_TYPE.getMaxBooksAllowed(), memberId + " is over their limit");
+            openLoans += loans;
+        }
+        Map<String, Integer> activeRowsByIsbn = new HashMap<>();
+        int rows = 0;
+        int activeRows = 0;
+        int cursor = TransactionHistory.FIRST_PAGE;
+        HistoryPage<TransactionView> page;
+        do {
+            page = service.transactionHistory(cursor, 1_000);
+            for (TransactionView transaction : page.getItems()) {
+                assertEquals(TransactionType.BORROW, transaction.getType());
+                rows++;
+                if (transaction.getStatus() == TransactionStatus.ACTIVE) {
+                    activeRows++;
+                    activeRowsByIsbn.merge(transaction.getBookIsbn(), 1, Integer::sum);
+                }
+            }
+            cursor = page.getNextCursor();
+        } while (page.hasMore());
+        assertEquals(borrowed, rows, "history rows against successful loans");
+        assertEquals(openLoans, activeRows, "open loans against active history rows");
+        for (String isbn : fixture.isbns) {
+            SimpleBook book = service.findBook(isbn);
+            int out = activeRowsByIsbn.getOrDefault(isbn, 0);
+            assertTrue(book.getAvailableCopies() >= 0, isbn + " available copies");
+            assertEquals(COPIES - out, book.getAvailableCopies().intValue(), isbn + " available copies");
+            assertEquals(COPIES - out, service.barcodesOnShelf(isbn).size(), isbn + " copies on the shelf");
+        }
+    }
+
+    private static Map<String, Integer> loansByMember(Fixture fixture) {
+        Map<String, Integer> loans = new HashMap<>();
+        for (String memberId : fixture.memberIds) {
+            loans.put(memberId, fixture.service.openLoansFor(memberId).size());
+        }
+        return loans;
+    }
+
+    private static final class Fixture {
+        final LibraryService service;
+        final List<String> isbns = new ArrayList<>();
+        final List<String> memberIds = new ArrayList<>();
+
+        private Fixture(LibraryService service) {
+            this.service = service;
+        }
+
+        static Fixture create(LibraryService service) {
+            Fixture fixture = new Fixture(service);
+            for (int i = 0; i < BOOKS; i++) {
+                SimpleBook book = new SimpleBook("978-" + i, "Contended " + i, "Author", BookCategory.FICTION);
+                book.setTotalCopies(COPIES);
+                book.setAvailableCopies(COPIES);
+                service.addBook(book);
+                fixture.isbns.add(book.getIsbn());
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                fixture.memberIds.add(service.registerMember("Reader", "No" + i, "reader" + i + "@library.test",
+                        MEMBER_TYPE, null).getMemberId());
+            }
+            return fixture;
+        }
+
+        static Fixture existing(LibraryService service) {
+            Fixture fixture = new Fixture(service);
+            for (SimpleBook book : service.getAllBooks()) {
+                fixture.isbns.add(book.getIsbn());
+            }
+            for (SimpleMember member : service.getAllMembers()) {
+                fixture.memberIds.add(member.getMemberId());
+            }
+            return fixture;
+        }
+    }
+
+}
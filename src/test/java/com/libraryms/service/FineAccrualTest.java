@@ -0,0 +1,80 @@
+package com.libraryms.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionType;
+import com.libraryms.persistence.Journal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Accrued fines only ever grow, and the return charges the fine up to the
+ * return date whatever accrual has charged before.
+ */
+class FineAccrualTest {
+
+    private static final String MEMBER = "MEM000001";
+    private static final String ISBN = "978-1";
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void earlierRunDoesNotLowerBalance() throws Exception {
+        LocalDate today = LocalDate.now();
+        try (LibraryService service = overdueBy(10)) {
+            service.accrueFines(today);
+            assertEquals(5.0, service.findMember(MEMBER).getTotalFinesOwed());
+
+            FineAccrualReport earlier = service.accrueFines(today.minusDays(4));
+            assertEquals(0, earlier.getLoansUpdated());
+            assertEquals(5.0, service.findMember(MEMBER).getTotalFinesOwed());
+        }
+    }
+
+    @Test
+    void futureDateIsRefused() throws Exception {
+        try (LibraryService service = overdueBy(10)) {
+            LibraryException e = assertThrows(LibraryException.class,
+                    () -> service.accrueFines(LocalDate.now().plusDays(1)));
+            assertEquals(ErrorCode.INVALID_INPUT, e.getCode());
+            assertEquals(0.0, service.findMember(MEMBER).getTotalFinesOwed());
+        }
+    }
+
+    @Test
+    void returnChargesFineUpToReturnDate() throws Exception {
+        try (LibraryService service = overdueBy(10)) {
+            service.accrueFines(LocalDate.now().minusDays(6));
+            assertEquals(2.0, service.findMember(MEMBER).getTotalFinesOwed());
+
+            SimpleTransaction loan = service.returnBook(MEMBER, ISBN);
+            assertEquals(5.0, loan.getFineAmount());
+            assertEquals(5.0, service.findMember(MEMBER).getTotalFinesOwed());
+        }
+    }
+
+    /** A library whose one member holds its one book, due {@code days} days ago. */
+    private LibraryService overdueBy(int days) throws Exception {
+        SimpleBook book = new SimpleBook(ISBN, "Title", "Author", BookCategory.FICTION);
+        book.setTotalCopies(1);
+        book.setAvailableCopies(1);
+        LocalDate due = LocalDate.now().minusDays(days);
+        try (Journal journal = Journal.open(dataDirectory, 0)) {
+            journal.bookAdded(book);
+            journal.memberRegistered(new SimpleMember(MEMBER, "Reader", "One", "reader@library.test", MemberType.PUBLIC));
+            journal.bookBorrowed(new SimpleTransaction("TXN000001", MEMBER, ISBN, TransactionType.BORROW,
+                    due.minusWeeks(2).atStartOfDay(), due));
+        }
+        return new LibraryService(dataDirectory);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.libraryms.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.MemberType;
+import com.libraryms.model.SimpleBook;
+import com.libraryms.model.SimpleMember;
+import java.lang.reflect.Proxy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A change a listener cannot record stops the service: the operation fails,
+ * so does every later change, and reads keep answering from memory.
+ */
+class StorageFailureTest {
+
+    @Test
+    void unrecordedChangeStopsLaterChanges() {
+        LibraryService service = new LibraryService();
+        SimpleBook book = new SimpleBook("978-1", "Title", "Author", BookCategory.FICTION);
+        book.setTotalCopies(2);
+        book.setAvailableCopies(2);
+        service.addBook(book);
+        SimpleMember member = service.registerMember("Reader", "One", "reader@library.test", MemberType.PUBLIC, null);
+        service.addListener(failingOn("bookBorrowed"));
+
+        assertStorageFailure(() -> service.borrowBook(member.getMemberId(), "978-1"));
+        assertStorageFailure(() -> service.returnBook(member.getMemberId(), "978-1"));
+        assertStorageFailure(() -> service.registerMember("Reader", "Two", "two@library.test", MemberType.PUBLIC, null));
+        assertStorageFailure(() -> service.addBook(new SimpleBook("978-2", "Other", "Author", BookCategory.FICTION)));
+        assertStorageFailure(() -> service.placeHold(member.getMemberId(), "978-1"));
+
+        assertSame(book, service.findBook("978-1"));
+        assertSame(member, service.findMember(member.getMemberId()));
+    }
+
+    private static LibraryEventListener failingOn(String event) {
+        return (LibraryEventListener) Proxy.newProxyInstance(LibraryEventListener.class.getClassLoader(),
+                new Class<?>[] { LibraryEventListener.class }, (proxy, method, args) -> {
+                    if (method.getName().equals(event)) {
+                        throw new IllegalStateException("disk full");
+                    }
+                    return null;
+                });
+    }
+
+    private static void assertStorageFailure(Runnable change) {
+        LibraryException e = assertThrows(LibraryException.class, change::run);
+        assertEquals(ErrorCode.STORAGE_FAILURE, e.getCode());
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.libraryms.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.libraryms.model.BookCategory;
+import com.libraryms.model.SimpleBook;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Searches answer exactly what a lower-cased {@code contains} (or
+ * {@code startsWith}) scan over every field would, for queries of one, two,
+ * three and more characters in any case, and keep doing so in the catalog
+ * after titles and authors change and books are removed.
+ */
+class NGramIndexTest {
+
+    private static final String[][] BOOKS = {
+            { "978-0", "Dune", "Frank Herbert" },
+            { "978-1", "Dune Messiah", "Frank Herbert" },
+            { "978-2", "The Left Hand of Darkness", "Ursula K. Le Guin" },
+            { "978-3", "A", "Anonymous" },
+            { "978-4", "It", "Stephen King" },
+            { "978-5", "Ökonomie und Gesellschaft", "Max Weber" },
+            { "978-6", "aaaa", "AAA aa" },
+            { "978-7", "Le Ton beau de Marot", "Douglas Hofstadter" },
+    };
+
+    @Test
+    void searchMatchesContainsScan() {
+        NGramIndex<String> index = new NGramIndex<>();
+        for (String[] book : BOOKS) {
+            index.put(book[0], book[1], book[2], book[0]);
+        }
+        List<String> queries = queries();
+        for (String query : queries) {
+            assertEquals(scan(query, false), new TreeSet<>(index.search(query)), "contains " + query);
+            assertEquals(scan(query, true), new TreeSet<>(index.searchPrefix(query)), "starts with " + query);
+        }
+        assertTrue(index.search("").isEmpty());
+        assertEquals(BOOKS.length, index.size());
+    }
+
+    @Test
+    void removedAndReplacedKeysLeaveNoPostings() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("978-0", "Dune", "Frank Herbert");
+        index.put("978-1", "Dune Messiah", "Frank Herbert");
+
+        index.put("978-0", "Children of Dune", "Frank Herbert");
+        assertEquals(List.of("978-1"), index.searchPrefix("dune"));
+        assertEquals(List.of("978-0"), index.search("CHILD"));
+
+        assertTrue(index.remove("978-1"));
+        assertEquals(List.of(), index.search("messiah"));
+        assertEquals(List.of(), index.search("ss"));
+        assertEquals(List.of("978-0"), index.search("herb"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void catalogReindexesChangedAndRemovedBooks() {
+        BookCatalog catalog = new BookCatalog();
+        for (String[] fields : BOOKS) {
+            catalog.add(new SimpleBook(fields[0], fields[1], fields[2], BookCategory.FICTION));
+        }
+        catalog.findByIsbn("978-0").setTitle("Children of Dune");
+        catalog.findByIsbn("978-2").setAuthor("Octavia E. Butler");
+        catalog.findByIsbn("978-4").setTitle("Carrie");
+        catalog.remove("978-1");
+        catalog.remove("978-6");
+
+        for (String query : List.of("dune", "Messiah", "child", "GUIN", "butler", "it", "carrie", "aa", "a", "978-1")) {
+            Set<String> expected = new TreeSet<>();
+            for (SimpleBook book : catalog.getAll()) {
+                if (containsIgnoringCase(book.getTitle(), query) || containsIgnoringCase(book.getAuthor(), query)
+                        || containsIgnoringCase(book.getIsbn(), query)) {
+                    expected.add(book.getIsbn());
+                }
+            }
+            Set<String> found = new TreeSet<>();
+            for (SimpleBook book : catalog.search(query)) {
+                found.add(book.getIsbn());
+            }
+            assertEquals(expected, found, query);
+        }
+    }
+
+    // every substring of up to five characters of every field, as typed and upper-cased, plus a few misses
+    private static List<String> queries() {
+        Set<String> queries = new TreeSet<>(List.of("z", "qx", "zzz", "dunes", "frank herbertz", "-9", "ö", "Ö"));
+        for (String[] book : BOOKS) {
+            for (String field : book) {
+                for (int length = 1; length <= 5; length++) {
+                    for (int i = 0; i + length <= field.length(); i++) {
+                        String query = field.substring(i, i + length);
+                        queries.add(query);
+                        queries.add(query.toUpperCase(Locale.ROOT));
+                    }
+                }
+                queries.add(field);
+            }
+        }
+        return new ArrayList<>(queries);
+    }
+
+    private static Set<String> scan(String query, boolean prefixOnly) {
+        String term = query.toLowerCase(Locale.ROOT);
+        Set<String> keys = new TreeSet<>();
+        for (String[] book : BOOKS) {
+            for (String field : book) {
+                String text = field.toLowerCase(Locale.ROOT);
+                if (prefixOnly ? text.startsWith(term) : text.contains(term)) {
+                    keys.add(book[0]);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static boolean containsIgnoringCase(String text, String query) {
+        return text.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT));
+    }
+
+}
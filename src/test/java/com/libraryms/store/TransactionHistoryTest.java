@@ -0,0 +1,183 @@
+package com.libraryms.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.libraryms.ids.IdFormat;
+import com.libraryms.model.SimpleTransaction;
+import com.libraryms.model.TransactionStatus;
+import com.libraryms.model.TransactionType;
+import com.libraryms.model.TransactionView;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rows read back as they were added: type and status packed into one byte,
+ * values too wide for their column kept in the overflow map, rows on either
+ * side of a chunk boundary, and all of it again after a {@code writeTo} and
+ * {@code readFrom} round trip.
+ */
+class TransactionHistoryTest {
+
+    private static final int CHUNK_SIZE = 16384;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+
+    @Test
+    void everyTypeAndStatusSurvivesPacking() {
+        TransactionHistory history = new TransactionHistory();
+        List<SimpleTransaction> added = new ArrayList<>();
+        for (TransactionType type : TransactionType.values()) {
+            for (TransactionStatus status : TransactionStatus.values()) {
+                SimpleTransaction transaction = transaction(added.size() + 1, type);
+                transaction.setStatus(status);
+                add(history, added, transaction);
+            }
+        }
+        assertRows(added, history);
+
+        // an update rewrites the status bits and leaves the type bits alone
+        SimpleTransaction active = added.get(TransactionStatus.ACTIVE.ordinal());
+        active.setStatus(TransactionStatus.FAILED);
+        assertTrue(history.updateOutcome(active));
+        assertRows(added, history);
+    }
+
+    @Test
+    void wideValuesOverflowAndNarrowAgain() {
+        TransactionHistory history = new TransactionHistory();
+        List<SimpleTransaction> added = new ArrayList<>();
+        add(history, added, transaction(1, TransactionType.BORROW));
+
+        SimpleTransaction wide = transaction(100_000, TransactionType.BORROW);
+        wide.setTransactionDate(START.plusYears(100));
+        wide.setDueDate(LocalDate.of(2300, 1, 1));
+        wide.setCopyNumber(40_000);
+        wide.setFineAmount(25_000_000.5);
+        add(history, added, wide);
+
+        SimpleTransaction unset = transaction(100_001, TransactionType.RESERVE);
+        unset.setTransactionDate(null);
+        unset.setDueDate(null);
+        unset.setCopyNumber(-1);
+        unset.setNotes("no dates");
+        add(history, added, unset);
+        assertRows(added, history);
+
+        wide.setDueDate(START.toLocalDate().plusWeeks(2));
+        wide.setReturnDate(START.toLocalDate().plusDays(20));
+        wide.setCopyNumber(2);
+        wide.setFineAmount(3.0);
+        wide.setStatus(TransactionStatus.RETURNED);
+        assertTrue(history.updateOutcome(wide));
+        assertRows(added, history);
+        assertFalse(history.updateOutcome(wide), "a closed row takes no more updates");
+    }
+
+    @Test
+    void rowsOnEitherSideOfChunkBoundariesReadBack() {
+        TransactionHistory history = new TransactionHistory();
+        List<SimpleTransaction> added = fill(history, 2 * CHUNK_SIZE + 5);
+        assertRows(added, history);
+
+        for (int row : new int[] { CHUNK_SIZE - 1, CHUNK_SIZE, 2 * CHUNK_SIZE - 1, 2 * CHUNK_SIZE }) {
+            SimpleTransaction transaction = added.get(row);
+            transaction.completeReturn(transaction.getDueDate().plusDays(row % 5));
+            assertTrue(history.updateOutcome(transaction));
+        }
+        assertRows(added, history);
+        assertEquals(describe(added.get(CHUNK_SIZE)), describe(history.page(CHUNK_SIZE + 1, 2).getItems().get(0)));
+        assertMemberPages(added, history);
+    }
+
+    @Test
+    void writeToAndReadFromRoundTrip() throws IOException {
+        TransactionHistory history = new TransactionHistory();
+        List<SimpleTransaction> added = fill(history, CHUNK_SIZE + 3);
+        SimpleTransaction wide = transaction(10_000_000, TransactionType.LOST_BOOK);
+        wide.setDueDate(LocalDate.of(1900, 1, 1));
+        wide.setCopyNumber(Short.MAX_VALUE + 1);
+        wide.setFineAmount(30_000_000.0);
+        wide.setNotes("written off");
+        add(history, added, wide);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        history.writeTo(new DataOutputStream(bytes));
+        TransactionHistory loaded = new TransactionHistory();
+        loaded.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertRows(added, loaded);
+        assertMemberPages(added, loaded);
+
+        // rows still active after loading take outcome updates and new rows follow on
+        SimpleTransaction open = added.get(CHUNK_SIZE + 1);
+        open.completeReturn(open.getDueDate());
+        assertTrue(loaded.updateOutcome(open));
+        add(loaded, added, transaction(10_000_001, TransactionType.BORROW));
+        assertRows(added, loaded);
+    }
+
+    private static List<SimpleTransaction> fill(TransactionHistory history, int rows) {
+        List<SimpleTransaction> added = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            SimpleTransaction transaction = transaction(i + 1, i % 3 == 0 ? TransactionType.RESERVE : TransactionType.BORROW);
+            transaction.setCopyNumber(i % 4);
+            if (i % 1000 == 0) {
+                transaction.setNotes("note " + i);
+            }
+            add(history, added, transaction);
+        }
+        return added;
+    }
+
+    private static SimpleTransaction transaction(long number, TransactionType type) {
+        LocalDateTime created = START.plusMinutes(number);
+        return new SimpleTransaction(IdFormat.TRANSACTION.format(number), IdFormat.MEMBER.format(number % 7 + 1),
+                "978-" + number % 11, type, created, created.toLocalDate().plusWeeks(2));
+    }
+
+    private static void add(TransactionHistory history, List<SimpleTransaction> added, SimpleTransaction transaction) {
+        history.add(transaction);
+        added.add(transaction);
+    }
+
+    private static void assertRows(List<SimpleTransaction> expected, TransactionHistory history) {
+        assertEquals(expected.size(), history.size());
+        List<TransactionView> rows = history.getAll();
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(describe(expected.get(row)), describe(rows.get(row)), "row " + row);
+        }
+    }
+
+    private static void assertMemberPages(List<SimpleTransaction> expected, TransactionHistory history) {
+        String memberId = expected.get(0).getMemberId();
+        List<String> rows = new ArrayList<>();
+        for (SimpleTransaction transaction : expected) {
+            if (transaction.getMemberId().equals(memberId)) {
+                rows.add(0, describe(transaction));
+            }
+        }
+        List<String> paged = new ArrayList<>();
+        for (TransactionView row : history.pageForMember(memberId, TransactionHistory.FIRST_PAGE, rows.size()).getItems()) {
+            paged.add(describe(row));
+        }
+        assertEquals(rows, paged);
+    }
+
+    private static String describe(TransactionView transaction) {
+        return transaction.getTransactionId() + " " + transaction.getMemberId() + " " + transaction.getBookIsbn()
+                + " copy " + transaction.getCopyNumber() + " " + transaction.getType() + " "
+                + transaction.getStatus() + " at " + transaction.getTransactionDate() + " due "
+                + transaction.getDueDate() + " returned " + transaction.getReturnDate() + " fine "
+                + transaction.getFineAmount() + " notes " + transaction.getNotes();
+    }
+
+}